@@ -0,0 +1,33 @@
+package com.library.dto.book;
+
+import java.util.List;
+
+/**
+ * Catalog changes since a sync token. Clients upsert the books, drop the deleted ids and
+ * pass the new token next time. With reset set, the books are the whole catalog and the
+ * client replaces its copy (first sync, server restart, or a token older than the kept
+ * tombstones). With hasMore set, the client asks again right away.
+ */
+public class BookChanges {
+
+    private final String token;
+    private final boolean reset;
+    private final boolean hasMore;
+    private final List<BookResponse> books;
+    private final List<Long> deleted;
+
+    public BookChanges(String token, boolean reset, boolean hasMore, List<BookResponse> books, List<Long> deleted) {
+        this.token = token;
+        this.reset = reset;
+        this.hasMore = hasMore;
+        this.books = books;
+        this.deleted = deleted;
+    }
+
+    // Getters
+    public String getToken() { return token; }
+    public boolean isReset() { return reset; }
+    public boolean isHasMore() { return hasMore; }
+    public List<BookResponse> getBooks() { return books; }
+    public List<Long> getDeleted() { return deleted; }
+}
@@ -0,0 +1,43 @@
+package com.library.dto.book;
+
+public class BookFacetQuery {
+
+    // No filter matches the whole catalog
+    private BookFilter filter;
+    private int page = 0;
+    private int size = 20;
+
+    // Constructors
+    public BookFacetQuery() {}
+
+    public BookFacetQuery(BookFilter filter, int page, int size) {
+        this.filter = filter;
+        this.page = page;
+        this.size = size;
+    }
+
+    // Getters and Setters
+    public BookFilter getFilter() {
+        return filter;
+    }
+
+    public void setFilter(BookFilter filter) {
+        this.filter = filter;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public void setPage(int page) {
+        this.page = page;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+}
@@ -0,0 +1,103 @@
+package com.library.dto.book;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One page of books matching a faceted filter, with how many of all the matches fall in
+ * each category, each publication year and each availability state.
+ */
+public class BookFacetResult {
+
+    private long total;
+    private int page;
+    private int size;
+    private List<BookResponse> books;
+    private Map<String, Integer> categories;
+    private Map<Integer, Integer> years;
+    private int inStock;
+    private int outOfStock;
+
+    // Constructors
+    public BookFacetResult() {}
+
+    public BookFacetResult(long total, int page, int size, List<BookResponse> books,
+                           Map<String, Integer> categories, Map<Integer, Integer> years,
+                           int inStock, int outOfStock) {
+        this.total = total;
+        this.page = page;
+        this.size = size;
+        this.books = books;
+        this.categories = categories;
+        this.years = years;
+        this.inStock = inStock;
+        this.outOfStock = outOfStock;
+    }
+
+    // Getters and Setters
+    public long getTotal() {
+        return total;
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public void setPage(int page) {
+        this.page = page;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public List<BookResponse> getBooks() {
+        return books;
+    }
+
+    public void setBooks(List<BookResponse> books) {
+        this.books = books;
+    }
+
+    // Matches per category; categories without matches are left out
+    public Map<String, Integer> getCategories() {
+        return categories;
+    }
+
+    public void setCategories(Map<String, Integer> categories) {
+        this.categories = categories;
+    }
+
+    // Matches per publication year; years without matches are left out
+    public Map<Integer, Integer> getYears() {
+        return years;
+    }
+
+    public void setYears(Map<Integer, Integer> years) {
+        this.years = years;
+    }
+
+    public int getInStock() {
+        return inStock;
+    }
+
+    public void setInStock(int inStock) {
+        this.inStock = inStock;
+    }
+
+    public int getOutOfStock() {
+        return outOfStock;
+    }
+
+    public void setOutOfStock(int outOfStock) {
+        this.outOfStock = outOfStock;
+    }
+}
@@ -0,0 +1,73 @@
+package com.library.dto.book;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Book fields that can be requested with ?fields=, named as in BookResponse.
+ * Each field lists the Book attributes it is computed from; only those are selected.
+ */
+public enum BookField {
+    ID("id", "id"),
+    TITLE("title", "title"),
+    AUTHOR("author", "author"),
+    ISBN("isbn", "isbn"),
+    PUBLISHER("publisher", "publisher"),
+    PUBLISHED_YEAR("publishedYear", "publishedYear"),
+    CATEGORY("category", "category"),
+    TOTAL_COPIES("totalCopies", "totalCopies"),
+    AVAILABLE_COPIES("availableCopies", "availableCopies"),
+    DESCRIPTION("description", "description"),
+    CREATED_DATE("createdDate", "createdDate"),
+    AVAILABLE("available", "availableCopies"),
+    LOANED_COPIES("loanedCopies", "totalCopies", "availableCopies");
+
+    private final String name;
+    private final List<String> attributes;
+
+    BookField(String name, String... attributes) {
+        this.name = name;
+        this.attributes = List.of(attributes);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<String> getAttributes() {
+        return attributes;
+    }
+
+    // Parse a comma separated list ("title,author"); the id is always included
+    public static Set<BookField> parse(String fields) {
+        Set<BookField> selected = EnumSet.of(ID);
+        for (String field : fields.split(",")) {
+            String trimmed = field.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            selected.add(fromName(trimmed));
+        }
+        return selected;
+    }
+
+    // Book attribute to sort by for a field name; fields computed from several attributes are not sortable
+    public static String sortAttribute(String name) {
+        for (BookField field : values()) {
+            if (field.name.equalsIgnoreCase(name.trim()) && field.attributes.size() == 1) {
+                return field.attributes.get(0);
+            }
+        }
+        throw new IllegalArgumentException("Unknown sort field: " + name);
+    }
+
+    private static BookField fromName(String name) {
+        for (BookField field : values()) {
+            if (field.name.equalsIgnoreCase(name)) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("Unknown book field: " + name);
+    }
+}
@@ -0,0 +1,90 @@
+package com.library.dto.book;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Filter tree for faceted book search.
+ *
+ * A node with an operator combines its child filters: AND and OR over any number of them,
+ * NOT over exactly one. A node without an operator is a leaf that matches books meeting all
+ * of the conditions it sets (category, publication year range, availability). An empty
+ * leaf matches every book.
+ */
+public class BookFilter {
+
+    private Operator op;
+    private List<BookFilter> filters = new ArrayList<>();
+
+    private String category;
+    private Integer yearFrom;
+    private Integer yearTo;
+    private Boolean available;
+
+    // Constructors
+    public BookFilter() {}
+
+    public static BookFilter of(Operator op, List<BookFilter> filters) {
+        BookFilter filter = new BookFilter();
+        filter.op = op;
+        filter.filters = filters;
+        return filter;
+    }
+
+    // Getters and Setters
+    public Operator getOp() {
+        return op;
+    }
+
+    public void setOp(Operator op) {
+        this.op = op;
+    }
+
+    public List<BookFilter> getFilters() {
+        return filters;
+    }
+
+    public void setFilters(List<BookFilter> filters) {
+        this.filters = filters;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    // Inclusive; either bound may be left open
+    public Integer getYearFrom() {
+        return yearFrom;
+    }
+
+    public void setYearFrom(Integer yearFrom) {
+        this.yearFrom = yearFrom;
+    }
+
+    public Integer getYearTo() {
+        return yearTo;
+    }
+
+    public void setYearTo(Integer yearTo) {
+        this.yearTo = yearTo;
+    }
+
+    // true: copies in stock, false: out of stock
+    public Boolean getAvailable() {
+        return available;
+    }
+
+    public void setAvailable(Boolean available) {
+        this.available = available;
+    }
+
+    public enum Operator {
+        AND,
+        OR,
+        NOT
+    }
+}
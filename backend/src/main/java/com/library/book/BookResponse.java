@@ -58,6 +58,23 @@ public class BookResponse {
         );
     }
 
+    // Same without the description, for lists and cached snapshots (the column is loaded lazily)
+    public static BookResponse summaryOf(Book book) {
+        return new BookResponse(
+                book.getId(),
+                book.getTitle(),
+                book.getAuthor(),
+                book.getIsbn(),
+                book.getPublisher(),
+                book.getPublishedYear(),
+                book.getCategory(),
+                book.getTotalCopies(),
+                book.getAvailableCopies(),
+                null,
+                book.getCreatedDate()
+        );
+    }
+
     // Getters and Setters
     public Long getId() {
         return id;
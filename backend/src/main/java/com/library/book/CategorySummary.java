@@ -0,0 +1,42 @@
+package com.library.dto.book;
+
+public class CategorySummary {
+
+    private Integer id;
+    private String name;
+    private int bookCount;
+
+    // Constructors
+    public CategorySummary() {}
+
+    public CategorySummary(Integer id, String name, int bookCount) {
+        this.id = id;
+        this.name = name;
+        this.bookCount = bookCount;
+    }
+
+    // Getters and Setters
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public int getBookCount() {
+        return bookCount;
+    }
+
+    public void setBookCount(int bookCount) {
+        this.bookCount = bookCount;
+    }
+}
@@ -0,0 +1,23 @@
+package com.library.dto;
+
+/**
+ * One entry of a batch-by-id response, at the position of its id in the request.
+ * Ids that do not exist come back with found = false and no item.
+ */
+public class BatchItem<T> {
+
+    private final Long id;
+    private final boolean found;
+    private final T item;
+
+    public BatchItem(Long id, T item) {
+        this.id = id;
+        this.found = item != null;
+        this.item = item;
+    }
+
+    // Getters
+    public Long getId() { return id; }
+    public boolean isFound() { return found; }
+    public T getItem() { return item; }
+}
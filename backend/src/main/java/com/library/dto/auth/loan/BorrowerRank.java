@@ -0,0 +1,72 @@
+package com.library.dto.loan;
+
+public class BorrowerRank {
+
+    private int rank;
+    private Long userId;
+    private String username;
+    private String userFullName;
+    private long loanCount;
+
+    // Constructors
+    public BorrowerRank() {}
+
+    public BorrowerRank(int rank, Long userId, String username, String userFullName, long loanCount) {
+        this.rank = rank;
+        this.userId = userId;
+        this.username = username;
+        this.userFullName = userFullName;
+        this.loanCount = loanCount;
+    }
+
+    // Getters and Setters
+    public int getRank() {
+        return rank;
+    }
+
+    public void setRank(int rank) {
+        this.rank = rank;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public String getUserFullName() {
+        return userFullName;
+    }
+
+    public void setUserFullName(String userFullName) {
+        this.userFullName = userFullName;
+    }
+
+    public long getLoanCount() {
+        return loanCount;
+    }
+
+    public void setLoanCount(long loanCount) {
+        this.loanCount = loanCount;
+    }
+
+    @Override
+    public String toString() {
+        return "BorrowerRank{" +
+                "rank=" + rank +
+                ", userId=" + userId +
+                ", username='" + username + '\'' +
+                ", loanCount=" + loanCount +
+                '}';
+    }
+}
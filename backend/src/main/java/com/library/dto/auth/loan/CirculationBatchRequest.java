@@ -0,0 +1,49 @@
+package com.library.dto.loan;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class CirculationBatchRequest {
+
+    // ALL_OR_NOTHING (default) commits every operation or none of them
+    private Mode mode = Mode.ALL_OR_NOTHING;
+
+    @NotEmpty(message = "At least one operation is required")
+    @Valid
+    private List<CirculationOperation> operations = new ArrayList<>();
+
+    // Constructors
+    public CirculationBatchRequest() {}
+
+    public CirculationBatchRequest(Mode mode, List<CirculationOperation> operations) {
+        this.mode = mode;
+        this.operations = operations;
+    }
+
+    // Getters and Setters
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    public List<CirculationOperation> getOperations() {
+        return operations;
+    }
+
+    public void setOperations(List<CirculationOperation> operations) {
+        this.operations = operations;
+    }
+
+    public enum Mode {
+        // One transaction; the first failure rolls back the whole batch
+        ALL_OR_NOTHING,
+        // One transaction per operation; failures do not affect the others
+        PER_OPERATION
+    }
+}
@@ -0,0 +1,59 @@
+package com.library.dto.loan;
+
+import java.util.List;
+
+public class CirculationBatchResponse {
+
+    private CirculationBatchRequest.Mode mode;
+    private int succeeded;
+    private int failed;
+    private List<CirculationOperationResult> results;
+
+    // Constructors
+    public CirculationBatchResponse() {}
+
+    public CirculationBatchResponse(CirculationBatchRequest.Mode mode, List<CirculationOperationResult> results) {
+        this.mode = mode;
+        this.results = results;
+        for (CirculationOperationResult result : results) {
+            if (result.getStatus() == CirculationOperationResult.Status.SUCCEEDED) {
+                succeeded++;
+            } else if (result.getStatus() == CirculationOperationResult.Status.FAILED) {
+                failed++;
+            }
+        }
+    }
+
+    // Getters and Setters
+    public CirculationBatchRequest.Mode getMode() {
+        return mode;
+    }
+
+    public void setMode(CirculationBatchRequest.Mode mode) {
+        this.mode = mode;
+    }
+
+    public int getSucceeded() {
+        return succeeded;
+    }
+
+    public void setSucceeded(int succeeded) {
+        this.succeeded = succeeded;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public void setFailed(int failed) {
+        this.failed = failed;
+    }
+
+    public List<CirculationOperationResult> getResults() {
+        return results;
+    }
+
+    public void setResults(List<CirculationOperationResult> results) {
+        this.results = results;
+    }
+}
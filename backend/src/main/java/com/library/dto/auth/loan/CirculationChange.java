@@ -0,0 +1,41 @@
+package com.library.dto.loan;
+
+/**
+ * Compact change notification pushed to librarian screens over server-sent events.
+ * Only ids and the counters that changed are sent; clients fetch more if they need it.
+ */
+public class CirculationChange {
+
+    private final long sequence;
+    private final String type;
+    private final Long bookId;
+    private final Long loanId;
+    private final Long userId;
+    private final Integer availableCopies;
+    private final Integer totalCopies;
+
+    public CirculationChange(long sequence, String type, Long bookId, Long loanId, Long userId,
+                             Integer availableCopies, Integer totalCopies) {
+        this.sequence = sequence;
+        this.type = type;
+        this.bookId = bookId;
+        this.loanId = loanId;
+        this.userId = userId;
+        this.availableCopies = availableCopies;
+        this.totalCopies = totalCopies;
+    }
+
+    // Events with the same key describe the same thing, so only the latest needs delivering
+    public String coalesceKey() {
+        return type + ":" + (loanId != null ? loanId : bookId);
+    }
+
+    // Getters
+    public long getSequence() { return sequence; }
+    public String getType() { return type; }
+    public Long getBookId() { return bookId; }
+    public Long getLoanId() { return loanId; }
+    public Long getUserId() { return userId; }
+    public Integer getAvailableCopies() { return availableCopies; }
+    public Integer getTotalCopies() { return totalCopies; }
+}
@@ -0,0 +1,92 @@
+package com.library.dto.loan;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+
+public class CirculationOperation {
+
+    @NotNull(message = "Operation type is required")
+    private Type type;
+
+    // Loan to return, renew or pay the fine of
+    @Positive(message = "Loan ID must be positive")
+    private Long loanId;
+
+    // For RENEW; defaults to 14 days like PUT /api/loans/{id}/renew
+    @Positive(message = "Additional days must be positive")
+    private Integer additionalDays;
+
+    // For CREATE_LOAN
+    @Valid
+    private LoanRequest loan;
+
+    // Optional ETag of the loan as the client read it, checked like an If-Match header
+    private String ifMatch;
+
+    // Constructors
+    public CirculationOperation() {}
+
+    public CirculationOperation(Type type, Long loanId) {
+        this.type = type;
+        this.loanId = loanId;
+    }
+
+    // Getters and Setters
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public Long getLoanId() {
+        return loanId;
+    }
+
+    public void setLoanId(Long loanId) {
+        this.loanId = loanId;
+    }
+
+    public Integer getAdditionalDays() {
+        return additionalDays;
+    }
+
+    public void setAdditionalDays(Integer additionalDays) {
+        this.additionalDays = additionalDays;
+    }
+
+    public LoanRequest getLoan() {
+        return loan;
+    }
+
+    public void setLoan(LoanRequest loan) {
+        this.loan = loan;
+    }
+
+    public String getIfMatch() {
+        return ifMatch;
+    }
+
+    public void setIfMatch(String ifMatch) {
+        this.ifMatch = ifMatch;
+    }
+
+    @Override
+    public String toString() {
+        return "CirculationOperation{" +
+                "type=" + type +
+                ", loanId=" + loanId +
+                ", additionalDays=" + additionalDays +
+                ", loan=" + loan +
+                '}';
+    }
+
+    public enum Type {
+        RETURN,
+        RENEW,
+        PAY_FINE,
+        CREATE_LOAN
+    }
+}
@@ -0,0 +1,76 @@
+package com.library.dto.loan;
+
+/**
+ * Outcome of one operation of a circulation batch, at its position in the request.
+ */
+public class CirculationOperationResult {
+
+    private int index;
+    private CirculationOperation.Type type;
+    private Status status;
+    private LoanResponse loan;
+    private String error;
+
+    // Constructors
+    public CirculationOperationResult() {}
+
+    public CirculationOperationResult(int index, CirculationOperation.Type type, Status status,
+                                      LoanResponse loan, String error) {
+        this.index = index;
+        this.type = type;
+        this.status = status;
+        this.loan = loan;
+        this.error = error;
+    }
+
+    // Getters and Setters
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public CirculationOperation.Type getType() {
+        return type;
+    }
+
+    public void setType(CirculationOperation.Type type) {
+        this.type = type;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    // The loan as the operation left it; null unless it succeeded
+    public LoanResponse getLoan() {
+        return loan;
+    }
+
+    public void setLoan(LoanResponse loan) {
+        this.loan = loan;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public enum Status {
+        SUCCEEDED,
+        FAILED,
+        // Succeeded, but undone because a later operation failed (ALL_OR_NOTHING)
+        ROLLED_BACK,
+        // Not run because an earlier operation failed (ALL_OR_NOTHING)
+        SKIPPED
+    }
+}
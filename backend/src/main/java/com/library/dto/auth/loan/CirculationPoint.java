@@ -0,0 +1,65 @@
+package com.library.dto.loan;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public class CirculationPoint {
+
+    private LocalDate periodStart;
+    private long loans;
+    private long returns;
+    private long overdues;
+    private BigDecimal fines;
+
+    // Constructors
+    public CirculationPoint() {}
+
+    public CirculationPoint(LocalDate periodStart, long loans, long returns, long overdues, BigDecimal fines) {
+        this.periodStart = periodStart;
+        this.loans = loans;
+        this.returns = returns;
+        this.overdues = overdues;
+        this.fines = fines;
+    }
+
+    // Getters and Setters
+    public LocalDate getPeriodStart() {
+        return periodStart;
+    }
+
+    public void setPeriodStart(LocalDate periodStart) {
+        this.periodStart = periodStart;
+    }
+
+    public long getLoans() {
+        return loans;
+    }
+
+    public void setLoans(long loans) {
+        this.loans = loans;
+    }
+
+    public long getReturns() {
+        return returns;
+    }
+
+    public void setReturns(long returns) {
+        this.returns = returns;
+    }
+
+    public long getOverdues() {
+        return overdues;
+    }
+
+    public void setOverdues(long overdues) {
+        this.overdues = overdues;
+    }
+
+    public BigDecimal getFines() {
+        return fines;
+    }
+
+    public void setFines(BigDecimal fines) {
+        this.fines = fines;
+    }
+}
@@ -0,0 +1,28 @@
+package com.library.dto.loan;
+
+import java.time.LocalDateTime;
+
+/**
+ * Minimal projection of a loan (live or archived) used to seed in-memory read models
+ * without loading whole entities.
+ */
+public class LoanActivity {
+
+    private final Long loanId;
+    private final Long userId;
+    private final Long bookId;
+    private final LocalDateTime loanDate;
+
+    public LoanActivity(Long loanId, Long userId, Long bookId, LocalDateTime loanDate) {
+        this.loanId = loanId;
+        this.userId = userId;
+        this.bookId = bookId;
+        this.loanDate = loanDate;
+    }
+
+    // Getters
+    public Long getLoanId() { return loanId; }
+    public Long getUserId() { return userId; }
+    public Long getBookId() { return bookId; }
+    public LocalDateTime getLoanDate() { return loanDate; }
+}
@@ -0,0 +1,86 @@
+package com.library.dto.loan;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+public class LoanAnalyticsRow {
+
+    private Map<String, String> group;
+    private long loans;
+    private long returnedLoans;
+    private long overdueLoans;
+    private double overdueRate;
+    private double averageLoanDays;
+    private BigDecimal fines;
+
+    // Constructors
+    public LoanAnalyticsRow() {}
+
+    public LoanAnalyticsRow(Map<String, String> group, long loans, long returnedLoans, long overdueLoans,
+                            double overdueRate, double averageLoanDays, BigDecimal fines) {
+        this.group = group;
+        this.loans = loans;
+        this.returnedLoans = returnedLoans;
+        this.overdueLoans = overdueLoans;
+        this.overdueRate = overdueRate;
+        this.averageLoanDays = averageLoanDays;
+        this.fines = fines;
+    }
+
+    // Getters and Setters
+    public Map<String, String> getGroup() {
+        return group;
+    }
+
+    public void setGroup(Map<String, String> group) {
+        this.group = group;
+    }
+
+    public long getLoans() {
+        return loans;
+    }
+
+    public void setLoans(long loans) {
+        this.loans = loans;
+    }
+
+    public long getReturnedLoans() {
+        return returnedLoans;
+    }
+
+    public void setReturnedLoans(long returnedLoans) {
+        this.returnedLoans = returnedLoans;
+    }
+
+    public long getOverdueLoans() {
+        return overdueLoans;
+    }
+
+    public void setOverdueLoans(long overdueLoans) {
+        this.overdueLoans = overdueLoans;
+    }
+
+    public double getOverdueRate() {
+        return overdueRate;
+    }
+
+    public void setOverdueRate(double overdueRate) {
+        this.overdueRate = overdueRate;
+    }
+
+    public double getAverageLoanDays() {
+        return averageLoanDays;
+    }
+
+    public void setAverageLoanDays(double averageLoanDays) {
+        this.averageLoanDays = averageLoanDays;
+    }
+
+    public BigDecimal getFines() {
+        return fines;
+    }
+
+    public void setFines(BigDecimal fines) {
+        this.fines = fines;
+    }
+}
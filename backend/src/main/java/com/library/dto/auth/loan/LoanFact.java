@@ -0,0 +1,49 @@
+package com.library.dto.loan;
+
+import com.library.entity.BookLoan;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Projection of the analytical columns of a loan, live or archived.
+ */
+public class LoanFact {
+
+    private final Long loanId;
+    private final Long userId;
+    private final Long bookId;
+    private final LocalDateTime loanDate;
+    private final LocalDateTime dueDate;
+    private final LocalDateTime returnDate;
+    private final BookLoan.LoanStatus status;
+    private final BigDecimal fine;
+
+    public LoanFact(Long loanId, Long userId, Long bookId, LocalDateTime loanDate, LocalDateTime dueDate,
+                    LocalDateTime returnDate, BookLoan.LoanStatus status, BigDecimal fine) {
+        this.loanId = loanId;
+        this.userId = userId;
+        this.bookId = bookId;
+        this.loanDate = loanDate;
+        this.dueDate = dueDate;
+        this.returnDate = returnDate;
+        this.status = status;
+        this.fine = fine;
+    }
+
+    // Archived loans are always returned
+    public LoanFact(Long loanId, Long userId, Long bookId, LocalDateTime loanDate, LocalDateTime dueDate,
+                    LocalDateTime returnDate, BigDecimal fine) {
+        this(loanId, userId, bookId, loanDate, dueDate, returnDate, BookLoan.LoanStatus.RETURNED, fine);
+    }
+
+    // Getters
+    public Long getLoanId() { return loanId; }
+    public Long getUserId() { return userId; }
+    public Long getBookId() { return bookId; }
+    public LocalDateTime getLoanDate() { return loanDate; }
+    public LocalDateTime getDueDate() { return dueDate; }
+    public LocalDateTime getReturnDate() { return returnDate; }
+    public BookLoan.LoanStatus getStatus() { return status; }
+    public BigDecimal getFine() { return fine; }
+}
@@ -1,6 +1,7 @@
 package com.library.dto.loan;
 
 import com.library.entity.BookLoan;
+import com.library.entity.LoanHistory;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
@@ -70,6 +71,28 @@ public class LoanResponse {
         );
     }
 
+    // Static factory method from an archived loan
+    public static LoanResponse fromHistory(LoanHistory history) {
+        return new LoanResponse(
+                history.getId(),
+                history.getUserId(),
+                history.getUsername(),
+                history.getUserFullName(),
+                history.getBookId(),
+                history.getBookTitle(),
+                history.getBookAuthor(),
+                history.getBookIsbn(),
+                history.getLoanDate(),
+                history.getDueDate(),
+                history.getReturnDate(),
+                BookLoan.LoanStatus.RETURNED.name(),
+                history.getFine(),
+                history.getNotes(),
+                false,
+                0
+        );
+    }
+
     // Getters and Setters
     public Long getId() {
         return id;
@@ -0,0 +1,37 @@
+package com.library.dto.loan;
+
+import com.library.entity.BookLoan;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Projection of the circulation state of a loan, used to seed per-user summaries.
+ */
+public class LoanSnapshot {
+
+    private final Long loanId;
+    private final Long userId;
+    private final Long bookId;
+    private final LocalDateTime dueDate;
+    private final BookLoan.LoanStatus status;
+    private final BigDecimal fine;
+
+    public LoanSnapshot(Long loanId, Long userId, Long bookId, LocalDateTime dueDate,
+                        BookLoan.LoanStatus status, BigDecimal fine) {
+        this.loanId = loanId;
+        this.userId = userId;
+        this.bookId = bookId;
+        this.dueDate = dueDate;
+        this.status = status;
+        this.fine = fine;
+    }
+
+    // Getters
+    public Long getLoanId() { return loanId; }
+    public Long getUserId() { return userId; }
+    public Long getBookId() { return bookId; }
+    public LocalDateTime getDueDate() { return dueDate; }
+    public BookLoan.LoanStatus getStatus() { return status; }
+    public BigDecimal getFine() { return fine; }
+}
@@ -0,0 +1,135 @@
+package com.library.dto.loan;
+
+import com.library.entity.Book;
+import com.library.entity.BookLoan;
+import com.library.entity.LoanHistory;
+import com.library.entity.User;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Loan list with users and books written once each: loans refer to them by id, and the
+ * users and books maps hold their details. Built in one pass over the loans.
+ */
+public class NormalizedLoanList {
+
+    private final List<LoanEntry> loans = new ArrayList<>();
+    private final Map<Long, UserEntry> users = new LinkedHashMap<>();
+    private final Map<Long, BookEntry> books = new LinkedHashMap<>();
+
+    public static NormalizedLoanList of(List<BookLoan> loans) {
+        NormalizedLoanList list = new NormalizedLoanList();
+        loans.forEach(list::add);
+        return list;
+    }
+
+    public void add(BookLoan loan) {
+        // Reading the ids does not initialize lazy user/book proxies; only the first loan of each does
+        Long userId = loan.getUser().getId();
+        Long bookId = loan.getBook().getId();
+        users.computeIfAbsent(userId, id -> UserEntry.fromEntity(loan.getUser()));
+        books.computeIfAbsent(bookId, id -> BookEntry.fromEntity(loan.getBook()));
+        loans.add(new LoanEntry(loan.getId(), userId, bookId, loan.getLoanDate(), loan.getDueDate(),
+                loan.getReturnDate(), loan.getStatus().name(), loan.getFine(), loan.getNotes(),
+                loan.isOverdue(), loan.getDaysOverdue()));
+    }
+
+    public void add(LoanHistory history) {
+        users.computeIfAbsent(history.getUserId(),
+                id -> new UserEntry(history.getUsername(), history.getUserFullName()));
+        books.computeIfAbsent(history.getBookId(),
+                id -> new BookEntry(history.getBookTitle(), history.getBookAuthor(), history.getBookIsbn()));
+        loans.add(new LoanEntry(history.getId(), history.getUserId(), history.getBookId(), history.getLoanDate(),
+                history.getDueDate(), history.getReturnDate(), BookLoan.LoanStatus.RETURNED.name(),
+                history.getFine(), history.getNotes(), false, 0));
+    }
+
+    // Getters
+    public List<LoanEntry> getLoans() { return loans; }
+    public Map<Long, UserEntry> getUsers() { return users; }
+    public Map<Long, BookEntry> getBooks() { return books; }
+
+    public static class LoanEntry {
+        private final Long id;
+        private final Long userId;
+        private final Long bookId;
+        private final LocalDateTime loanDate;
+        private final LocalDateTime dueDate;
+        private final LocalDateTime returnDate;
+        private final String status;
+        private final BigDecimal fine;
+        private final String notes;
+        private final boolean isOverdue;
+        private final long daysOverdue;
+
+        public LoanEntry(Long id, Long userId, Long bookId, LocalDateTime loanDate, LocalDateTime dueDate,
+                         LocalDateTime returnDate, String status, BigDecimal fine, String notes,
+                         boolean isOverdue, long daysOverdue) {
+            this.id = id;
+            this.userId = userId;
+            this.bookId = bookId;
+            this.loanDate = loanDate;
+            this.dueDate = dueDate;
+            this.returnDate = returnDate;
+            this.status = status;
+            this.fine = fine;
+            this.notes = notes;
+            this.isOverdue = isOverdue;
+            this.daysOverdue = daysOverdue;
+        }
+
+        public Long getId() { return id; }
+        public Long getUserId() { return userId; }
+        public Long getBookId() { return bookId; }
+        public LocalDateTime getLoanDate() { return loanDate; }
+        public LocalDateTime getDueDate() { return dueDate; }
+        public LocalDateTime getReturnDate() { return returnDate; }
+        public String getStatus() { return status; }
+        public BigDecimal getFine() { return fine; }
+        public String getNotes() { return notes; }
+        public boolean isOverdue() { return isOverdue; }
+        public long getDaysOverdue() { return daysOverdue; }
+    }
+
+    public static class UserEntry {
+        private final String username;
+        private final String fullName;
+
+        public UserEntry(String username, String fullName) {
+            this.username = username;
+            this.fullName = fullName;
+        }
+
+        public static UserEntry fromEntity(User user) {
+            return new UserEntry(user.getUsername(), user.getFirstName() + " " + user.getLastName());
+        }
+
+        public String getUsername() { return username; }
+        public String getFullName() { return fullName; }
+    }
+
+    public static class BookEntry {
+        private final String title;
+        private final String author;
+        private final String isbn;
+
+        public BookEntry(String title, String author, String isbn) {
+            this.title = title;
+            this.author = author;
+            this.isbn = isbn;
+        }
+
+        public static BookEntry fromEntity(Book book) {
+            return new BookEntry(book.getTitle(), book.getAuthor(), book.getIsbn());
+        }
+
+        public String getTitle() { return title; }
+        public String getAuthor() { return author; }
+        public String getIsbn() { return isbn; }
+    }
+}
@@ -0,0 +1,63 @@
+package com.library.dto.report;
+
+public class CoalescingStats {
+
+    private String method;
+    private long calls;
+    private long executions;
+    private long coalesced;
+    private int inFlight;
+
+    // Constructors
+    public CoalescingStats() {}
+
+    public CoalescingStats(String method, long calls, long executions, long coalesced, int inFlight) {
+        this.method = method;
+        this.calls = calls;
+        this.executions = executions;
+        this.coalesced = coalesced;
+        this.inFlight = inFlight;
+    }
+
+    // Getters and Setters
+    public String getMethod() {
+        return method;
+    }
+
+    public void setMethod(String method) {
+        this.method = method;
+    }
+
+    public long getCalls() {
+        return calls;
+    }
+
+    public void setCalls(long calls) {
+        this.calls = calls;
+    }
+
+    public long getExecutions() {
+        return executions;
+    }
+
+    public void setExecutions(long executions) {
+        this.executions = executions;
+    }
+
+    // Calls that shared another call's result instead of running the method
+    public long getCoalesced() {
+        return coalesced;
+    }
+
+    public void setCoalesced(long coalesced) {
+        this.coalesced = coalesced;
+    }
+
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    public void setInFlight(int inFlight) {
+        this.inFlight = inFlight;
+    }
+}
@@ -0,0 +1,100 @@
+package com.library.dto.report;
+
+import java.time.LocalDateTime;
+
+public class ReportStatus {
+
+    private String id;
+    private int year;
+    private String status;
+    private int totalPartitions;
+    private int completedPartitions;
+    private LocalDateTime startedDate;
+    private LocalDateTime finishedDate;
+    private String error;
+
+    // Constructors
+    public ReportStatus() {}
+
+    public ReportStatus(String id, int year, String status, int totalPartitions, int completedPartitions,
+                        LocalDateTime startedDate, LocalDateTime finishedDate, String error) {
+        this.id = id;
+        this.year = year;
+        this.status = status;
+        this.totalPartitions = totalPartitions;
+        this.completedPartitions = completedPartitions;
+        this.startedDate = startedDate;
+        this.finishedDate = finishedDate;
+        this.error = error;
+    }
+
+    // Progress between 0 and 100
+    public int getProgress() {
+        return totalPartitions == 0 ? 0 : (int) (100L * completedPartitions / totalPartitions);
+    }
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public int getYear() {
+        return year;
+    }
+
+    public void setYear(int year) {
+        this.year = year;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public int getTotalPartitions() {
+        return totalPartitions;
+    }
+
+    public void setTotalPartitions(int totalPartitions) {
+        this.totalPartitions = totalPartitions;
+    }
+
+    public int getCompletedPartitions() {
+        return completedPartitions;
+    }
+
+    public void setCompletedPartitions(int completedPartitions) {
+        this.completedPartitions = completedPartitions;
+    }
+
+    public LocalDateTime getStartedDate() {
+        return startedDate;
+    }
+
+    public void setStartedDate(LocalDateTime startedDate) {
+        this.startedDate = startedDate;
+    }
+
+    public LocalDateTime getFinishedDate() {
+        return finishedDate;
+    }
+
+    public void setFinishedDate(LocalDateTime finishedDate) {
+        this.finishedDate = finishedDate;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
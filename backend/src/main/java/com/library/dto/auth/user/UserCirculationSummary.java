@@ -0,0 +1,77 @@
+package com.library.dto.user;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public class UserCirculationSummary {
+
+    private Long userId;
+    private int activeLoans;
+    private int overdueLoans;
+    private BigDecimal outstandingFines;
+    private List<Long> borrowedBookIds;
+
+    // Constructors
+    public UserCirculationSummary() {}
+
+    public UserCirculationSummary(Long userId, int activeLoans, int overdueLoans,
+                                  BigDecimal outstandingFines, List<Long> borrowedBookIds) {
+        this.userId = userId;
+        this.activeLoans = activeLoans;
+        this.overdueLoans = overdueLoans;
+        this.outstandingFines = outstandingFines;
+        this.borrowedBookIds = borrowedBookIds;
+    }
+
+    // Getters and Setters
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public int getActiveLoans() {
+        return activeLoans;
+    }
+
+    public void setActiveLoans(int activeLoans) {
+        this.activeLoans = activeLoans;
+    }
+
+    public int getOverdueLoans() {
+        return overdueLoans;
+    }
+
+    public void setOverdueLoans(int overdueLoans) {
+        this.overdueLoans = overdueLoans;
+    }
+
+    public BigDecimal getOutstandingFines() {
+        return outstandingFines;
+    }
+
+    public void setOutstandingFines(BigDecimal outstandingFines) {
+        this.outstandingFines = outstandingFines;
+    }
+
+    public List<Long> getBorrowedBookIds() {
+        return borrowedBookIds;
+    }
+
+    public void setBorrowedBookIds(List<Long> borrowedBookIds) {
+        this.borrowedBookIds = borrowedBookIds;
+    }
+
+    @Override
+    public String toString() {
+        return "UserCirculationSummary{" +
+                "userId=" + userId +
+                ", activeLoans=" + activeLoans +
+                ", overdueLoans=" + overdueLoans +
+                ", outstandingFines=" + outstandingFines +
+                ", borrowedBookIds=" + borrowedBookIds +
+                '}';
+    }
+}
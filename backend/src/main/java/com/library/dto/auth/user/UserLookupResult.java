@@ -0,0 +1,79 @@
+package com.library.dto.user;
+
+import java.util.List;
+
+/**
+ * One page of a ranked member lookup. Only the best-ranked matches up to the lookup cap
+ * can be paged through; truncated is set when more users than that matched.
+ */
+public class UserLookupResult {
+
+    private String query;
+    private int total;
+    private boolean truncated;
+    private int page;
+    private int size;
+    private List<UserResponse> users;
+
+    // Constructors
+    public UserLookupResult() {}
+
+    public UserLookupResult(String query, int total, boolean truncated, int page, int size,
+                            List<UserResponse> users) {
+        this.query = query;
+        this.total = total;
+        this.truncated = truncated;
+        this.page = page;
+        this.size = size;
+        this.users = users;
+    }
+
+    // Getters and Setters
+    public String getQuery() {
+        return query;
+    }
+
+    public void setQuery(String query) {
+        this.query = query;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public void setTotal(int total) {
+        this.total = total;
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public void setTruncated(boolean truncated) {
+        this.truncated = truncated;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public void setPage(int page) {
+        this.page = page;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public List<UserResponse> getUsers() {
+        return users;
+    }
+
+    public void setUsers(List<UserResponse> users) {
+        this.users = users;
+    }
+}
@@ -0,0 +1,78 @@
+package com.library.dto.user;
+
+import com.library.dto.loan.LoanResponse;
+import org.springframework.data.domain.Page;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Everything the member detail view shows, from one request.
+ * Sections that could not be loaded in time are null and named in "unavailable".
+ */
+public class UserOverview {
+
+    private UserResponse user;
+    private UserCirculationSummary summary;
+    private List<LoanResponse> activeLoans;
+    private List<LoanResponse> overdueLoans;
+    private Page<LoanResponse> history;
+    private List<String> unavailable = new ArrayList<>();
+
+    // Constructors
+    public UserOverview() {}
+
+    // Getters and Setters
+    public UserResponse getUser() {
+        return user;
+    }
+
+    public void setUser(UserResponse user) {
+        this.user = user;
+    }
+
+    // Loan counts and outstanding fines
+    public UserCirculationSummary getSummary() {
+        return summary;
+    }
+
+    public void setSummary(UserCirculationSummary summary) {
+        this.summary = summary;
+    }
+
+    public List<LoanResponse> getActiveLoans() {
+        return activeLoans;
+    }
+
+    public void setActiveLoans(List<LoanResponse> activeLoans) {
+        this.activeLoans = activeLoans;
+    }
+
+    public List<LoanResponse> getOverdueLoans() {
+        return overdueLoans;
+    }
+
+    public void setOverdueLoans(List<LoanResponse> overdueLoans) {
+        this.overdueLoans = overdueLoans;
+    }
+
+    public Page<LoanResponse> getHistory() {
+        return history;
+    }
+
+    public void setHistory(Page<LoanResponse> history) {
+        this.history = history;
+    }
+
+    public List<String> getUnavailable() {
+        return unavailable;
+    }
+
+    public void setUnavailable(List<String> unavailable) {
+        this.unavailable = unavailable;
+    }
+
+    public boolean isComplete() {
+        return unavailable.isEmpty();
+    }
+}
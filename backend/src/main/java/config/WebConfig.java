@@ -0,0 +1,50 @@
+package com.library.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Binary response encodings, selected with the Accept header:
+ * application/x-jackson-smile or application/cbor. The converters are appended after the
+ * JSON one, so requests that accept anything still get JSON.
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilder;
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new MappingJackson2SmileHttpMessageConverter(smileObjectMapper()));
+        converters.add(new MappingJackson2CborHttpMessageConverter(cborObjectMapper()));
+    }
+
+    // Smile back-references repeated string values such as usernames and book titles
+    public static SmileFactory smileFactory() {
+        return SmileFactory.builder()
+                .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                .build();
+    }
+
+    // Same settings as the JSON mapper
+    private ObjectMapper smileObjectMapper() {
+        return objectMapperBuilder.getObject().factory(smileFactory()).build();
+    }
+
+    private ObjectMapper cborObjectMapper() {
+        return objectMapperBuilder.getObject().factory(new CBORFactory()).build();
+    }
+}
@@ -0,0 +1,26 @@
+package com.library.controller;
+
+import com.library.dto.report.CoalescingStats;
+import com.library.service.RequestCoalescer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin")
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class AdminController {
+
+    @Autowired
+    private RequestCoalescer requestCoalescer;
+
+    // Calls, executions and coalesced calls per service read method since startup (Admin only)
+    @GetMapping("/coalescing")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<CoalescingStats>> getCoalescingStats() {
+        return ResponseEntity.ok(requestCoalescer.getStats());
+    }
+}
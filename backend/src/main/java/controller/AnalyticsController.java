@@ -0,0 +1,91 @@
+package com.library.controller;
+
+import com.library.dto.loan.CirculationPoint;
+import com.library.dto.loan.LoanAnalyticsRow;
+import com.library.service.AnalyticsDimension;
+import com.library.service.CirculationRollupService;
+import com.library.service.LoanAnalyticsStore;
+import com.library.service.RollupGranularity;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/analytics")
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class AnalyticsController {
+
+    @Autowired
+    private LoanAnalyticsStore loanAnalyticsStore;
+
+    @Autowired
+    private CirculationRollupService circulationRollupService;
+
+    // Loan analytics grouped by dimensions, e.g. ?groupBy=category,month&from=2024-01-01&to=2025-01-01
+    @GetMapping("/loans")
+    @PreAuthorize("hasAnyRole('LIBRARIAN', 'ADMIN')")
+    public ResponseEntity<?> getLoanAnalytics(
+            @RequestParam(required = false) List<String> groupBy,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            List<AnalyticsDimension> dimensions = new ArrayList<>();
+            if (groupBy != null) {
+                for (String dimension : groupBy) {
+                    dimensions.add(AnalyticsDimension.fromParameter(dimension));
+                }
+            }
+            List<LoanAnalyticsRow> rows = loanAnalyticsStore.query(dimensions,
+                    from != null ? from.atStartOfDay() : null,
+                    to != null ? to.atStartOfDay() : null);
+            return ResponseEntity.ok(rows);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(new ErrorResponse("Invalid analytics query", e.getMessage()));
+        }
+    }
+
+    // Circulation trend, one point per day/week/month (defaults to the last 30 days by day)
+    @GetMapping("/circulation")
+    @PreAuthorize("hasAnyRole('LIBRARIAN', 'ADMIN')")
+    public ResponseEntity<?> getCirculation(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "DAY") String granularity,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) Long bookId) {
+        try {
+            LocalDate end = to != null ? to : LocalDate.now();
+            LocalDate start = from != null ? from : end.minusDays(29);
+            List<CirculationPoint> points = circulationRollupService.getCirculation(start, end,
+                    RollupGranularity.fromParameter(granularity), category, bookId);
+            return ResponseEntity.ok(points);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(new ErrorResponse("Invalid circulation query", e.getMessage()));
+        }
+    }
+
+    // Inner classes for responses
+    public static class ErrorResponse {
+        private String error;
+        private String message;
+        private long timestamp;
+
+        public ErrorResponse(String error, String message) {
+            this.error = error;
+            this.message = message;
+            this.timestamp = System.currentTimeMillis();
+        }
+
+        public String getError() { return error; }
+        public String getMessage() { return message; }
+        public long getTimestamp() { return timestamp; }
+    }
+}
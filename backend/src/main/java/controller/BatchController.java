@@ -0,0 +1,87 @@
+package com.library.controller;
+
+import com.library.dto.loan.CirculationBatchRequest;
+import com.library.dto.loan.CirculationBatchResponse;
+import com.library.dto.loan.CirculationOperation;
+import com.library.dto.loan.CirculationOperationResult;
+import com.library.service.CirculationBatchService;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/batch")
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class BatchController {
+
+    @Autowired
+    private CirculationBatchService circulationBatchService;
+
+    // Run a checkout-desk session (returns, renewals, fine payments, new loans) in one request.
+    // The token is checked once for the whole batch; returns need the same roles as PUT /api/loans/{id}/return.
+    @PostMapping
+    @PreAuthorize("hasAnyRole('MEMBER', 'LIBRARIAN', 'ADMIN')")
+    public ResponseEntity<?> executeBatch(@Valid @RequestBody CirculationBatchRequest request) {
+        if (!isStaff(SecurityContextHolder.getContext().getAuthentication())) {
+            for (CirculationOperation operation : request.getOperations()) {
+                if (operation.getType() == CirculationOperation.Type.RETURN) {
+                    return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                            .body(new ErrorResponse("Access denied", "Returns require the LIBRARIAN or ADMIN role"));
+                }
+            }
+        }
+
+        try {
+            CirculationBatchResponse response = circulationBatchService.execute(request);
+            // An all-or-nothing batch that rolled back changed nothing
+            if (response.getMode() == CirculationBatchRequest.Mode.ALL_OR_NOTHING && hasFailure(response)) {
+                return ResponseEntity.badRequest().body(response);
+            }
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(new ErrorResponse("Invalid batch request", e.getMessage()));
+        }
+    }
+
+    private boolean isStaff(Authentication authentication) {
+        if (authentication == null) {
+            return false;
+        }
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            String role = authority.getAuthority();
+            if ("ROLE_LIBRARIAN".equals(role) || "ROLE_ADMIN".equals(role)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hasFailure(CirculationBatchResponse response) {
+        return response.getResults().stream()
+                .anyMatch(result -> result.getStatus() != CirculationOperationResult.Status.SUCCEEDED);
+    }
+
+    // Inner class for error responses
+    public static class ErrorResponse {
+        private String error;
+        private String message;
+        private long timestamp;
+
+        public ErrorResponse(String error, String message) {
+            this.error = error;
+            this.message = message;
+            this.timestamp = System.currentTimeMillis();
+        }
+
+        public String getError() { return error; }
+        public String getMessage() { return message; }
+        public long getTimestamp() { return timestamp; }
+    }
+}
@@ -1,17 +1,33 @@
 package com.library.controller;
 
+import com.library.dto.BatchItem;
+import com.library.dto.book.BookChanges;
+import com.library.dto.book.BookFacetQuery;
+import com.library.dto.book.BookFacetResult;
+import com.library.dto.book.BookField;
 import com.library.dto.book.BookRequest;
 import com.library.dto.book.BookResponse;
+import com.library.service.BookAvailabilityRegistry;
 import com.library.service.BookService;
+import com.library.service.EntityTagService;
+import com.library.service.ResponseByteCache;
+import com.library.service.StatsWindow;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/books")
@@ -21,10 +37,24 @@ public class BookController {
 
     @Autowired
     private BookService bookService;
+
+    @Autowired
+    private EntityTagService entityTagService;
+
+    @Autowired
+    private ResponseByteCache responseByteCache;
+
     // Get all books (accessible to all authenticated users)
     @GetMapping
     @PreAuthorize("hasAnyRole('MEMBER', 'LIBRARIAN', 'ADMIN')")
-    public ResponseEntity<List<BookResponse>> getAllBooks() {
+    public ResponseEntity<?> getAllBooks(@RequestParam(required = false) String fields,
+                                         ServletWebRequest webRequest) {
+        if (ConditionalRequests.notModified(webRequest, bookListTag())) {
+            return null;
+        }
+        if (fields != null) {
+            return sparse(() -> bookService.getAllBooks(BookField.parse(fields)));
+        }
         List<BookResponse> books = bookService.getAllBooks();
         return ResponseEntity.ok(books);
     }
@@ -37,27 +67,66 @@ public class BookController {
     // Get books with pagination
     @GetMapping("/paginated")
     @PreAuthorize("hasAnyRole('MEMBER', 'LIBRARIAN', 'ADMIN')")
-    public ResponseEntity<Page<BookResponse>> getBooksWithPagination(
+    public ResponseEntity<?> getBooksWithPagination(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "title") String sortBy,
-            @RequestParam(defaultValue = "asc") String sortDirection) {
-        Page<BookResponse> books = bookService.getBooksWithPagination(page, size, sortBy, sortDirection);
+            @RequestParam(defaultValue = "asc") String sortDirection,
+            @RequestParam(required = false) String fields,
+            ServletWebRequest webRequest) {
+        String sortAttribute;
+        try {
+            sortAttribute = BookField.sortAttribute(sortBy);
+            Sort.Direction.fromString(sortDirection);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(new ErrorResponse("Invalid sort", e.getMessage()));
+        }
+        if (ConditionalRequests.notModified(webRequest, bookListTag())) {
+            return null;
+        }
+        if (fields != null) {
+            return sparse(() -> bookService.getBooksWithPagination(page, size, sortAttribute, sortDirection,
+                    BookField.parse(fields)));
+        }
+        Page<BookResponse> books = bookService.getBooksWithPagination(page, size, sortAttribute, sortDirection);
         return ResponseEntity.ok(books);
     }
 
     // Get book by ID
     @GetMapping("/{id}")
     @PreAuthorize("hasAnyRole('MEMBER', 'LIBRARIAN', 'ADMIN')")
-    public ResponseEntity<?> getBookById(@PathVariable Long id) {
+    public ResponseEntity<?> getBookById(@PathVariable Long id,
+                                         @RequestParam(required = false) String fields,
+                                         ServletWebRequest webRequest) throws IOException {
+        String tag = entityTagService.bookTag(id);
         try {
-            BookResponse book = bookService.getBookById(id);
-            return ResponseEntity.ok(book);
+            if (fields != null) {
+                Set<BookField> selected = BookField.parse(fields);
+                return cached(webRequest, "book:" + id + ":" + fields, tag, () -> bookService.getBookById(id, selected));
+            }
+            return cached(webRequest, "book:" + id, tag, () -> bookService.getBookById(id));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(new ErrorResponse("Invalid fields", e.getMessage()));
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
     }
 
+    // Get many books by id, in request order with not-found markers
+    @PostMapping("/batch")
+    @PreAuthorize("hasAnyRole('MEMBER', 'LIBRARIAN', 'ADMIN')")
+    public ResponseEntity<?> getBooksByIds(@RequestBody List<Long> ids) {
+        try {
+            List<BatchItem<BookResponse>> books = bookService.getBooksByIds(ids);
+            return ResponseEntity.ok(books);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(new ErrorResponse("Invalid batch request", e.getMessage()));
+        }
+    }
+
     // Get book by ISBN
     @GetMapping("/isbn/{isbn}")
     @PreAuthorize("hasAnyRole('MEMBER', 'LIBRARIAN', 'ADMIN')")
@@ -73,7 +142,15 @@ public class BookController {
     // Search books
     @GetMapping("/search")
     @PreAuthorize("hasAnyRole('MEMBER', 'LIBRARIAN', 'ADMIN')")
-    public ResponseEntity<List<BookResponse>> searchBooks(@RequestParam String query) {
+    public ResponseEntity<?> searchBooks(@RequestParam String query,
+                                         @RequestParam(required = false) String fields,
+                                         ServletWebRequest webRequest) {
+        if (ConditionalRequests.notModified(webRequest, bookListTag())) {
+            return null;
+        }
+        if (fields != null) {
+            return sparse(() -> bookService.searchBooks(query, BookField.parse(fields)));
+        }
         List<BookResponse> books = bookService.searchBooks(query);
         return ResponseEntity.ok(books);
     }
@@ -81,10 +158,18 @@ public class BookController {
     // Search books with pagination
     @GetMapping("/search/paginated")
     @PreAuthorize("hasAnyRole('MEMBER', 'LIBRARIAN', 'ADMIN')")
-    public ResponseEntity<Page<BookResponse>> searchBooksWithPagination(
+    public ResponseEntity<?> searchBooksWithPagination(
             @RequestParam String query,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String fields,
+            ServletWebRequest webRequest) {
+        if (ConditionalRequests.notModified(webRequest, bookListTag())) {
+            return null;
+        }
+        if (fields != null) {
+            return sparse(() -> bookService.searchBooksWithPagination(query, page, size, BookField.parse(fields)));
+        }
         Page<BookResponse> books = bookService.searchBooksWithPagination(query, page, size);
         return ResponseEntity.ok(books);
     }
@@ -92,7 +177,15 @@ public class BookController {
     // Get books by category
     @GetMapping("/category/{category}")
     @PreAuthorize("hasAnyRole('MEMBER', 'LIBRARIAN', 'ADMIN')")
-    public ResponseEntity<List<BookResponse>> getBooksByCategory(@PathVariable String category) {
+    public ResponseEntity<?> getBooksByCategory(@PathVariable String category,
+                                                @RequestParam(required = false) String fields,
+                                                ServletWebRequest webRequest) {
+        if (ConditionalRequests.notModified(webRequest, bookListTag())) {
+            return null;
+        }
+        if (fields != null) {
+            return sparse(() -> bookService.getBooksByCategory(category, BookField.parse(fields)));
+        }
         List<BookResponse> books = bookService.getBooksByCategory(category);
         return ResponseEntity.ok(books);
     }
@@ -100,7 +193,15 @@ public class BookController {
     // Get books by author
     @GetMapping("/author/{author}")
     @PreAuthorize("hasAnyRole('MEMBER', 'LIBRARIAN', 'ADMIN')")
-    public ResponseEntity<List<BookResponse>> getBooksByAuthor(@PathVariable String author) {
+    public ResponseEntity<?> getBooksByAuthor(@PathVariable String author,
+                                              @RequestParam(required = false) String fields,
+                                              ServletWebRequest webRequest) {
+        if (ConditionalRequests.notModified(webRequest, bookListTag())) {
+            return null;
+        }
+        if (fields != null) {
+            return sparse(() -> bookService.getBooksByAuthor(author, BookField.parse(fields)));
+        }
         List<BookResponse> books = bookService.getBooksByAuthor(author);
         return ResponseEntity.ok(books);
     }
@@ -108,26 +209,77 @@ public class BookController {
     // Get available books only
     @GetMapping("/available")
     @PreAuthorize("hasAnyRole('MEMBER', 'LIBRARIAN', 'ADMIN')")
-    public ResponseEntity<List<BookResponse>> getAvailableBooks() {
+    public ResponseEntity<List<BookResponse>> getAvailableBooks(ServletWebRequest webRequest) {
+        if (ConditionalRequests.notModified(webRequest, bookListTag())) {
+            return null;
+        }
         List<BookResponse> books = bookService.getAvailableBooks();
         return ResponseEntity.ok(books);
     }
 
+    // Faceted search: filter tree over category, year range and availability, one page of
+    // matches and counts per category, year and availability
+    @PostMapping("/facets")
+    @PreAuthorize("hasAnyRole('MEMBER', 'LIBRARIAN', 'ADMIN')")
+    public ResponseEntity<?> searchFacets(@RequestBody(required = false) BookFacetQuery query) {
+        try {
+            BookFacetResult result = bookService.searchFacets(query != null ? query : new BookFacetQuery());
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(new ErrorResponse("Invalid filter", e.getMessage()));
+        }
+    }
+
+    // Get books created, updated or deleted since a sync token (no token: whole catalog)
+    @GetMapping("/changes")
+    @PreAuthorize("hasAnyRole('MEMBER', 'LIBRARIAN', 'ADMIN')")
+    public ResponseEntity<?> getBookChanges(@RequestParam(required = false) String since,
+                                            @RequestParam(defaultValue = "1000") int limit) {
+        try {
+            BookChanges changes = bookService.getChangesSince(since, limit);
+            return ResponseEntity.ok(changes);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(new ErrorResponse("Invalid sync request", e.getMessage()));
+        }
+    }
+
     // Get all categories
     @GetMapping("/categories")
     @PreAuthorize("hasAnyRole('MEMBER', 'LIBRARIAN', 'ADMIN')")
-    public ResponseEntity<List<String>> getAllCategories() {
-        List<String> categories = bookService.getAllCategories();
-        return ResponseEntity.ok(categories);
+    public ResponseEntity<?> getAllCategories(ServletWebRequest webRequest) throws IOException {
+        return cached(webRequest, "categories", bookListTag(), bookService::getAllCategories);
+    }
+
+    // Get categories with their ids and book counts
+    @GetMapping("/categories/summary")
+    @PreAuthorize("hasAnyRole('MEMBER', 'LIBRARIAN', 'ADMIN')")
+    public ResponseEntity<?> getCategorySummaries(ServletWebRequest webRequest) throws IOException {
+        return cached(webRequest, "categories:summary", bookListTag(), bookService::getCategorySummaries);
     }
 
-    // Get most popular books
+    // Get most popular books (window: ALL_TIME, WEEK, MONTH or YEAR)
     @GetMapping("/popular")
     @PreAuthorize("hasAnyRole('MEMBER', 'LIBRARIAN', 'ADMIN')")
-    public ResponseEntity<List<BookResponse>> getMostPopularBooks(
-            @RequestParam(defaultValue = "10") int limit) {
-        List<BookResponse> books = bookService.getMostPopularBooks(limit);
-        return ResponseEntity.ok(books);
+    public ResponseEntity<?> getMostPopularBooks(
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(defaultValue = "ALL_TIME") String window,
+            ServletWebRequest webRequest) throws IOException {
+        if (limit < 1) {
+            return ResponseEntity.badRequest()
+                    .body(new ErrorResponse("Invalid limit", "Limit must be at least 1"));
+        }
+        try {
+            StatsWindow statsWindow = StatsWindow.fromParameter(window);
+            // Rankings move with loans as well as with the books themselves
+            String tag = entityTagService.listTag(EntityTagService.Table.BOOKS, EntityTagService.Table.LOANS);
+            return cached(webRequest, "popular:" + statsWindow + ":" + limit, tag,
+                    () -> bookService.getMostPopularBooks(limit, statsWindow));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(new ErrorResponse("Invalid window", e.getMessage()));
+        }
     }
 
     // Create new book (Librarian and Admin only)
@@ -146,10 +298,15 @@ public class BookController {
     // Update book (Librarian and Admin only)
     @PutMapping("/{id}")
     @PreAuthorize("hasAnyRole('LIBRARIAN', 'ADMIN')")
-    public ResponseEntity<?> updateBook(@PathVariable Long id, @Valid @RequestBody BookRequest bookRequest) {
+    public ResponseEntity<?> updateBook(@PathVariable Long id, @Valid @RequestBody BookRequest bookRequest,
+                                        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
-            BookResponse book = bookService.updateBook(id, bookRequest);
+            Long expectedVersion = EntityTagService.expectedVersion(ifMatch, EntityTagService.Table.BOOKS, id);
+            BookResponse book = bookService.updateBook(id, bookRequest, expectedVersion);
             return ResponseEntity.ok(book);
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(ConditionalRequests.conflictStatus(ifMatch))
+                    .body(new ErrorResponse("Book was modified", e.getMessage()));
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest()
                     .body(new ErrorResponse("Book update failed", e.getMessage()));
@@ -172,9 +329,8 @@ public class BookController {
     // Get book statistics (Librarian and Admin only)
     @GetMapping("/statistics")
     @PreAuthorize("hasAnyRole('LIBRARIAN', 'ADMIN')")
-    public ResponseEntity<BookService.BookStatistics> getBookStatistics() {
-        BookService.BookStatistics stats = bookService.getBookStatistics();
-        return ResponseEntity.ok(stats);
+    public ResponseEntity<?> getBookStatistics(ServletWebRequest webRequest) throws IOException {
+        return cached(webRequest, "statistics", bookListTag(), bookService::getBookStatistics);
     }
 
     // Check book availability
@@ -182,12 +338,11 @@ public class BookController {
     @PreAuthorize("hasAnyRole('MEMBER', 'LIBRARIAN', 'ADMIN')")
     public ResponseEntity<AvailabilityResponse> checkBookAvailability(@PathVariable Long id) {
         try {
-            boolean isAvailable = bookService.isBookAvailable(id);
-            BookResponse book = bookService.getBookById(id);
+            BookAvailabilityRegistry.Availability availability = bookService.getBookAvailability(id);
             return ResponseEntity.ok(new AvailabilityResponse(
-                    isAvailable,
-                    book.getAvailableCopies(),
-                    book.getTotalCopies()
+                    availability.isAvailable(),
+                    availability.getAvailableCopies(),
+                    availability.getTotalCopies()
             ));
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
@@ -197,11 +352,45 @@ public class BookController {
     // Get out of stock books (Librarian and Admin only)
     @GetMapping("/out-of-stock")
     @PreAuthorize("hasAnyRole('LIBRARIAN', 'ADMIN')")
-    public ResponseEntity<List<BookResponse>> getOutOfStockBooks() {
+    public ResponseEntity<List<BookResponse>> getOutOfStockBooks(ServletWebRequest webRequest) {
+        if (ConditionalRequests.notModified(webRequest, bookListTag())) {
+            return null;
+        }
         List<BookResponse> books = bookService.getOutOfStockBooks();
         return ResponseEntity.ok(books);
     }
 
+    private String bookListTag() {
+        return entityTagService.listTag(EntityTagService.Table.BOOKS);
+    }
+
+    /**
+     * Conditional GET, then the response byte cache, both keyed on the same tag. Hits and
+     * misses are written to the response directly and the handler returns null; clients that
+     * want Smile or CBOR get a normal response.
+     */
+    private ResponseEntity<?> cached(ServletWebRequest webRequest, String key, String tag, Supplier<?> loader)
+            throws IOException {
+        if (ConditionalRequests.notModified(webRequest, tag)) {
+            return null;
+        }
+        if (tag == null || !responseByteCache.isCacheable(webRequest.getRequest())) {
+            return ResponseEntity.ok(loader.get());
+        }
+        responseByteCache.write(key, tag, loader, webRequest.getRequest(), webRequest.getResponse());
+        return null;
+    }
+
+    // Run a ?fields= query, answering 400 for unknown fields
+    private ResponseEntity<?> sparse(Supplier<?> query) {
+        try {
+            return ResponseEntity.ok(query.get());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(new ErrorResponse("Invalid fields", e.getMessage()));
+        }
+    }
+
     // Inner classes for responses
     public static class ErrorResponse {
         private String error;
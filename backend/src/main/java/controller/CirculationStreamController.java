@@ -0,0 +1,54 @@
+package com.library.controller;
+
+import com.library.security.StreamTicketStore;
+import com.library.service.CirculationEventStream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/stream")
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class CirculationStreamController {
+
+    @Autowired
+    private CirculationEventStream circulationEventStream;
+
+    @Autowired
+    private StreamTicketStore streamTicketStore;
+
+    // Issue a single-use ticket for opening an event stream (Librarian and Admin only)
+    @PostMapping("/ticket")
+    @PreAuthorize("hasAnyRole('LIBRARIAN', 'ADMIN')")
+    public ResponseEntity<TicketResponse> issueTicket() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String ticket = streamTicketStore.issue(authentication.getName());
+        return ResponseEntity.ok(new TicketResponse(ticket, streamTicketStore.getTtlMillis()));
+    }
+
+    // Subscribe to book availability and loan changes (Librarian and Admin only)
+    @GetMapping(value = "/circulation", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasAnyRole('LIBRARIAN', 'ADMIN')")
+    public SseEmitter subscribe() {
+        return circulationEventStream.subscribe();
+    }
+
+    // Inner classes for responses
+    public static class TicketResponse {
+        private String ticket;
+        private long expiresInMs;
+
+        public TicketResponse(String ticket, long expiresInMs) {
+            this.ticket = ticket;
+            this.expiresInMs = expiresInMs;
+        }
+
+        public String getTicket() { return ticket; }
+        public long getExpiresInMs() { return expiresInMs; }
+    }
+}
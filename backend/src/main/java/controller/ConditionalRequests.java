@@ -0,0 +1,41 @@
+package com.library.controller;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.context.request.ServletWebRequest;
+
+/**
+ * ETag handling shared by the controllers.
+ * Tags come from EntityTagService and must be checked before the service call, so a 304
+ * skips the query, the mapping and the serialization alike.
+ */
+final class ConditionalRequests {
+
+    private ConditionalRequests() {}
+
+    /**
+     * Tags the response and returns true, with the status already set to 304, when the
+     * client's If-None-Match holds the tag; the handler then returns null. A null tag (the
+     * resource does not exist) is never a match. The tag is the same for JSON, Smile and CBOR,
+     * so the response varies on Accept and caches keep one copy per format.
+     */
+    static boolean notModified(ServletWebRequest request, String tag) {
+        if (tag == null) {
+            return false;
+        }
+        // Let clients keep a private copy but revalidate it every time
+        // (Spring Security's default no-store is only written when this is absent)
+        HttpServletResponse response = request.getResponse();
+        if (response != null) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        }
+        return request.checkNotModified(tag);
+    }
+
+    // 412 when an If-Match update lost against another writer, 409 for a plain update
+    static HttpStatus conflictStatus(String ifMatch) {
+        return ifMatch != null ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT;
+    }
+}
@@ -1,11 +1,18 @@
 package com.library.controller;
 
+import com.library.dto.BatchItem;
+import com.library.dto.loan.BorrowerRank;
 import com.library.dto.loan.LoanRequest;
 import com.library.dto.loan.LoanResponse;
 import com.library.service.BookLoanService;
+import com.library.service.EntityTagService;
+import com.library.service.LoanArchiveService;
+import com.library.service.StatsWindow;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -13,6 +20,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.context.request.ServletWebRequest;
 import java.util.List;
 
 
@@ -27,6 +35,12 @@ public class LoanController {
     @Autowired
     private BookLoanService loanService;
 
+    @Autowired
+    private LoanArchiveService loanArchiveService;
+
+    @Autowired
+    private EntityTagService entityTagService;
+
     // Create new loan
     @PostMapping("/create")
     @PreAuthorize("hasAnyRole('MEMBER', 'LIBRARIAN', 'ADMIN')")
@@ -43,7 +57,14 @@ public class LoanController {
     // Get all loans (Librarian and Admin only)
     @GetMapping
     @PreAuthorize("hasAnyRole('LIBRARIAN', 'ADMIN')")
-    public ResponseEntity<List<LoanResponse>> getAllLoans() {
+    public ResponseEntity<?> getAllLoans(@RequestParam(defaultValue = "full") String shape,
+                                         ServletWebRequest webRequest) {
+        if (ConditionalRequests.notModified(webRequest, entityTagService.loanListTag())) {
+            return null;
+        }
+        if (isNormalized(shape)) {
+            return ResponseEntity.ok(loanService.getAllLoansNormalized());
+        }
         List<LoanResponse> loans = loanService.getAllLoans();
         return ResponseEntity.ok(loans);
     }
@@ -51,7 +72,14 @@ public class LoanController {
     // Get active loans (Librarian and Admin only)
     @GetMapping("/active")
     @PreAuthorize("hasAnyRole('LIBRARIAN', 'ADMIN')")
-    public ResponseEntity<List<LoanResponse>> getActiveLoans() {
+    public ResponseEntity<?> getActiveLoans(@RequestParam(defaultValue = "full") String shape,
+                                            ServletWebRequest webRequest) {
+        if (ConditionalRequests.notModified(webRequest, entityTagService.loanListTag())) {
+            return null;
+        }
+        if (isNormalized(shape)) {
+            return ResponseEntity.ok(loanService.getActiveLoansNormalized());
+        }
         List<LoanResponse> loans = loanService.getActiveLoans();
         return ResponseEntity.ok(loans);
     }
@@ -59,7 +87,14 @@ public class LoanController {
     // Get overdue loans (Librarian and Admin only)
     @GetMapping("/overdue")
     @PreAuthorize("hasAnyRole('LIBRARIAN', 'ADMIN')")
-    public ResponseEntity<List<LoanResponse>> getOverdueLoans() {
+    public ResponseEntity<?> getOverdueLoans(@RequestParam(defaultValue = "full") String shape,
+                                             ServletWebRequest webRequest) {
+        if (ConditionalRequests.notModified(webRequest, entityTagService.loanListTag())) {
+            return null;
+        }
+        if (isNormalized(shape)) {
+            return ResponseEntity.ok(loanService.getOverdueLoansNormalized());
+        }
         List<LoanResponse> loans = loanService.getOverdueLoans();
         return ResponseEntity.ok(loans);
     }
@@ -67,8 +102,16 @@ public class LoanController {
     // Get loans due soon (Librarian and Admin only)
     @GetMapping("/due-soon")
     @PreAuthorize("hasAnyRole('LIBRARIAN', 'ADMIN')")
-    public ResponseEntity<List<LoanResponse>> getLoansDueSoon(
-            @RequestParam(defaultValue = "3") int days) {
+    public ResponseEntity<?> getLoansDueSoon(
+            @RequestParam(defaultValue = "3") int days,
+            @RequestParam(defaultValue = "full") String shape,
+            ServletWebRequest webRequest) {
+        if (ConditionalRequests.notModified(webRequest, entityTagService.loanListTag())) {
+            return null;
+        }
+        if (isNormalized(shape)) {
+            return ResponseEntity.ok(loanService.getLoansDueSoonNormalized(days));
+        }
         List<LoanResponse> loans = loanService.getLoansDueSoon(days);
         return ResponseEntity.ok(loans);
     }
@@ -76,7 +119,10 @@ public class LoanController {
     // Get loan by ID
     @GetMapping("/{id}")
     @PreAuthorize("hasAnyRole('LIBRARIAN', 'ADMIN')")
-    public ResponseEntity<?> getLoanById(@PathVariable Long id) {
+    public ResponseEntity<?> getLoanById(@PathVariable Long id, ServletWebRequest webRequest) {
+        if (ConditionalRequests.notModified(webRequest, entityTagService.loanTag(id))) {
+            return null;
+        }
         try {
             LoanResponse loan = loanService.getLoanById(id);
             return ResponseEntity.ok(loan);
@@ -85,6 +131,19 @@ public class LoanController {
         }
     }
 
+    // Get many loans by id, archived ones included, in request order with not-found markers
+    @PostMapping("/batch")
+    @PreAuthorize("hasAnyRole('LIBRARIAN', 'ADMIN')")
+    public ResponseEntity<?> getLoansByIds(@RequestBody List<Long> ids) {
+        try {
+            List<BatchItem<LoanResponse>> loans = loanService.getLoansByIds(ids);
+            return ResponseEntity.ok(loans);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(new ErrorResponse("Invalid batch request", e.getMessage()));
+        }
+    }
+
     // Get current user's loans
     @GetMapping("/my-loans")
     @PreAuthorize("hasAnyRole('MEMBER', 'LIBRARIAN', 'ADMIN')")
@@ -100,7 +159,15 @@ public class LoanController {
     // Get loans by user ID
     @GetMapping("/user/{userId}")
     @PreAuthorize("hasAnyRole('LIBRARIAN', 'ADMIN')")
-    public ResponseEntity<List<LoanResponse>> getLoansByUser(@PathVariable Long userId) {
+    public ResponseEntity<?> getLoansByUser(@PathVariable Long userId,
+                                            @RequestParam(defaultValue = "full") String shape,
+                                            ServletWebRequest webRequest) {
+        if (ConditionalRequests.notModified(webRequest, entityTagService.loanListTag())) {
+            return null;
+        }
+        if (isNormalized(shape)) {
+            return ResponseEntity.ok(loanService.getLoansByUserNormalized(userId));
+        }
         List<LoanResponse> loans = loanService.getLoansByUser(userId);
         return ResponseEntity.ok(loans);
     }
@@ -108,7 +175,15 @@ public class LoanController {
     // Get active loans by user ID
     @GetMapping("/user/{userId}/active")
     @PreAuthorize("hasAnyRole('LIBRARIAN', 'ADMIN')")
-    public ResponseEntity<List<LoanResponse>> getActiveLoansByUser(@PathVariable Long userId) {
+    public ResponseEntity<?> getActiveLoansByUser(@PathVariable Long userId,
+                                                  @RequestParam(defaultValue = "full") String shape,
+                                                  ServletWebRequest webRequest) {
+        if (ConditionalRequests.notModified(webRequest, entityTagService.loanListTag())) {
+            return null;
+        }
+        if (isNormalized(shape)) {
+            return ResponseEntity.ok(loanService.getActiveLoansByUserNormalized(userId));
+        }
         List<LoanResponse> loans = loanService.getActiveLoansByUser(userId);
         return ResponseEntity.ok(loans);
     }
@@ -119,7 +194,11 @@ public class LoanController {
     public ResponseEntity<Page<LoanResponse>> getLoanHistoryByUser(
             @PathVariable Long userId,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            ServletWebRequest webRequest) {
+        if (ConditionalRequests.notModified(webRequest, entityTagService.loanListTag())) {
+            return null;
+        }
         Page<LoanResponse> loans = loanService.getLoanHistoryByUser(userId, page, size);
         return ResponseEntity.ok(loans);
     }
@@ -127,10 +206,15 @@ public class LoanController {
     // Return book
     @PutMapping("/{id}/return")
     @PreAuthorize("hasAnyRole('LIBRARIAN', 'ADMIN')")
-    public ResponseEntity<?> returnBook(@PathVariable Long id) {
+    public ResponseEntity<?> returnBook(@PathVariable Long id,
+                                        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
-            LoanResponse loan = loanService.returnBook(id);
+            Long expectedVersion = EntityTagService.expectedVersion(ifMatch, EntityTagService.Table.LOANS, id);
+            LoanResponse loan = loanService.returnBook(id, expectedVersion);
             return ResponseEntity.ok(loan);
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(ConditionalRequests.conflictStatus(ifMatch))
+                    .body(new ErrorResponse("Loan was modified", e.getMessage()));
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest()
                     .body(new ErrorResponse("Book return failed", e.getMessage()));
@@ -142,10 +226,15 @@ public class LoanController {
     @PreAuthorize("hasAnyRole('MEMBER', 'LIBRARIAN', 'ADMIN')")
     public ResponseEntity<?> renewLoan(
             @PathVariable Long id,
-            @RequestParam(defaultValue = "14") int additionalDays) {
+            @RequestParam(defaultValue = "14") int additionalDays,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
-            LoanResponse loan = loanService.renewLoan(id, additionalDays);
+            Long expectedVersion = EntityTagService.expectedVersion(ifMatch, EntityTagService.Table.LOANS, id);
+            LoanResponse loan = loanService.renewLoan(id, additionalDays, expectedVersion);
             return ResponseEntity.ok(loan);
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(ConditionalRequests.conflictStatus(ifMatch))
+                    .body(new ErrorResponse("Loan was modified", e.getMessage()));
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest()
                     .body(new ErrorResponse("Loan renewal failed", e.getMessage()));
@@ -155,10 +244,15 @@ public class LoanController {
     // Pay fine
     @PutMapping("/{id}/pay-fine")
     @PreAuthorize("hasAnyRole('MEMBER', 'LIBRARIAN', 'ADMIN')")
-    public ResponseEntity<?> payFine(@PathVariable Long id) {
+    public ResponseEntity<?> payFine(@PathVariable Long id,
+                                     @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
-            LoanResponse loan = loanService.payFine(id);
+            Long expectedVersion = EntityTagService.expectedVersion(ifMatch, EntityTagService.Table.LOANS, id);
+            LoanResponse loan = loanService.payFine(id, expectedVersion);
             return ResponseEntity.ok(loan);
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(ConditionalRequests.conflictStatus(ifMatch))
+                    .body(new ErrorResponse("Loan was modified", e.getMessage()));
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest()
                     .body(new ErrorResponse("Fine payment failed", e.getMessage()));
@@ -178,6 +272,19 @@ public class LoanController {
         }
     }
 
+    // Archive old returned loans (Admin only - normally run by the nightly job)
+    @PutMapping("/archive")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> archiveReturnedLoans() {
+        try {
+            int archived = loanArchiveService.archiveReturnedLoans();
+            return ResponseEntity.ok(new SuccessResponse(archived + " returned loans archived"));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest()
+                    .body(new ErrorResponse("Loan archival failed", e.getMessage()));
+        }
+    }
+
     // Get loan statistics (Librarian and Admin only)
     @GetMapping("/statistics")
     @PreAuthorize("hasAnyRole('LIBRARIAN', 'ADMIN')")
@@ -186,6 +293,25 @@ public class LoanController {
         return ResponseEntity.ok(stats);
     }
 
+    // Get most active borrowers (window: ALL_TIME, WEEK, MONTH or YEAR)
+    @GetMapping("/leaderboard")
+    @PreAuthorize("hasAnyRole('LIBRARIAN', 'ADMIN')")
+    public ResponseEntity<?> getBorrowerLeaderboard(
+            @RequestParam(defaultValue = "ALL_TIME") String window,
+            @RequestParam(defaultValue = "10") int limit) {
+        if (limit < 1) {
+            return ResponseEntity.badRequest()
+                    .body(new ErrorResponse("Invalid limit", "Limit must be at least 1"));
+        }
+        try {
+            List<BorrowerRank> leaderboard = loanService.getTopBorrowers(StatsWindow.fromParameter(window), limit);
+            return ResponseEntity.ok(leaderboard);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(new ErrorResponse("Invalid window", e.getMessage()));
+        }
+    }
+
     // Bulk return books (Admin only)
     @PutMapping("/bulk-return")
     @PreAuthorize("hasRole('ADMIN')")
@@ -214,6 +340,11 @@ public class LoanController {
         }
     }
 
+    // List shape: "full" (default) repeats user and book details per loan, "normalized" writes them once
+    private boolean isNormalized(String shape) {
+        return "normalized".equalsIgnoreCase(shape);
+    }
+
     // Inner classes for responses
     public static class ErrorResponse {
         private String error;
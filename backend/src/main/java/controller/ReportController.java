@@ -0,0 +1,94 @@
+package com.library.controller;
+
+import com.library.dto.report.ReportStatus;
+import com.library.service.AnnualReportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/reports")
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class ReportController {
+
+    @Autowired
+    private AnnualReportService annualReportService;
+
+    // Start an annual report (Admin only)
+    @PostMapping("/annual")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> startAnnualReport(@RequestParam int year) {
+        try {
+            ReportStatus report = annualReportService.startAnnualReport(year);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(report);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(new ErrorResponse("Report not started", e.getMessage()));
+        }
+    }
+
+    // Get all reports with their progress (Admin only)
+    @GetMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<ReportStatus>> getReports() {
+        return ResponseEntity.ok(annualReportService.getReports());
+    }
+
+    // Get report progress (Admin only)
+    @GetMapping("/{id}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ReportStatus> getReport(@PathVariable String id) {
+        return annualReportService.getStatus(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    // Cancel a running report (Admin only)
+    @DeleteMapping("/{id}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ReportStatus> cancelReport(@PathVariable String id) {
+        return annualReportService.cancel(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    // Download a completed report (Admin only)
+    @GetMapping("/{id}/file")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<FileSystemResource> downloadReport(@PathVariable String id) {
+        Optional<Path> file = annualReportService.getReportFile(id);
+        if (file.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + file.get().getFileName() + "\"")
+                .body(new FileSystemResource(file.get()));
+    }
+
+    // Inner classes for responses
+    public static class ErrorResponse {
+        private String error;
+        private String message;
+        private long timestamp;
+
+        public ErrorResponse(String error, String message) {
+            this.error = error;
+            this.message = message;
+            this.timestamp = System.currentTimeMillis();
+        }
+
+        public String getError() { return error; }
+        public String getMessage() { return message; }
+        public long getTimestamp() { return timestamp; }
+    }
+}
@@ -1,16 +1,26 @@
 package com.library.controller;
 
+import com.library.dto.BatchItem;
+import com.library.dto.user.UserCirculationSummary;
+import com.library.dto.user.UserLookupResult;
+import com.library.dto.user.UserOverview;
 import com.library.dto.user.UserRequest;
 import com.library.dto.user.UserResponse;
 import com.library.entity.User;
+import com.library.service.EntityTagService;
+import com.library.service.UserCirculationSummaryService;
+import com.library.service.UserOverviewService;
 import com.library.service.UserService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import java.util.List;
 
@@ -22,10 +32,22 @@ public class UserController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private UserCirculationSummaryService userCirculationSummaryService;
+
+    @Autowired
+    private EntityTagService entityTagService;
+
+    @Autowired
+    private UserOverviewService userOverviewService;
+
     // Get all users (Librarian and Admin only)
     @GetMapping
     @PreAuthorize("hasAnyRole('LIBRARIAN', 'ADMIN')")
-    public ResponseEntity<List<UserResponse>> getAllUsers() {
+    public ResponseEntity<List<UserResponse>> getAllUsers(ServletWebRequest webRequest) {
+        if (ConditionalRequests.notModified(webRequest, userListTag())) {
+            return null;
+        }
         List<UserResponse> users = userService.getAllUsers();
         return ResponseEntity.ok(users);
     }
@@ -33,7 +55,10 @@ public class UserController {
     // Get user by ID (Librarian and Admin only)
     @GetMapping("/{id}")
     @PreAuthorize("hasAnyRole('LIBRARIAN', 'ADMIN')")
-    public ResponseEntity<?> getUserById(@PathVariable Long id) {
+    public ResponseEntity<?> getUserById(@PathVariable Long id, ServletWebRequest webRequest) {
+        if (ConditionalRequests.notModified(webRequest, entityTagService.userTag(id))) {
+            return null;
+        }
         try {
             UserResponse user = userService.getUserById(id);
             return ResponseEntity.ok(user);
@@ -42,6 +67,51 @@ public class UserController {
         }
     }
 
+    // Get many users by id, in request order with not-found markers (Librarian and Admin only)
+    @PostMapping("/batch")
+    @PreAuthorize("hasAnyRole('LIBRARIAN', 'ADMIN')")
+    public ResponseEntity<?> getUsersByIds(@RequestBody List<Long> ids) {
+        try {
+            List<BatchItem<UserResponse>> users = userService.getUsersByIds(ids);
+            return ResponseEntity.ok(users);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(new ErrorResponse("Invalid batch request", e.getMessage()));
+        }
+    }
+
+    // Get the member detail view in one call: user, summary, active and overdue loans and a
+    // history page, loaded in parallel (Librarian and Admin only). Sections that miss the
+    // deadline are null and listed in "unavailable".
+    @GetMapping("/{id}/overview")
+    @PreAuthorize("hasAnyRole('LIBRARIAN', 'ADMIN')")
+    public ResponseEntity<?> getUserOverview(@PathVariable Long id,
+                                             @RequestParam(defaultValue = "0") int page,
+                                             @RequestParam(defaultValue = "10") int size) {
+        if (entityTagService.userTag(id) == null) {
+            return ResponseEntity.notFound().build();
+        }
+        UserOverview overview = userOverviewService.getOverview(id, page, size);
+        return ResponseEntity.ok(overview);
+    }
+
+    // Get user's circulation summary (Librarian and Admin only)
+    @GetMapping("/{id}/summary")
+    @PreAuthorize("hasAnyRole('LIBRARIAN', 'ADMIN')")
+    public ResponseEntity<UserCirculationSummary> getUserSummary(@PathVariable Long id) {
+        return ResponseEntity.ok(userCirculationSummaryService.getSummary(id));
+    }
+
+    // Get circulation summaries for the given users, or for every user with open loans or fines
+    @GetMapping("/summaries")
+    @PreAuthorize("hasAnyRole('LIBRARIAN', 'ADMIN')")
+    public ResponseEntity<List<UserCirculationSummary>> getUserSummaries(@RequestParam(required = false) List<Long> ids) {
+        List<UserCirculationSummary> summaries = ids != null
+                ? userCirculationSummaryService.getSummaries(ids)
+                : userCirculationSummaryService.getAllSummaries();
+        return ResponseEntity.ok(summaries);
+    }
+
     // Get current user's profile
     @GetMapping("/profile")
     @PreAuthorize("isAuthenticated()")
@@ -77,10 +147,15 @@ public class UserController {
     // Update user (Admin only)
     @PutMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<?> updateUser(@PathVariable Long id, @Valid @RequestBody UserRequest userRequest) {
+    public ResponseEntity<?> updateUser(@PathVariable Long id, @Valid @RequestBody UserRequest userRequest,
+                                        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
-            UserResponse user = userService.updateUser(id, userRequest);
+            Long expectedVersion = EntityTagService.expectedVersion(ifMatch, EntityTagService.Table.USERS, id);
+            UserResponse user = userService.updateUser(id, userRequest, expectedVersion);
             return ResponseEntity.ok(user);
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(ConditionalRequests.conflictStatus(ifMatch))
+                    .body(new ErrorResponse("User was modified", e.getMessage()));
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest()
                     .body(new ErrorResponse("User update failed", e.getMessage()));
@@ -116,9 +191,12 @@ public class UserController {
     // Get users by role (Admin only)
     @GetMapping("/role/{role}")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<?> getUsersByRole(@PathVariable String role) {
+    public ResponseEntity<?> getUsersByRole(@PathVariable String role, ServletWebRequest webRequest) {
         try {
             User.Role userRole = User.Role.valueOf(role.toUpperCase());
+            if (ConditionalRequests.notModified(webRequest, userListTag())) {
+                return null;
+            }
             List<UserResponse> users = userService.getUsersByRole(userRole);
             return ResponseEntity.ok(users);
         } catch (IllegalArgumentException e) {
@@ -130,7 +208,10 @@ public class UserController {
     // Get active users only (Librarian and Admin only)
     @GetMapping("/active")
     @PreAuthorize("hasAnyRole('LIBRARIAN', 'ADMIN')")
-    public ResponseEntity<List<UserResponse>> getActiveUsers() {
+    public ResponseEntity<List<UserResponse>> getActiveUsers(ServletWebRequest webRequest) {
+        if (ConditionalRequests.notModified(webRequest, userListTag())) {
+            return null;
+        }
         List<UserResponse> users = userService.getActiveUsers();
         return ResponseEntity.ok(users);
     }
@@ -138,9 +219,30 @@ public class UserController {
     // Search users (Admin only)
     @GetMapping("/search")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<List<UserResponse>> searchUsers(@RequestParam String query) {
-        List<UserResponse> users = userService.searchUsers(query);
-        return ResponseEntity.ok(users);
+    public ResponseEntity<?> searchUsers(@RequestParam String query, ServletWebRequest webRequest) {
+        if (ConditionalRequests.notModified(webRequest, userListTag())) {
+            return null;
+        }
+        try {
+            List<UserResponse> users = userService.searchUsers(query);
+            return ResponseEntity.ok(users);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse("Invalid query", e.getMessage()));
+        }
+    }
+
+    // Ranked member lookup by name, username or email (Librarian and Admin only)
+    @GetMapping("/lookup")
+    @PreAuthorize("hasAnyRole('LIBRARIAN', 'ADMIN')")
+    public ResponseEntity<?> lookupUsers(@RequestParam String query,
+                                         @RequestParam(defaultValue = "0") int page,
+                                         @RequestParam(defaultValue = "20") int size) {
+        try {
+            UserLookupResult result = userService.lookupUsers(query, page, size);
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse("Invalid query", e.getMessage()));
+        }
     }
 
     // Change user role (Admin only)
@@ -163,7 +265,10 @@ public class UserController {
     // Get user statistics (Admin only)
     @GetMapping("/statistics")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<UserService.UserStatistics> getUserStatistics() {
+    public ResponseEntity<UserService.UserStatistics> getUserStatistics(ServletWebRequest webRequest) {
+        if (ConditionalRequests.notModified(webRequest, userListTag())) {
+            return null;
+        }
         UserService.UserStatistics stats = userService.getUserStatistics();
         return ResponseEntity.ok(stats);
     }
@@ -193,6 +298,10 @@ public class UserController {
         }
     }
 
+    private String userListTag() {
+        return entityTagService.listTag(EntityTagService.Table.USERS);
+    }
+
     // Inner classes for requests and responses
     public static class ErrorResponse {
         private String error;
@@ -11,7 +11,10 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "books")
+@Table(name = "books", indexes = {
+        @Index(name = "idx_books_category_id", columnList = "category_id"),
+        @Index(name = "idx_books_isbn_key", columnList = "isbn_key")
+})
 public class Book {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -32,6 +35,10 @@ public class Book {
     @Column(unique = true, nullable = false)
     private String isbn;
 
+    // The ISBN as a 13-digit number (see Isbn.toKey); null for legacy ISBNs that do not validate
+    @Column(name = "isbn_key")
+    private Long isbnKey;
+
     @Size(max = 100, message = "Publisher must not exceed 100 characters")
     private String publisher;
 
@@ -40,6 +47,10 @@ public class Book {
     @Size(max = 50, message = "Category must not exceed 50 characters")
     private String category;
 
+    // Key into the categories table for the category above; kept in step by BookService
+    @Column(name = "category_id")
+    private Integer categoryId;
+
     @NotNull(message = "Total copies is required")
     @Min(value = 1, message = "Total copies must be at least 1")
     @Column(nullable = false)
@@ -50,12 +61,19 @@ public class Book {
     @Column(nullable = false)
     private Integer availableCopies;
 
+    // Loaded on first access (bytecode enhancement), so book lists never read the TEXT column
+    @Basic(fetch = FetchType.LAZY)
     @Column(columnDefinition = "TEXT")
     private String description;
 
     @Column(nullable = false)
     private LocalDateTime createdDate = LocalDateTime.now();
 
+    // Incremented by Hibernate on every update; backs ETags and If-Match checks
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private long version;
+
     @OneToMany(mappedBy = "book", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<BookLoan> loans = new ArrayList<>();
 
@@ -108,6 +126,14 @@ public class Book {
         this.isbn = isbn;
     }
 
+    public Long getIsbnKey() {
+        return isbnKey;
+    }
+
+    public void setIsbnKey(Long isbnKey) {
+        this.isbnKey = isbnKey;
+    }
+
     public String getPublisher() {
         return publisher;
     }
@@ -132,6 +158,14 @@ public class Book {
         this.category = category;
     }
 
+    public Integer getCategoryId() {
+        return categoryId;
+    }
+
+    public void setCategoryId(Integer categoryId) {
+        this.categoryId = categoryId;
+    }
+
     public Integer getTotalCopies() {
         return totalCopies;
     }
@@ -164,6 +198,10 @@ public class Book {
         this.createdDate = createdDate;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
     public List<BookLoan> getLoans() {
         return loans;
     }
@@ -42,6 +42,11 @@ public class BookLoan {
 
     private String notes;
 
+    // Incremented by Hibernate on every update; backs ETags and If-Match checks
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private long version;
+
     // Constructors
     public BookLoan() {}
 
@@ -125,6 +130,10 @@ public class BookLoan {
         this.notes = notes;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
     // Helper methods
     public boolean isOverdue() {
         return status == LoanStatus.ACTIVE && LocalDateTime.now().isAfter(dueDate);
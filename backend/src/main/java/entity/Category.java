@@ -0,0 +1,51 @@
+package com.library.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * Category dimension. Books point at it through books.category_id, so grouping and
+ * filtering by category compares small integers instead of strings. Names are unique
+ * ignoring case; the first spelling seen is the one kept.
+ */
+@Entity
+@Table(name = "categories")
+public class Category {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Column(nullable = false, unique = true, length = 50)
+    private String name;
+
+    // Constructors
+    public Category() {}
+
+    public Category(String name) {
+        this.name = name;
+    }
+
+    // Getters and Setters
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String toString() {
+        return "Category{" +
+                "id=" + id +
+                ", name='" + name + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,208 @@
+package com.library.entity;
+
+import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Cold-tier copy of a settled {@link BookLoan}. Rows are moved here by the archival
+ * job once a loan has been returned for long enough, so the hot book_loans table only
+ * holds recent circulation. User and book details are snapshotted at archive time so
+ * history can be rendered without joining back to live rows.
+ */
+@Entity
+@Table(name = "loan_history", indexes = {
+        @Index(name = "idx_loan_history_user_loan_date", columnList = "user_id, loan_date"),
+        @Index(name = "idx_loan_history_book", columnList = "book_id")
+})
+public class LoanHistory implements Persistable<Long> {
+    // Same id as the original loan, so archived loans keep their identity
+    @Id
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private String username;
+
+    private String userFullName;
+
+    @Column(name = "book_id", nullable = false)
+    private Long bookId;
+
+    private String bookTitle;
+
+    private String bookAuthor;
+
+    private String bookIsbn;
+
+    @Column(name = "loan_date", nullable = false)
+    private LocalDateTime loanDate;
+
+    @Column(nullable = false)
+    private LocalDateTime dueDate;
+
+    private LocalDateTime returnDate;
+
+    @Column(precision = 10, scale = 2)
+    private BigDecimal fine = BigDecimal.ZERO;
+
+    private String notes;
+
+    @Column(nullable = false)
+    private LocalDateTime archivedDate = LocalDateTime.now();
+
+    // Ids are copied from book_loans, so tell Spring Data the row is new instead of merging
+    @Transient
+    private boolean isNew = true;
+
+    // Constructors
+    public LoanHistory() {}
+
+    // Static factory method from a live loan
+    public static LoanHistory fromLoan(BookLoan loan) {
+        LoanHistory history = new LoanHistory();
+        history.setId(loan.getId());
+        history.setUserId(loan.getUser().getId());
+        history.setUsername(loan.getUser().getUsername());
+        history.setUserFullName(loan.getUser().getFirstName() + " " + loan.getUser().getLastName());
+        history.setBookId(loan.getBook().getId());
+        history.setBookTitle(loan.getBook().getTitle());
+        history.setBookAuthor(loan.getBook().getAuthor());
+        history.setBookIsbn(loan.getBook().getIsbn());
+        history.setLoanDate(loan.getLoanDate());
+        history.setDueDate(loan.getDueDate());
+        history.setReturnDate(loan.getReturnDate());
+        history.setFine(loan.getFine());
+        history.setNotes(loan.getNotes());
+        return history;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    // Getters and Setters
+    @Override
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public String getUserFullName() {
+        return userFullName;
+    }
+
+    public void setUserFullName(String userFullName) {
+        this.userFullName = userFullName;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public void setBookId(Long bookId) {
+        this.bookId = bookId;
+    }
+
+    public String getBookTitle() {
+        return bookTitle;
+    }
+
+    public void setBookTitle(String bookTitle) {
+        this.bookTitle = bookTitle;
+    }
+
+    public String getBookAuthor() {
+        return bookAuthor;
+    }
+
+    public void setBookAuthor(String bookAuthor) {
+        this.bookAuthor = bookAuthor;
+    }
+
+    public String getBookIsbn() {
+        return bookIsbn;
+    }
+
+    public void setBookIsbn(String bookIsbn) {
+        this.bookIsbn = bookIsbn;
+    }
+
+    public LocalDateTime getLoanDate() {
+        return loanDate;
+    }
+
+    public void setLoanDate(LocalDateTime loanDate) {
+        this.loanDate = loanDate;
+    }
+
+    public LocalDateTime getDueDate() {
+        return dueDate;
+    }
+
+    public void setDueDate(LocalDateTime dueDate) {
+        this.dueDate = dueDate;
+    }
+
+    public LocalDateTime getReturnDate() {
+        return returnDate;
+    }
+
+    public void setReturnDate(LocalDateTime returnDate) {
+        this.returnDate = returnDate;
+    }
+
+    public BigDecimal getFine() {
+        return fine;
+    }
+
+    public void setFine(BigDecimal fine) {
+        this.fine = fine;
+    }
+
+    public String getNotes() {
+        return notes;
+    }
+
+    public void setNotes(String notes) {
+        this.notes = notes;
+    }
+
+    public LocalDateTime getArchivedDate() {
+        return archivedDate;
+    }
+
+    public void setArchivedDate(LocalDateTime archivedDate) {
+        this.archivedDate = archivedDate;
+    }
+}
@@ -52,6 +52,11 @@ public class User implements UserDetails {
     @Column(nullable = false)
     private Boolean isActive = true;
 
+    // Incremented by Hibernate on every update; backs ETags and If-Match checks
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private long version;
+
     // Constructors
     public User() {}
 
@@ -163,6 +168,10 @@ public class User implements UserDetails {
         this.isActive = isActive;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
     public enum Role {
         ADMIN,
         LIBRARIAN,
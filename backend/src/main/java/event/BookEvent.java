@@ -0,0 +1,54 @@
+package com.library.event;
+
+import com.library.dto.book.BookResponse;
+
+/**
+ * Published by BookService whenever a book or its stock changes.
+ * Carries a snapshot of the book as written (without the description, null for
+ * deletions), the row version it was written with and, for loans and returns, the change
+ * in available copies. Listeners that can see events out of commit order use the version
+ * to ignore stale snapshots.
+ */
+public class BookEvent {
+
+    private final Type type;
+    private final Long bookId;
+    private final BookResponse book;
+    private final long version;
+    private final int availableCopiesDelta;
+
+    // Deletions are newer than any write to the book (ids are never reused)
+    public static final long DELETED_VERSION = Long.MAX_VALUE;
+
+    public BookEvent(Type type, Long bookId, BookResponse book, long version, int availableCopiesDelta) {
+        this.type = type;
+        this.bookId = bookId;
+        this.book = book;
+        this.version = version;
+        this.availableCopiesDelta = availableCopiesDelta;
+    }
+
+    // Getters
+    public Type getType() { return type; }
+    public Long getBookId() { return bookId; }
+    public BookResponse getBook() { return book; }
+    public long getVersion() { return version; }
+    public int getAvailableCopiesDelta() { return availableCopiesDelta; }
+
+    @Override
+    public String toString() {
+        return "BookEvent{" +
+                "type=" + type +
+                ", bookId=" + bookId +
+                ", version=" + version +
+                ", availableCopiesDelta=" + availableCopiesDelta +
+                '}';
+    }
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED,
+        AVAILABILITY_CHANGED
+    }
+}
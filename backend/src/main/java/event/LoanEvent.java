@@ -0,0 +1,81 @@
+package com.library.event;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published by BookLoanService whenever a loan changes state.
+ * Listeners that maintain in-memory read models consume it after the
+ * surrounding transaction commits, so rolled back changes are never seen.
+ */
+public class LoanEvent {
+
+    private final Type type;
+    private final Long loanId;
+    private final Long userId;
+    private final Long bookId;
+    private final LocalDateTime occurredAt;
+    private final LocalDateTime dueDate;
+    private final long fineDeltaCents;
+
+    public LoanEvent(Type type, Long loanId, Long userId, Long bookId, LocalDateTime occurredAt,
+                     LocalDateTime dueDate, long fineDeltaCents) {
+        this.type = type;
+        this.loanId = loanId;
+        this.userId = userId;
+        this.bookId = bookId;
+        this.occurredAt = occurredAt;
+        this.dueDate = dueDate;
+        this.fineDeltaCents = fineDeltaCents;
+    }
+
+    // Getters
+    public Type getType() { return type; }
+    public Long getLoanId() { return loanId; }
+    public Long getUserId() { return userId; }
+    public Long getBookId() { return bookId; }
+    public LocalDateTime getOccurredAt() { return occurredAt; }
+    public LocalDateTime getDueDate() { return dueDate; }
+    // Change of the loan's fine caused by this event, in cents
+    public long getFineDeltaCents() { return fineDeltaCents; }
+
+    @Override
+    public String toString() {
+        return "LoanEvent{" +
+                "type=" + type +
+                ", loanId=" + loanId +
+                ", userId=" + userId +
+                ", bookId=" + bookId +
+                ", occurredAt=" + occurredAt +
+                ", fineDeltaCents=" + fineDeltaCents +
+                '}';
+    }
+
+    // Codes are persisted in the circulation journal: never change or reuse one
+    public enum Type {
+        CREATED(0),
+        RETURNED(1),
+        RENEWED(2),
+        FINE_PAID(3),
+        OVERDUE(4);
+
+        private final int code;
+
+        Type(int code) {
+            this.code = code;
+        }
+
+        public int getCode() {
+            return code;
+        }
+
+        // Type with the given code, or null
+        public static Type fromCode(int code) {
+            for (Type type : values()) {
+                if (type.code == code) {
+                    return type;
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.library.event;
+
+import com.library.dto.user.UserResponse;
+
+/**
+ * Published by UserService whenever a user is created, changed or deleted.
+ * Carries a snapshot of the user as written (null for deletions).
+ */
+public class UserEvent {
+
+    private final Type type;
+    private final Long userId;
+    private final UserResponse user;
+
+    public UserEvent(Type type, Long userId, UserResponse user) {
+        this.type = type;
+        this.userId = userId;
+        this.user = user;
+    }
+
+    // Getters
+    public Type getType() { return type; }
+    public Long getUserId() { return userId; }
+    public UserResponse getUser() { return user; }
+
+    @Override
+    public String toString() {
+        return "UserEvent{" +
+                "type=" + type +
+                ", userId=" + userId +
+                '}';
+    }
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+}
@@ -1,18 +1,27 @@
 package com.library.repository;
 
+import com.library.dto.loan.LoanActivity;
+import com.library.dto.loan.LoanFact;
+import com.library.dto.loan.LoanSnapshot;
 import com.library.entity.BookLoan;
 import com.library.entity.User;
 import com.library.entity.Book;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface BookLoanRepository extends JpaRepository<BookLoan, Long> {
@@ -38,11 +47,25 @@ public interface BookLoanRepository extends JpaRepository<BookLoan, Long> {
     // Find if user has an active loan for a specific book
     Optional<BookLoan> findByUserAndBookAndStatus(User user, Book book, BookLoan.LoanStatus status);
 
+    // Whether a user has the book out in one of the given statuses
+    boolean existsByUserIdAndBookIdAndStatusIn(Long userId, Long bookId, Collection<BookLoan.LoanStatus> statuses);
+
     // Find overdue loans
     @Query("SELECT bl FROM BookLoan bl WHERE " +
             "bl.status = 'ACTIVE' AND bl.dueDate < :currentDate")
     List<BookLoan> findOverdueLoans(@Param("currentDate") LocalDateTime currentDate);
 
+    // Find a user's overdue loans, whether or not the overdue job has flagged them yet
+    @Query("SELECT bl FROM BookLoan bl WHERE bl.user.id = :userId AND " +
+            "(bl.status = 'OVERDUE' OR (bl.status = 'ACTIVE' AND bl.dueDate < :currentDate))")
+    List<BookLoan> findOverdueLoansByUserId(@Param("userId") Long userId,
+                                            @Param("currentDate") LocalDateTime currentDate);
+
+    // Find overdue loans together with their users (for fine evaluation)
+    @Query("SELECT bl FROM BookLoan bl JOIN FETCH bl.user WHERE " +
+            "bl.status = 'ACTIVE' AND bl.dueDate < :currentDate")
+    List<BookLoan> findOverdueLoansWithUser(@Param("currentDate") LocalDateTime currentDate);
+
     // Find loans due soon (within specified days)
     @Query("SELECT bl FROM BookLoan bl WHERE " +
             "bl.status = 'ACTIVE' AND bl.dueDate BETWEEN :currentDate AND :dueDate")
@@ -61,11 +84,20 @@ public interface BookLoanRepository extends JpaRepository<BookLoan, Long> {
     // Find user's loan history by user ID with pagination
     Page<BookLoan> findByUserIdOrderByLoanDateDesc(Long userId, Pageable pageable);
 
-    // Find all loans within a date range
-    List<BookLoan> findByLoanDateBetween(LocalDateTime startDate, LocalDateTime endDate);
+    // Count all loans of a user by user ID
+    long countByUserId(Long userId);
+
+    // (id, number of the user's archived loans that are newer) for each live loan of a user, newest first
+    @Query("SELECT bl.id, (SELECT COUNT(lh) FROM LoanHistory lh WHERE lh.userId = :userId " +
+            "AND lh.loanDate > bl.loanDate) FROM BookLoan bl WHERE bl.user.id = :userId " +
+            "ORDER BY bl.loanDate DESC, bl.id DESC")
+    List<Object[]> findHistoryPositionsByUserId(@Param("userId") Long userId);
 
-    // Find loans by book and date range (for book popularity analysis)
-    List<BookLoan> findByBookAndLoanDateBetween(Book book, LocalDateTime startDate, LocalDateTime endDate);
+    // Find settled loans returned before the cutoff (candidates for archival)
+    @Query("SELECT bl FROM BookLoan bl JOIN FETCH bl.user JOIN FETCH bl.book WHERE " +
+            "bl.status = 'RETURNED' AND bl.returnDate < :cutoff AND " +
+            "(bl.fine IS NULL OR bl.fine = 0) ORDER BY bl.id")
+    List<BookLoan> findArchivableLoans(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
 
     // Get loan statistics - total loans
     @Query("SELECT COUNT(bl) FROM BookLoan bl")
@@ -79,16 +111,55 @@ public interface BookLoanRepository extends JpaRepository<BookLoan, Long> {
     @Query("SELECT COUNT(bl) FROM BookLoan bl WHERE bl.status = 'ACTIVE' AND bl.dueDate < :currentDate")
     long getOverdueLoansCount(@Param("currentDate") LocalDateTime currentDate);
 
-    // Find most active borrowers
-    @Query("SELECT bl.user, COUNT(bl) as loanCount FROM BookLoan bl " +
-            "GROUP BY bl.user ORDER BY COUNT(bl) DESC")
-    List<Object[]> findMostActiveBorrowers(Pageable pageable);
-
-    // Find loans with fines
-    List<BookLoan> findByFineGreaterThan(java.math.BigDecimal amount);
-
-    // Check if user can borrow more books (business rule: max 5 active loans)
-    @Query("SELECT CASE WHEN COUNT(bl) < 5 THEN true ELSE false END " +
-            "FROM BookLoan bl WHERE bl.user = :user AND bl.status = 'ACTIVE'")
-    boolean canUserBorrowMoreBooks(@Param("user") User user);
-}
\ No newline at end of file
+    // Stream minimal loan data for rebuilding in-memory read models
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new com.library.dto.loan.LoanActivity(bl.id, bl.user.id, bl.book.id, bl.loanDate) " +
+            "FROM BookLoan bl")
+    Stream<LoanActivity> streamLoanActivity();
+
+    // Stream loans that are still out or still owe a fine (for per-user summaries)
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new com.library.dto.loan.LoanSnapshot(bl.id, bl.user.id, bl.book.id, bl.dueDate, bl.status, bl.fine) " +
+            "FROM BookLoan bl WHERE bl.status <> 'RETURNED' OR bl.fine > 0")
+    Stream<LoanSnapshot> streamOpenOrFinedLoans();
+
+    // Stream the analytical columns of every loan (for the columnar analytics store)
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new com.library.dto.loan.LoanFact(bl.id, bl.user.id, bl.book.id, bl.loanDate, bl.dueDate, " +
+            "bl.returnDate, bl.status, bl.fine) FROM BookLoan bl")
+    Stream<LoanFact> streamLoanFacts();
+
+    // Loans in an id range (for partitioned backfills and reports)
+    @Query("SELECT new com.library.dto.loan.LoanFact(bl.id, bl.user.id, bl.book.id, bl.loanDate, bl.dueDate, " +
+            "bl.returnDate, bl.status, bl.fine) FROM BookLoan bl WHERE bl.id BETWEEN :fromId AND :toId")
+    List<LoanFact> findLoanFactsByIdRange(@Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    // Loans in an id range taken out in [from, to) (for partitioned reports)
+    @Query("SELECT new com.library.dto.loan.LoanFact(bl.id, bl.user.id, bl.book.id, bl.loanDate, bl.dueDate, " +
+            "bl.returnDate, bl.status, bl.fine) FROM BookLoan bl WHERE bl.id BETWEEN :fromId AND :toId " +
+            "AND bl.loanDate >= :from AND bl.loanDate < :to")
+    List<LoanFact> findLoanFactsByIdRangeAndLoanDate(@Param("fromId") Long fromId, @Param("toId") Long toId,
+                                                    @Param("from") LocalDateTime from,
+                                                    @Param("to") LocalDateTime to);
+
+    // Get the id range of loans
+    @Query("SELECT MIN(bl.id) FROM BookLoan bl")
+    Long getMinLoanId();
+
+    @Query("SELECT MAX(bl.id) FROM BookLoan bl")
+    Long getMaxLoanId();
+
+    // Sum of all outstanding fines
+    @Query("SELECT COALESCE(SUM(bl.fine), 0) FROM BookLoan bl WHERE bl.fine > 0")
+    java.math.BigDecimal getTotalOutstandingFines();
+
+    // Everything a loan's ETag depends on: its version, the versions of the user and book
+    // it embeds, and the status and due date that decide whether it shows as overdue
+    @Query("SELECT bl.version, bl.user.version, bl.book.version, bl.status, bl.dueDate " +
+            "FROM BookLoan bl WHERE bl.id = :id")
+    List<Object[]> findTagStateById(@Param("id") Long id);
+
+    // Loans with the given ids, users and books fetched in the same query
+    @Query("SELECT bl FROM BookLoan bl JOIN FETCH bl.user JOIN FETCH bl.book WHERE bl.id IN :ids")
+    List<BookLoan> findWithUserAndBookByIdIn(@Param("ids") Collection<Long> ids);
+}
@@ -4,6 +4,7 @@ import com.library.entity.Book;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -12,7 +13,7 @@ import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface BookRepository extends JpaRepository<Book, Long> {
+public interface BookRepository extends JpaRepository<Book, Long>, BookRepositoryCustom {
 
     // Find book by ISBN
     Optional<Book> findByIsbn(String isbn);
@@ -20,6 +21,18 @@ public interface BookRepository extends JpaRepository<Book, Long> {
     // Check if ISBN exists
     boolean existsByIsbn(String isbn);
 
+    // Find book by numeric ISBN key (legacy duplicates resolve to the oldest book)
+    Optional<Book> findFirstByIsbnKeyOrderByIdAsc(Long isbnKey);
+
+    // Get (id, isbn, isbn key) of every book, in id order
+    @Query("SELECT b.id, b.isbn, b.isbnKey FROM Book b ORDER BY b.id")
+    List<Object[]> findAllIsbns();
+
+    // Set the numeric ISBN key of a book saved before the column existed
+    @Modifying
+    @Query("UPDATE Book b SET b.isbnKey = :isbnKey WHERE b.id = :id")
+    int setIsbnKey(@Param("id") Long id, @Param("isbnKey") Long isbnKey);
+
     // Find available books
     List<Book> findByAvailableCopiesGreaterThan(Integer copies);
 
@@ -56,19 +69,48 @@ public interface BookRepository extends JpaRepository<Book, Long> {
     @Query("SELECT DISTINCT b.category FROM Book b WHERE b.category IS NOT NULL ORDER BY b.category")
     List<String> findDistinctCategories();
 
+    // Get (id, category id) of every book
+    @Query("SELECT b.id, b.categoryId FROM Book b")
+    List<Object[]> findAllCategoryIds();
+
+    // Find books by category id
+    List<Book> findByCategoryId(Integer categoryId);
+
+    // Category names of books not yet linked to the categories table
+    @Query("SELECT DISTINCT TRIM(b.category) FROM Book b WHERE b.categoryId IS NULL AND " +
+            "b.category IS NOT NULL AND TRIM(b.category) <> ''")
+    List<String> findUnlinkedCategoryNames();
+
+    // Link books with the given category name to its row in the categories table
+    @Modifying
+    @Query("UPDATE Book b SET b.categoryId = :categoryId WHERE b.categoryId IS NULL AND TRIM(b.category) = :name")
+    int linkCategory(@Param("name") String name, @Param("categoryId") Integer categoryId);
+
+    // Get (id, category) of every book
+    @Query("SELECT b.id, b.category FROM Book b")
+    List<Object[]> findAllCategories();
+
+    // Get (id, title, author, category) of books in an id range (for partitioned reports)
+    @Query("SELECT b.id, b.title, b.author, b.category FROM Book b WHERE b.id BETWEEN :fromId AND :toId")
+    List<Object[]> findCatalogRowsByIdRange(@Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    // Get the id range of books
+    @Query("SELECT MIN(b.id) FROM Book b")
+    Long getMinBookId();
+
+    @Query("SELECT MAX(b.id) FROM Book b")
+    Long getMaxBookId();
+
     // Find books published in a specific year range
     List<Book> findByPublishedYearBetween(Integer startYear, Integer endYear);
 
-    // Find most popular books (books with most loans)
-    @Query("SELECT b FROM Book b " +
-            "LEFT JOIN b.loans bl " +
-            "GROUP BY b " +
-            "ORDER BY COUNT(bl) DESC")
-    List<Book> findMostPopularBooks(Pageable pageable);
-
     // Count books by category
     long countByCategory(String category);
 
     // Find books that are out of stock (no available copies)
     List<Book> findByAvailableCopiesEquals(Integer copies);
-}
\ No newline at end of file
+
+    // Current version of a book, for ETags, without loading the entity
+    @Query("SELECT b.version FROM Book b WHERE b.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+}
@@ -0,0 +1,19 @@
+package com.library.repository;
+
+import com.library.entity.Book;
+import jakarta.persistence.Tuple;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface BookRepositoryCustom {
+
+    // Select only the given Book attributes of the matching books (tuple aliases are the attribute names)
+    List<Tuple> findAttributes(Collection<String> attributes, Specification<Book> filter);
+
+    // Same, one page at a time
+    Page<Tuple> findAttributes(Collection<String> attributes, Specification<Book> filter, Pageable pageable);
+}
@@ -0,0 +1,76 @@
+package com.library.repository;
+
+import com.library.entity.Book;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Criteria queries whose SELECT list is built from the requested attributes.
+ */
+public class BookRepositoryImpl implements BookRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Tuple> findAttributes(Collection<String> attributes, Specification<Book> filter) {
+        return createQuery(attributes, filter, Sort.unsorted()).getResultList();
+    }
+
+    @Override
+    public Page<Tuple> findAttributes(Collection<String> attributes, Specification<Book> filter, Pageable pageable) {
+        TypedQuery<Tuple> query = createQuery(attributes, filter, pageable.getSort());
+        query.setFirstResult((int) pageable.getOffset());
+        query.setMaxResults(pageable.getPageSize());
+        return new PageImpl<>(query.getResultList(), pageable, count(filter));
+    }
+
+    private TypedQuery<Tuple> createQuery(Collection<String> attributes, Specification<Book> filter, Sort sort) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Book> book = query.from(Book.class);
+
+        List<Selection<?>> selections = new ArrayList<>(attributes.size());
+        for (String attribute : attributes) {
+            selections.add(book.get(attribute).alias(attribute));
+        }
+        query.multiselect(selections);
+        if (filter != null) {
+            query.where(filter.toPredicate(book, query, cb));
+        }
+
+        List<Order> orders = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            orders.add(order.isAscending() ? cb.asc(book.get(order.getProperty())) : cb.desc(book.get(order.getProperty())));
+        }
+        query.orderBy(orders);
+        return entityManager.createQuery(query);
+    }
+
+    private long count(Specification<Book> filter) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Book> book = query.from(Book.class);
+        query.select(cb.count(book));
+        if (filter != null) {
+            query.where(filter.toPredicate(book, query, cb));
+        }
+        return entityManager.createQuery(query).getSingleResult();
+    }
+}
@@ -0,0 +1,14 @@
+package com.library.repository;
+
+import com.library.entity.Category;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface CategoryRepository extends JpaRepository<Category, Integer> {
+
+    // Find category by name (case-insensitive)
+    Optional<Category> findByNameIgnoreCase(String name);
+}
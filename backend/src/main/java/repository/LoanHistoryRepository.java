@@ -0,0 +1,69 @@
+package com.library.repository;
+
+import com.library.dto.loan.LoanActivity;
+import com.library.dto.loan.LoanFact;
+import com.library.entity.LoanHistory;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+
+@Repository
+public interface LoanHistoryRepository extends JpaRepository<LoanHistory, Long> {
+
+    // Find archived loans by user ID
+    List<LoanHistory> findByUserId(Long userId);
+
+    // Archived loans of a user, newest first, from a row offset (used to merge with live history)
+    @Query(value = "SELECT * FROM loan_history WHERE user_id = :userId ORDER BY loan_date DESC, id DESC " +
+            "OFFSET :offset ROWS FETCH NEXT :limit ROWS ONLY", nativeQuery = true)
+    List<LoanHistory> findByUserIdNewestFirst(@Param("userId") Long userId, @Param("offset") long offset,
+                                              @Param("limit") int limit);
+
+    // Count archived loans by user ID
+    long countByUserId(Long userId);
+
+    // Stream minimal loan data for rebuilding in-memory read models
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new com.library.dto.loan.LoanActivity(lh.id, lh.userId, lh.bookId, lh.loanDate) " +
+            "FROM LoanHistory lh")
+    Stream<LoanActivity> streamLoanActivity();
+
+    // Stream the analytical columns of every archived loan
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new com.library.dto.loan.LoanFact(lh.id, lh.userId, lh.bookId, lh.loanDate, lh.dueDate, " +
+            "lh.returnDate, lh.fine) FROM LoanHistory lh")
+    Stream<LoanFact> streamLoanFacts();
+
+    // Archived loans in an id range (for partitioned backfills and reports)
+    @Query("SELECT new com.library.dto.loan.LoanFact(lh.id, lh.userId, lh.bookId, lh.loanDate, lh.dueDate, " +
+            "lh.returnDate, lh.fine) FROM LoanHistory lh WHERE lh.id BETWEEN :fromId AND :toId")
+    List<LoanFact> findLoanFactsByIdRange(@Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    // Archived loans in an id range taken out in [from, to) (for partitioned reports)
+    @Query("SELECT new com.library.dto.loan.LoanFact(lh.id, lh.userId, lh.bookId, lh.loanDate, lh.dueDate, " +
+            "lh.returnDate, lh.fine) FROM LoanHistory lh WHERE lh.id BETWEEN :fromId AND :toId " +
+            "AND lh.loanDate >= :from AND lh.loanDate < :to")
+    List<LoanFact> findLoanFactsByIdRangeAndLoanDate(@Param("fromId") Long fromId, @Param("toId") Long toId,
+                                                    @Param("from") LocalDateTime from,
+                                                    @Param("to") LocalDateTime to);
+
+    // Get the id range of archived loans
+    @Query("SELECT MIN(lh.id) FROM LoanHistory lh")
+    Long getMinLoanId();
+
+    @Query("SELECT MAX(lh.id) FROM LoanHistory lh")
+    Long getMaxLoanId();
+
+    // Get archive statistics - total archived loans
+    @Query("SELECT COUNT(lh) FROM LoanHistory lh")
+    long getTotalArchivedCount();
+}
@@ -1,7 +1,9 @@
 package com.library.repository;
 
 import com.library.entity.User;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -27,18 +29,20 @@ public interface UserRepository extends JpaRepository<User, Long> {
     // Find users by role
     List<User> findByRole(User.Role role);
 
+    // Find user by ID, locking the row until the transaction ends
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT u FROM User u WHERE u.id = :id")
+    Optional<User> findByIdForUpdate(@Param("id") Long id);
+
     // Find active users
     List<User> findByIsActiveTrue();
 
     // Find users by role and active status
     List<User> findByRoleAndIsActiveTrue(User.Role role);
 
-    // Search users by first name or last name (case insensitive)
-    @Query("SELECT u FROM User u WHERE " +
-            "LOWER(u.firstName) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-            "LOWER(u.lastName) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-            "LOWER(u.username) LIKE LOWER(CONCAT('%', :searchTerm, '%'))")
-    List<User> searchUsers(@Param("searchTerm") String searchTerm);
+    // Get (id, role) of every user
+    @Query("SELECT u.id, u.role FROM User u")
+    List<Object[]> findAllRoles();
 
     // Count users by role
     long countByRole(User.Role role);
@@ -48,4 +52,8 @@ public interface UserRepository extends JpaRepository<User, Long> {
             "INNER JOIN BookLoan bl ON u.id = bl.user.id " +
             "WHERE bl.status = 'ACTIVE'")
     List<User> findUsersWithActiveLoans();
-}
\ No newline at end of file
+
+    // Current version of a user, for ETags, without loading the entity
+    @Query("SELECT u.version FROM User u WHERE u.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+}
@@ -0,0 +1,59 @@
+package com.library.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Short-lived, single-use tickets that authenticate event stream connections.
+ *
+ * EventSource cannot send an Authorization header, so the stream URL has to carry the
+ * credential and ends up in access and proxy logs. A ticket is useless once redeemed or
+ * expired, unlike the JWT it replaces there.
+ */
+@Component
+public class StreamTicketStore {
+
+    private final SecureRandom random = new SecureRandom();
+    private final Map<String, Ticket> tickets = new ConcurrentHashMap<>();
+
+    // How long a ticket can be redeemed after it is issued
+    @Value("${app.stream.ticket-ttl-ms:30000}")
+    private long ttlMillis;
+
+    // Issue a ticket for the user
+    public String issue(String username) {
+        long now = System.currentTimeMillis();
+        tickets.values().removeIf(ticket -> ticket.expiresAt < now);
+
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        String value = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        tickets.put(value, new Ticket(username, now + ttlMillis));
+        return value;
+    }
+
+    // Username the ticket was issued to, or null if it is unknown, used or expired
+    public String redeem(String value) {
+        Ticket ticket = tickets.remove(value);
+        return ticket != null && ticket.expiresAt >= System.currentTimeMillis() ? ticket.username : null;
+    }
+
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    private static final class Ticket {
+        private final String username;
+        private final long expiresAt;
+
+        private Ticket(String username, long expiresAt) {
+            this.username = username;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
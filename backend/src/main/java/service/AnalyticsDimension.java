@@ -0,0 +1,23 @@
+package com.library.service;
+
+/**
+ * Dimensions the loan analytics can be grouped by.
+ * CATEGORY and ROLE describe the book and the borrower, MONTH and YEAR bucket the loan date.
+ */
+public enum AnalyticsDimension {
+    CATEGORY,
+    ROLE,
+    STATUS,
+    MONTH,
+    YEAR;
+
+    // Lenient parsing for request parameters ("category", "Month" ...)
+    public static AnalyticsDimension fromParameter(String value) {
+        for (AnalyticsDimension dimension : values()) {
+            if (dimension.name().equalsIgnoreCase(value.trim())) {
+                return dimension;
+            }
+        }
+        throw new IllegalArgumentException("Invalid dimension: " + value + ". Must be one of: CATEGORY, ROLE, STATUS, MONTH, YEAR");
+    }
+}
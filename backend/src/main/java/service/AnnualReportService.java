@@ -0,0 +1,512 @@
+package com.library.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.library.dto.loan.LoanFact;
+import com.library.dto.report.ReportStatus;
+import com.library.entity.BookLoan;
+import com.library.entity.User;
+import com.library.repository.BookLoanRepository;
+import com.library.repository.BookRepository;
+import com.library.repository.LoanHistoryRepository;
+import com.library.repository.UserRepository;
+import com.library.util.LongIntHashMap;
+import com.library.util.LongObjectHashMap;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Builds the year-end circulation report: totals, monthly figures, per-category circulation,
+ * top books, fines and member activity.
+ *
+ * The loan ids (live and archived together) and the book table are split into id-range
+ * partitions. Every partition is read in its own read-only transaction on a work-stealing pool
+ * and reduced to a partial aggregate. A loan partition reads the loans of the report year in
+ * its range from both tables, live first, and counts each loan id once, so a loan archived
+ * while the report runs is neither missed nor counted twice. A coordinator
+ * merges the partials as they finish and streams the result to a JSON file. Reports run one at
+ * a time; progress is the share of partitions done, and cancelling skips the partitions that
+ * have not started yet. Finished reports and their files are dropped after app.reports.job-ttl-ms.
+ */
+@Service
+public class AnnualReportService {
+
+    private static final Logger log = LoggerFactory.getLogger(AnnualReportService.class);
+    private static final String UNCATEGORIZED = "Uncategorized";
+
+    // Per-book counters
+    private static final int LOANS = 0;
+    private static final int OVERDUE = 1;
+    private static final int FINES = 2;
+
+    @Autowired
+    private BookLoanRepository bookLoanRepository;
+
+    @Autowired
+    private LoanHistoryRepository loanHistoryRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.reports.dir:./data/reports}")
+    private String reportDir;
+
+    // Worker threads (0 = one per processor)
+    @Value("${app.reports.parallelism:0}")
+    private int parallelism;
+
+    // Ids per partition
+    @Value("${app.reports.partition-size:20000}")
+    private int partitionSize;
+
+    // Entries in the top books and top members lists
+    @Value("${app.reports.top-size:50}")
+    private int topSize;
+
+    // How long a finished report (and its file) is kept
+    @Value("${app.reports.job-ttl-ms:86400000}")
+    private long jobTtlMillis;
+
+    private final TransactionTemplate readOnlyTransaction;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private ExecutorService workers;
+    private ExecutorService coordinator;
+
+    public AnnualReportService(PlatformTransactionManager transactionManager) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        Files.createDirectories(Paths.get(reportDir));
+        workers = Executors.newWorkStealingPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        coordinator = Executors.newSingleThreadExecutor();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        coordinator.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    // Drop finished reports older than the TTL
+    @Scheduled(fixedDelayString = "${app.reports.eviction-interval-ms:600000}")
+    public void evictFinishedReports() {
+        LocalDateTime cutoff = LocalDateTime.now().minusNanos(jobTtlMillis * 1_000_000L);
+        for (Job job : jobs.values()) {
+            LocalDateTime finishedDate = job.finishedDate;
+            if (finishedDate == null || !finishedDate.isBefore(cutoff) || !jobs.remove(job.id, job)) {
+                continue;
+            }
+            if (job.file != null) {
+                try {
+                    Files.deleteIfExists(job.file);
+                } catch (IOException e) {
+                    log.warn("Could not delete annual report file {}", job.file, e);
+                }
+            }
+        }
+    }
+
+    // Queue a report for the given year
+    public ReportStatus startAnnualReport(int year) {
+        if (year < 1900 || year > LocalDateTime.now().getYear()) {
+            throw new IllegalArgumentException("Invalid report year: " + year);
+        }
+        Job job = new Job(UUID.randomUUID().toString(), year);
+        jobs.put(job.id, job);
+        coordinator.submit(() -> run(job));
+        return job.toStatus();
+    }
+
+    public Optional<ReportStatus> getStatus(String id) {
+        return Optional.ofNullable(jobs.get(id)).map(Job::toStatus);
+    }
+
+    public List<ReportStatus> getReports() {
+        return jobs.values().stream()
+                .sorted(Comparator.comparing((Job job) -> job.startedDate).reversed())
+                .map(Job::toStatus)
+                .collect(Collectors.toList());
+    }
+
+    // Request cancellation; partitions already running finish, the rest are skipped
+    public Optional<ReportStatus> cancel(String id) {
+        Job job = jobs.get(id);
+        if (job == null) {
+            return Optional.empty();
+        }
+        job.cancelled = true;
+        for (Future<?> partition : job.partitions) {
+            partition.cancel(false);
+        }
+        return Optional.of(job.toStatus());
+    }
+
+    // File of a completed report
+    public Optional<Path> getReportFile(String id) {
+        Job job = jobs.get(id);
+        return job != null && job.status == Status.COMPLETED ? Optional.of(job.file) : Optional.empty();
+    }
+
+    // Report run (on the coordinator thread)
+    private void run(Job job) {
+        if (job.cancelled) {
+            job.finish(Status.CANCELLED, null);
+            return;
+        }
+        job.status = Status.RUNNING;
+        LocalDateTime from = LocalDateTime.of(job.year, 1, 1, 0, 0);
+        LocalDateTime to = from.plusYears(1);
+
+        try {
+            List<Future<LongObjectHashMap<String[]>>> bookPartitions = new ArrayList<>();
+            for (long[] range : partitions(bookRepository.getMinBookId(), bookRepository.getMaxBookId())) {
+                bookPartitions.add(submit(job, () -> readBooks(range[0], range[1])));
+            }
+            List<Future<Partial>> loanPartitions = new ArrayList<>();
+            Long minLoanId = min(bookLoanRepository.getMinLoanId(), loanHistoryRepository.getMinLoanId());
+            Long maxLoanId = max(bookLoanRepository.getMaxLoanId(), loanHistoryRepository.getMaxLoanId());
+            for (long[] range : partitions(minLoanId, maxLoanId)) {
+                loanPartitions.add(submit(job, () -> readLoans(range, from, to)));
+            }
+            job.totalPartitions = bookPartitions.size() + loanPartitions.size();
+
+            // Merge partials in submission order while later partitions are still running
+            LongObjectHashMap<String[]> books = new LongObjectHashMap<>();
+            for (Future<LongObjectHashMap<String[]>> partition : bookPartitions) {
+                partition.get().forEach(books::put);
+            }
+            Partial total = new Partial();
+            for (Future<Partial> partition : loanPartitions) {
+                total.merge(partition.get());
+            }
+            if (job.cancelled) {
+                throw new CancellationException();
+            }
+
+            Path file = Paths.get(reportDir, "annual-report-" + job.year + "-" + job.id + ".json");
+            Path temporary = Paths.get(reportDir, file.getFileName() + ".tmp");
+            try (OutputStream out = Files.newOutputStream(temporary)) {
+                write(out, job.year, total, books);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            job.file = file;
+            job.finish(Status.COMPLETED, null);
+            log.info("Annual report {} for {} written to {}", job.id, job.year, file);
+        } catch (CancellationException e) {
+            job.finish(Status.CANCELLED, null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.finish(Status.CANCELLED, null);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof CancellationException) {
+                job.finish(Status.CANCELLED, null);
+            } else {
+                log.error("Annual report {} failed", job.id, e.getCause());
+                job.finish(Status.FAILED, e.getCause().getMessage());
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Annual report {} failed", job.id, e);
+            job.finish(Status.FAILED, e.getMessage());
+        } finally {
+            // Skip whatever is left after a failure or cancellation
+            for (Future<?> partition : job.partitions) {
+                partition.cancel(false);
+            }
+        }
+    }
+
+    private <T> Future<T> submit(Job job, Callable<T> partition) {
+        Future<T> future = workers.submit(() -> {
+            if (job.cancelled) {
+                throw new CancellationException();
+            }
+            T result = partition.call();
+            job.completedPartitions.incrementAndGet();
+            return result;
+        });
+        job.partitions.add(future);
+        return future;
+    }
+
+    private List<long[]> partitions(Long minId, Long maxId) {
+        List<long[]> ranges = new ArrayList<>();
+        if (minId != null) {
+            for (long fromId = minId; fromId <= maxId; fromId += partitionSize) {
+                ranges.add(new long[]{fromId, Math.min(maxId, fromId + partitionSize - 1)});
+            }
+        }
+        return ranges;
+    }
+
+    // (title, author, category) by book id
+    private LongObjectHashMap<String[]> readBooks(long fromId, long toId) {
+        return readOnlyTransaction.execute(status -> {
+            LongObjectHashMap<String[]> books = new LongObjectHashMap<>();
+            for (Object[] row : bookRepository.findCatalogRowsByIdRange(fromId, toId)) {
+                books.put((Long) row[0], new String[]{(String) row[1], (String) row[2], (String) row[3]});
+            }
+            return books;
+        });
+    }
+
+    private Partial readLoans(long[] range, LocalDateTime from, LocalDateTime to) {
+        return readOnlyTransaction.execute(status -> {
+            Partial partial = new Partial();
+            Set<Long> seen = new HashSet<>();
+            // Live before archived: archiving moves rows the other way
+            for (LoanFact loan : bookLoanRepository.findLoanFactsByIdRangeAndLoanDate(range[0], range[1], from, to)) {
+                if (seen.add(loan.getLoanId())) {
+                    partial.add(loan);
+                }
+            }
+            for (LoanFact loan : loanHistoryRepository.findLoanFactsByIdRangeAndLoanDate(range[0], range[1], from, to)) {
+                if (seen.add(loan.getLoanId())) {
+                    partial.add(loan);
+                }
+            }
+            return partial;
+        });
+    }
+
+    private static Long min(Long a, Long b) {
+        return a == null ? b : b == null ? a : Long.valueOf(Math.min(a, b));
+    }
+
+    private static Long max(Long a, Long b) {
+        return a == null ? b : b == null ? a : Long.valueOf(Math.max(a, b));
+    }
+
+    // Stream the merged aggregates to the report file
+    private void write(OutputStream out, int year, Partial total, LongObjectHashMap<String[]> books) throws IOException {
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            json.useDefaultPrettyPrinter();
+            json.writeStartObject();
+            json.writeNumberField("year", year);
+            json.writeStringField("generatedDate", LocalDateTime.now().toString());
+
+            json.writeObjectFieldStart("totals");
+            json.writeNumberField("loans", total.loans);
+            json.writeNumberField("returnedLoans", total.returned);
+            json.writeNumberField("overdueLoans", total.overdue);
+            json.writeNumberField("fines", FinePolicy.toAmount(total.fineCents));
+            json.writeEndObject();
+
+            json.writeArrayFieldStart("monthly");
+            for (int month = 0; month < 12; month++) {
+                json.writeStartObject();
+                json.writeStringField("month", YearMonth.of(year, month + 1).toString());
+                json.writeNumberField("loans", total.loansByMonth[month]);
+                json.writeNumberField("fines", FinePolicy.toAmount(total.finesByMonth[month]));
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+
+            // Categories and top books, from the per-book counters
+            Map<String, long[]> categories = new HashMap<>();
+            List<long[]> bookLoans = new ArrayList<>();
+            total.byBook.forEach((bookId, counters) -> {
+                long[] category = categories.computeIfAbsent(category(books.get(bookId)), name -> new long[3]);
+                for (int i = 0; i < counters.length; i++) {
+                    category[i] += counters[i];
+                }
+                bookLoans.add(new long[]{bookId, counters[LOANS]});
+            });
+
+            json.writeArrayFieldStart("categories");
+            List<Map.Entry<String, long[]>> byLoans = new ArrayList<>(categories.entrySet());
+            byLoans.sort((a, b) -> Long.compare(b.getValue()[LOANS], a.getValue()[LOANS]));
+            for (Map.Entry<String, long[]> category : byLoans) {
+                json.writeStartObject();
+                json.writeStringField("category", category.getKey());
+                json.writeNumberField("loans", category.getValue()[LOANS]);
+                json.writeNumberField("overdueLoans", category.getValue()[OVERDUE]);
+                json.writeNumberField("fines", FinePolicy.toAmount(category.getValue()[FINES]));
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+
+            json.writeArrayFieldStart("topBooks");
+            for (long[] entry : top(bookLoans)) {
+                String[] book = books.get(entry[0]);
+                json.writeStartObject();
+                json.writeNumberField("bookId", entry[0]);
+                json.writeStringField("title", book != null ? book[0] : null);
+                json.writeStringField("author", book != null ? book[1] : null);
+                json.writeStringField("category", category(book));
+                json.writeNumberField("loans", entry[1]);
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+
+            List<long[]> memberLoans = new ArrayList<>(total.loansByUser.size());
+            total.loansByUser.forEach((userId, loans) -> memberLoans.add(new long[]{userId, loans}));
+            List<long[]> topMembers = top(memberLoans);
+            Map<Long, User> users = readOnlyTransaction.execute(status -> userRepository
+                    .findAllById(topMembers.stream().map(entry -> entry[0]).collect(Collectors.toList()))
+                    .stream()
+                    .collect(Collectors.toMap(User::getId, user -> user)));
+
+            json.writeObjectFieldStart("memberActivity");
+            json.writeNumberField("activeMembers", memberLoans.size());
+            json.writeNumberField("averageLoansPerMember",
+                    memberLoans.isEmpty() ? 0d : (double) total.loans / memberLoans.size());
+            json.writeArrayFieldStart("topMembers");
+            for (long[] entry : topMembers) {
+                User user = users.get(entry[0]);
+                json.writeStartObject();
+                json.writeNumberField("userId", entry[0]);
+                json.writeStringField("username", user != null ? user.getUsername() : null);
+                json.writeStringField("fullName", user != null ? user.getFirstName() + " " + user.getLastName() : null);
+                json.writeNumberField("loans", entry[1]);
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+
+            json.writeEndObject();
+        }
+    }
+
+    // Highest (id, count) pairs first, ties by id
+    private List<long[]> top(List<long[]> entries) {
+        entries.sort((a, b) -> a[1] != b[1] ? Long.compare(b[1], a[1]) : Long.compare(a[0], b[0]));
+        return entries.subList(0, Math.min(topSize, entries.size()));
+    }
+
+    private static String category(String[] book) {
+        return book == null || book[2] == null || book[2].isBlank() ? UNCATEGORIZED : book[2].trim();
+    }
+
+    private enum Status {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        CANCELLED,
+        FAILED
+    }
+
+    // Aggregates of one partition, merged into the report total
+    private static final class Partial {
+        private long loans;
+        private long returned;
+        private long overdue;
+        private long fineCents;
+        private final long[] loansByMonth = new long[12];
+        private final long[] finesByMonth = new long[12];
+        private final LongObjectHashMap<long[]> byBook = new LongObjectHashMap<>();
+        private final LongIntHashMap loansByUser = new LongIntHashMap();
+
+        private void add(LoanFact loan) {
+            boolean late = loan.getStatus() == BookLoan.LoanStatus.OVERDUE
+                    || (loan.getReturnDate() != null && loan.getReturnDate().isAfter(loan.getDueDate()));
+            long fine = FinePolicy.toCents(loan.getFine());
+            int month = loan.getLoanDate().getMonthValue() - 1;
+
+            loans++;
+            returned += loan.getReturnDate() != null ? 1 : 0;
+            overdue += late ? 1 : 0;
+            fineCents += fine;
+            loansByMonth[month]++;
+            finesByMonth[month] += fine;
+            long[] book = byBook.computeIfAbsent(loan.getBookId(), id -> new long[3]);
+            book[LOANS]++;
+            book[OVERDUE] += late ? 1 : 0;
+            book[FINES] += fine;
+            loansByUser.addTo(loan.getUserId(), 1);
+        }
+
+        private void merge(Partial other) {
+            loans += other.loans;
+            returned += other.returned;
+            overdue += other.overdue;
+            fineCents += other.fineCents;
+            for (int month = 0; month < 12; month++) {
+                loansByMonth[month] += other.loansByMonth[month];
+                finesByMonth[month] += other.finesByMonth[month];
+            }
+            other.byBook.forEach((bookId, counters) -> {
+                long[] book = byBook.computeIfAbsent(bookId, id -> new long[3]);
+                for (int i = 0; i < counters.length; i++) {
+                    book[i] += counters[i];
+                }
+            });
+            other.loansByUser.forEach(loansByUser::addTo);
+        }
+    }
+
+    private static final class Job {
+        private final String id;
+        private final int year;
+        private final LocalDateTime startedDate = LocalDateTime.now();
+        private final List<Future<?>> partitions = new CopyOnWriteArrayList<>();
+        private final AtomicInteger completedPartitions = new AtomicInteger();
+        private volatile int totalPartitions;
+        private volatile Status status = Status.QUEUED;
+        private volatile boolean cancelled;
+        private volatile LocalDateTime finishedDate;
+        private volatile String error;
+        private volatile Path file;
+
+        private Job(String id, int year) {
+            this.id = id;
+            this.year = year;
+        }
+
+        private void finish(Status status, String error) {
+            this.error = error;
+            this.finishedDate = LocalDateTime.now();
+            this.status = status;
+        }
+
+        private ReportStatus toStatus() {
+            return new ReportStatus(id, year, status.name(), totalPartitions, completedPartitions.get(),
+                    startedDate, finishedDate, error);
+        }
+    }
+}
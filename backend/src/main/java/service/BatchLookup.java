@@ -0,0 +1,86 @@
+package com.library.service;
+
+import com.library.dto.BatchItem;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Shared steps of the batch-by-id lookups: validating the request, fetching the ids that
+ * were not resolved from memory with chunked IN queries, and answering in request order.
+ */
+final class BatchLookup {
+
+    // Ids accepted per request
+    static final int MAX_IDS = 5000;
+    // Ids per IN query, well below SQL Server's limit of 2100 parameters per statement
+    static final int CHUNK_SIZE = 1000;
+
+    private BatchLookup() {}
+
+    // Distinct ids of the request, in order
+    static Set<Long> distinctIds(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            throw new IllegalArgumentException("At least one id is required");
+        }
+        if (ids.size() > MAX_IDS) {
+            throw new IllegalArgumentException("At most " + MAX_IDS + " ids are allowed per request");
+        }
+        Set<Long> distinct = new LinkedHashSet<>(ids.size() * 2);
+        for (Long id : ids) {
+            if (id == null) {
+                throw new IllegalArgumentException("Ids must not be null");
+            }
+            distinct.add(id);
+        }
+        return distinct;
+    }
+
+    // Run the query over the ids in chunks and add what it finds to the map, by id
+    static <E, R> void fetchInChunks(Collection<Long> ids, Function<List<Long>, List<E>> query,
+                                     Function<E, Long> idOf, Function<E, R> mapper, Map<Long, R> found) {
+        List<Long> chunk = new ArrayList<>(Math.min(ids.size(), CHUNK_SIZE));
+        for (Long id : ids) {
+            chunk.add(id);
+            if (chunk.size() == CHUNK_SIZE) {
+                fetchChunk(chunk, query, idOf, mapper, found);
+                chunk = new ArrayList<>(CHUNK_SIZE);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            fetchChunk(chunk, query, idOf, mapper, found);
+        }
+    }
+
+    // Ids of the set that are not in the map yet
+    static <R> List<Long> missing(Set<Long> ids, Map<Long, R> found) {
+        List<Long> missing = new ArrayList<>();
+        for (Long id : ids) {
+            if (!found.containsKey(id)) {
+                missing.add(id);
+            }
+        }
+        return missing;
+    }
+
+    // One entry per requested id, repeated ids included, with not-found markers
+    static <R> List<BatchItem<R>> inRequestOrder(List<Long> ids, Map<Long, R> found) {
+        List<BatchItem<R>> items = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            items.add(new BatchItem<>(id, found.get(id)));
+        }
+        return items;
+    }
+
+    private static <E, R> void fetchChunk(List<Long> chunk, Function<List<Long>, List<E>> query,
+                                          Function<E, Long> idOf, Function<E, R> mapper, Map<Long, R> found) {
+        for (E entity : query.apply(chunk)) {
+            found.put(idOf.apply(entity), mapper.apply(entity));
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.library.service;
+
+import com.library.dto.book.BookResponse;
+import com.library.entity.Book;
+import com.library.event.BookEvent;
+import com.library.repository.BookRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * In-memory view of book stock, loaded at startup and kept current from BookEvents.
+ *
+ * Every book has an immutable entry holding its last written snapshot, the row version it
+ * was written with and its available/total copies, packed into one long so both counters
+ * are always read together. Every event carries the book's snapshot and version, and
+ * listeners of concurrent transactions can run out of commit order, so an event is applied
+ * only when it is newer than the entry. Availability changes take the counters of their
+ * snapshot instead of adding their delta. A deleted book keeps an empty entry, so a late
+ * event cannot bring it back. Books with copies in stock are also kept in a skip list
+ * ordered by title, so the available-books list is a plain in-order walk.
+ */
+@Service
+public class BookAvailabilityRegistry {
+
+    private static final Comparator<TitleKey> TITLE_ORDER = Comparator
+            .comparing((TitleKey key) -> key.title, String.CASE_INSENSITIVE_ORDER)
+            .thenComparing(key -> key.title)
+            .thenComparingLong(key -> key.bookId);
+
+    // Entry of a deleted book; newer than any event
+    private static final Entry DELETED = new Entry();
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final ConcurrentHashMap<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<TitleKey, Entry> inStock = new ConcurrentSkipListMap<>(TITLE_ORDER);
+
+    public BookAvailabilityRegistry(PlatformTransactionManager transactionManager) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @PostConstruct
+    public void load() {
+        readOnlyTransaction.executeWithoutResult(status -> {
+            for (Book book : bookRepository.findAll()) {
+                put(BookResponse.summaryOf(book), book.getVersion());
+            }
+        });
+    }
+
+    @Order(EntityTagService.READ_MODEL_ORDER)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onBookEvent(BookEvent event) {
+        switch (event.getType()) {
+            case CREATED, UPDATED, AVAILABILITY_CHANGED -> put(event.getBook(), event.getVersion());
+            case DELETED -> remove(event.getBookId());
+        }
+    }
+
+    // Current counters of a book, empty if the book is unknown
+    public Optional<Availability> getAvailability(Long bookId) {
+        Entry entry = entries.get(bookId);
+        if (entry == null || entry.snapshot == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new Availability(available(entry.counts), total(entry.counts)));
+    }
+
+    // Current snapshot of a book (without the description), empty if the book is unknown
+    public Optional<BookResponse> getBook(Long bookId) {
+        Entry entry = entries.get(bookId);
+        return entry == null || entry.snapshot == null ? Optional.empty() : Optional.of(entry.toResponse());
+    }
+
+    // Books with at least one copy in stock, ordered by title
+    public List<BookResponse> getAvailableBooks() {
+        List<BookResponse> books = new ArrayList<>(inStock.size());
+        for (Entry entry : inStock.values()) {
+            books.add(entry.toResponse());
+        }
+        return books;
+    }
+
+    // Helper methods (per book, inside compute)
+    private void put(BookResponse snapshot, long version) {
+        entries.compute(snapshot.getId(), (id, existing) -> {
+            if (existing != null && existing.version >= version) {
+                return existing;
+            }
+            Entry entry = new Entry(snapshot, version);
+            // Insert before removing, so a concurrent walk never misses a book that stays in stock
+            if (available(entry.counts) > 0) {
+                inStock.put(entry.key, entry);
+            }
+            if (existing != null && existing.key != null) {
+                inStock.remove(existing.key, existing);
+            }
+            return entry;
+        });
+    }
+
+    private void remove(Long bookId) {
+        entries.compute(bookId, (id, existing) -> {
+            if (existing != null && existing.key != null) {
+                inStock.remove(existing.key, existing);
+            }
+            return DELETED;
+        });
+    }
+
+    private static long pack(int available, int total) {
+        return ((long) available << 32) | (total & 0xFFFFFFFFL);
+    }
+
+    private static int available(long counts) {
+        return (int) (counts >>> 32);
+    }
+
+    private static int total(long counts) {
+        return (int) counts;
+    }
+
+    private static final class Entry {
+        // Null for a deleted book
+        private final BookResponse snapshot;
+        private final TitleKey key;
+        private final long version;
+        private final long counts;
+
+        private Entry(BookResponse snapshot, long version) {
+            this.snapshot = snapshot;
+            this.key = new TitleKey(snapshot.getTitle(), snapshot.getId());
+            this.version = version;
+            this.counts = pack(snapshot.getAvailableCopies(), snapshot.getTotalCopies());
+        }
+
+        private Entry() {
+            this.snapshot = null;
+            this.key = null;
+            this.version = BookEvent.DELETED_VERSION;
+            this.counts = 0;
+        }
+
+        // Fresh response combining the snapshot with its counters
+        private BookResponse toResponse() {
+            return new BookResponse(snapshot.getId(), snapshot.getTitle(), snapshot.getAuthor(),
+                    snapshot.getIsbn(), snapshot.getPublisher(), snapshot.getPublishedYear(),
+                    snapshot.getCategory(), total(counts), available(counts),
+                    snapshot.getDescription(), snapshot.getCreatedDate());
+        }
+    }
+
+    private static final class TitleKey {
+        private final String title;
+        private final long bookId;
+
+        private TitleKey(String title, long bookId) {
+            this.title = title;
+            this.bookId = bookId;
+        }
+    }
+
+    public static class Availability {
+        private final int availableCopies;
+        private final int totalCopies;
+
+        public Availability(int availableCopies, int totalCopies) {
+            this.availableCopies = availableCopies;
+            this.totalCopies = totalCopies;
+        }
+
+        public boolean isAvailable() { return availableCopies > 0; }
+        public int getAvailableCopies() { return availableCopies; }
+        public int getTotalCopies() { return totalCopies; }
+    }
+}
@@ -0,0 +1,318 @@
+package com.library.service;
+
+import com.library.dto.book.BookFacetQuery;
+import com.library.dto.book.BookFacetResult;
+import com.library.dto.book.BookFilter;
+import com.library.dto.book.BookResponse;
+import com.library.entity.Book;
+import com.library.event.BookEvent;
+import com.library.repository.BookRepository;
+import com.library.util.CompressedBitmap;
+import com.library.util.LongIntHashMap;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Bitmap indexes over the catalog for faceted filtering.
+ *
+ * Every book gets a dense ordinal, handed out in id order at startup and then in creation
+ * order. Ordinals are not reused. There is one CompressedBitmap of ordinals per category,
+ * one per publication year, one for books with copies in stock and one for all books.
+ * A filter tree becomes AND / OR / AND NOT over those bitmaps. Facet counts are the sizes
+ * of the intersections of the result with each bitmap. The bitmaps are loaded at startup
+ * and kept current from BookEvents. Books in a result page come from
+ * BookAvailabilityRegistry, so they carry current stock counters.
+ *
+ * Listeners of concurrent transactions can run out of commit order. Each ordinal therefore
+ * keeps the row version of the snapshot it was indexed from, and an event is applied only
+ * when it is newer. Availability changes take the stock of their snapshot, not their
+ * delta. A deleted book keeps its ordinal, outside every bitmap, so a late event cannot
+ * bring it back.
+ */
+@Service
+public class BookFacetIndex {
+
+    private static final int NO_YEAR = Integer.MIN_VALUE;
+    private static final int MAX_PAGE_SIZE = 200;
+    // Upper bound on the nodes of one filter tree
+    private static final int MAX_FILTER_NODES = 256;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BookAvailabilityRegistry bookAvailabilityRegistry;
+
+    private final TransactionTemplate readOnlyTransaction;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Guarded by lock; ordinal + 1 by book id, since the map does not hold zero values
+    private final LongIntHashMap ordinals = new LongIntHashMap();
+    private long[] bookIds = new long[1024];
+    private String[] categories = new String[1024];
+    private int[] years = new int[1024];
+    private int[] availableCopies = new int[1024];
+    private long[] versions = new long[1024];
+    private int nextOrdinal;
+    private final CompressedBitmap all = new CompressedBitmap();
+    private final CompressedBitmap inStock = new CompressedBitmap();
+    // Categories compare case-insensitively, like the database collation
+    private final TreeMap<String, CompressedBitmap> byCategory = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private final TreeMap<Integer, CompressedBitmap> byYear = new TreeMap<>();
+
+    public BookFacetIndex(PlatformTransactionManager transactionManager) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @PostConstruct
+    public void load() {
+        readOnlyTransaction.executeWithoutResult(status -> {
+            List<Book> books = bookRepository.findAll(Sort.by("id"));
+            lock.writeLock().lock();
+            try {
+                for (Book book : books) {
+                    put(BookResponse.summaryOf(book), book.getVersion());
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    @Order(EntityTagService.READ_MODEL_ORDER)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onBookEvent(BookEvent event) {
+        lock.writeLock().lock();
+        try {
+            switch (event.getType()) {
+                case CREATED, UPDATED, AVAILABILITY_CHANGED -> put(event.getBook(), event.getVersion());
+                case DELETED -> remove(event.getBookId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // One page of the books matching the filter, plus facet counts over all matches
+    public BookFacetResult search(BookFacetQuery query) {
+        int page = Math.max(0, query.getPage());
+        int size = Math.max(1, Math.min(MAX_PAGE_SIZE, query.getSize()));
+
+        List<Long> pageIds = new ArrayList<>(size);
+        Map<String, Integer> categoryCounts = new LinkedHashMap<>();
+        Map<Integer, Integer> yearCounts = new LinkedHashMap<>();
+        int total;
+        int inStockCount;
+
+        lock.readLock().lock();
+        try {
+            CompressedBitmap result = evaluate(query.getFilter(), new int[1]);
+            total = result.cardinality();
+
+            long skip = (long) page * size;
+            int[] seen = new int[1];
+            result.forEach(ordinal -> {
+                if (seen[0]++ >= skip) {
+                    pageIds.add(bookIds[ordinal]);
+                }
+                return pageIds.size() < size;
+            });
+
+            for (Map.Entry<String, CompressedBitmap> entry : byCategory.entrySet()) {
+                int count = CompressedBitmap.andCardinality(result, entry.getValue());
+                if (count > 0) {
+                    categoryCounts.put(entry.getKey(), count);
+                }
+            }
+            for (Map.Entry<Integer, CompressedBitmap> entry : byYear.entrySet()) {
+                int count = CompressedBitmap.andCardinality(result, entry.getValue());
+                if (count > 0) {
+                    yearCounts.put(entry.getKey(), count);
+                }
+            }
+            inStockCount = CompressedBitmap.andCardinality(result, inStock);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<BookResponse> books = new ArrayList<>(pageIds.size());
+        for (Long id : pageIds) {
+            bookAvailabilityRegistry.getBook(id).ifPresent(books::add);
+        }
+        return new BookFacetResult(total, page, size, books, categoryCounts, yearCounts,
+                inStockCount, total - inStockCount);
+    }
+
+    // Helper methods (callers hold the lock)
+    private CompressedBitmap evaluate(BookFilter filter, int[] nodes) {
+        if (++nodes[0] > MAX_FILTER_NODES) {
+            throw new IllegalArgumentException("Filter has more than " + MAX_FILTER_NODES + " nodes");
+        }
+        if (filter == null) {
+            return all;
+        }
+        if (filter.getOp() == null) {
+            return evaluateLeaf(filter);
+        }
+
+        List<BookFilter> children = filter.getFilters() != null ? filter.getFilters() : List.of();
+        switch (filter.getOp()) {
+            case AND: {
+                CompressedBitmap result = all;
+                for (BookFilter child : children) {
+                    result = CompressedBitmap.and(result, evaluate(child, nodes));
+                }
+                return result;
+            }
+            case OR: {
+                CompressedBitmap result = new CompressedBitmap();
+                for (BookFilter child : children) {
+                    result = CompressedBitmap.or(result, evaluate(child, nodes));
+                }
+                return result;
+            }
+            case NOT:
+                if (children.size() != 1) {
+                    throw new IllegalArgumentException("NOT takes exactly one filter");
+                }
+                return CompressedBitmap.andNot(all, evaluate(children.get(0), nodes));
+            default:
+                throw new IllegalArgumentException("Unsupported operator: " + filter.getOp());
+        }
+    }
+
+    private CompressedBitmap evaluateLeaf(BookFilter filter) {
+        CompressedBitmap result = all;
+        if (filter.getCategory() != null) {
+            CompressedBitmap category = byCategory.get(filter.getCategory().trim());
+            result = category != null ? CompressedBitmap.and(result, category) : new CompressedBitmap();
+        }
+        if (filter.getYearFrom() != null || filter.getYearTo() != null) {
+            int from = filter.getYearFrom() != null ? filter.getYearFrom() : Integer.MIN_VALUE + 1;
+            int to = filter.getYearTo() != null ? filter.getYearTo() : Integer.MAX_VALUE;
+            if (from > to) {
+                throw new IllegalArgumentException("yearFrom is after yearTo");
+            }
+            CompressedBitmap inRange = new CompressedBitmap();
+            for (CompressedBitmap year : byYear.subMap(from, true, to, true).values()) {
+                inRange = CompressedBitmap.or(inRange, year);
+            }
+            result = CompressedBitmap.and(result, inRange);
+        }
+        if (filter.getAvailable() != null) {
+            result = filter.getAvailable()
+                    ? CompressedBitmap.and(result, inStock)
+                    : CompressedBitmap.andNot(result, inStock);
+        }
+        return result;
+    }
+
+    private void put(BookResponse book, long version) {
+        int ordinal = ordinalOf(book.getId());
+        if (ordinal >= 0) {
+            if (versions[ordinal] >= version) {
+                return;
+            }
+            clearAttributes(ordinal);
+        } else {
+            ordinal = newOrdinal(book.getId());
+            all.add(ordinal);
+        }
+
+        String category = book.getCategory() != null ? book.getCategory().trim() : null;
+        categories[ordinal] = category;
+        if (category != null && !category.isEmpty()) {
+            byCategory.computeIfAbsent(category, key -> new CompressedBitmap()).add(ordinal);
+        }
+        years[ordinal] = book.getPublishedYear() != null ? book.getPublishedYear() : NO_YEAR;
+        if (years[ordinal] != NO_YEAR) {
+            byYear.computeIfAbsent(years[ordinal], key -> new CompressedBitmap()).add(ordinal);
+        }
+        setAvailable(ordinal, book.getAvailableCopies() != null ? book.getAvailableCopies() : 0);
+        versions[ordinal] = version;
+    }
+
+    private void remove(Long bookId) {
+        int ordinal = ordinalOf(bookId);
+        if (ordinal >= 0) {
+            clearAttributes(ordinal);
+            setAvailable(ordinal, 0);
+            all.remove(ordinal);
+        } else {
+            ordinal = newOrdinal(bookId);
+        }
+        versions[ordinal] = BookEvent.DELETED_VERSION;
+    }
+
+    // Ordinal of the book, or -1
+    private int ordinalOf(long bookId) {
+        return ordinals.get(bookId) - 1;
+    }
+
+    private int newOrdinal(long bookId) {
+        int ordinal = nextOrdinal++;
+        ensureCapacity(nextOrdinal);
+        ordinals.put(bookId, ordinal + 1);
+        bookIds[ordinal] = bookId;
+        years[ordinal] = NO_YEAR;
+        return ordinal;
+    }
+
+    private void setAvailable(int ordinal, int available) {
+        availableCopies[ordinal] = available;
+        if (available > 0) {
+            inStock.add(ordinal);
+        } else {
+            inStock.remove(ordinal);
+        }
+    }
+
+    private void clearAttributes(int ordinal) {
+        String category = categories[ordinal];
+        if (category != null) {
+            removeFrom(byCategory, category, ordinal);
+            categories[ordinal] = null;
+        }
+        if (years[ordinal] != NO_YEAR) {
+            removeFrom(byYear, years[ordinal], ordinal);
+            years[ordinal] = NO_YEAR;
+        }
+    }
+
+    private static <K> void removeFrom(TreeMap<K, CompressedBitmap> index, K key, int ordinal) {
+        CompressedBitmap bitmap = index.get(key);
+        if (bitmap != null) {
+            bitmap.remove(ordinal);
+            if (bitmap.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > bookIds.length) {
+            int grown = Math.max(capacity, bookIds.length * 2);
+            bookIds = Arrays.copyOf(bookIds, grown);
+            categories = Arrays.copyOf(categories, grown);
+            availableCopies = Arrays.copyOf(availableCopies, grown);
+            years = Arrays.copyOf(years, grown);
+            versions = Arrays.copyOf(versions, grown);
+        }
+    }
+}
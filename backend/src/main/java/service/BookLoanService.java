@@ -1,15 +1,23 @@
 package com.library.service;
 
+import com.library.dto.BatchItem;
+import com.library.dto.loan.BorrowerRank;
 import com.library.dto.loan.LoanRequest;
 import com.library.dto.loan.LoanResponse;
+import com.library.dto.loan.NormalizedLoanList;
 import com.library.entity.Book;
 import com.library.entity.BookLoan;
+import com.library.entity.LoanHistory;
 import com.library.entity.User;
+import com.library.event.LoanEvent;
 import com.library.repository.BookLoanRepository;
 import com.library.repository.BookRepository;
+import com.library.repository.LoanHistoryRepository;
 import com.library.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -18,7 +26,14 @@ import java.util.stream.Collectors;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -34,18 +49,31 @@ public class BookLoanService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private LoanHistoryRepository loanHistoryRepository;
+
     @Autowired
     private BookService bookService;
 
+    @Autowired
+    private BorrowerLeaderboardService borrowerLeaderboardService;
+
+    @Autowired
+    private FinePolicy finePolicy;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     // Default loan period in days
     private static final int DEFAULT_LOAN_PERIOD_DAYS = 14;
-    private static final BigDecimal DAILY_FINE_RATE = new BigDecimal("0.50"); // $0.50 per day
     private static final int MAX_ACTIVE_LOANS_PER_USER = 5;
+    private static final Set<BookLoan.LoanStatus> OPEN_STATUSES =
+            EnumSet.of(BookLoan.LoanStatus.ACTIVE, BookLoan.LoanStatus.OVERDUE);
 
     // Create new loan
     public LoanResponse createLoan(LoanRequest loanRequest) {
-        // Validate user
-        User user = userRepository.findById(loanRequest.getUserId())
+        // Validate user, locking its row so concurrent loans for the same user are checked one at a time
+        User user = userRepository.findByIdForUpdate(loanRequest.getUserId())
                 .orElseThrow(() -> new RuntimeException("User not found with id: " + loanRequest.getUserId()));
 
         // Validate book
@@ -67,16 +95,8 @@ public class BookLoanService {
             throw new RuntimeException("Book is not available for loan");
         }
 
-// Check if user already has this book on loan
-        boolean hasActiveLoan = bookLoanRepository.findByUserIdAndStatus(user.getId(), BookLoan.LoanStatus.ACTIVE)
-                .stream()
-                .anyMatch(loan -> loan.getBook().getId().equals(book.getId()));
-
-        boolean hasOverdueLoan = bookLoanRepository.findByUserIdAndStatus(user.getId(), BookLoan.LoanStatus.OVERDUE)
-                .stream()
-                .anyMatch(loan -> loan.getBook().getId().equals(book.getId()));
-
-        if (hasActiveLoan || hasOverdueLoan) {
+// Check if user already has this book on loan (active or overdue)
+        if (hasBorrowed(user, book)) {
             throw new RuntimeException("User already has this book on loan");
         }
 
@@ -100,19 +120,27 @@ public class BookLoanService {
         bookService.reserveBook(book.getId());
 
         BookLoan savedLoan = bookLoanRepository.save(loan);
+        publishEvent(LoanEvent.Type.CREATED, savedLoan, 0);
         return LoanResponse.fromEntity(savedLoan);
     }
 
     // Return book
     public LoanResponse returnBook(Long loanId) {
+        return returnBook(loanId, null);
+    }
+
+    // Return book, failing if the loan no longer has the version the client read (If-Match)
+    public LoanResponse returnBook(Long loanId, Long expectedVersion) {
         BookLoan loan = bookLoanRepository.findById(loanId)
                 .orElseThrow(() -> new RuntimeException("Loan not found with id: " + loanId));
+        EntityTagService.checkVersion("Loan", loanId, loan.getVersion(), expectedVersion);
 
         if (loan.getStatus() != BookLoan.LoanStatus.ACTIVE) {
             throw new RuntimeException("Loan is not active");
         }
 
         // Calculate fine if overdue
+        long fineBefore = FinePolicy.toCents(loan.getFine());
         if (loan.isOverdue()) {
             BigDecimal fine = calculateFine(loan);
             loan.setFine(fine);
@@ -125,59 +153,159 @@ public class BookLoanService {
         bookService.returnBook(loan.getBook().getId());
 
         BookLoan updatedLoan = bookLoanRepository.save(loan);
+        publishEvent(LoanEvent.Type.RETURNED, updatedLoan, FinePolicy.toCents(updatedLoan.getFine()) - fineBefore);
         return LoanResponse.fromEntity(updatedLoan);
     }
 
-    // Get loan by ID
+    // Get loan by ID (falls back to the archive for old returned loans)
+    @Coalesced
     public LoanResponse getLoanById(Long id) {
-        BookLoan loan = bookLoanRepository.findById(id)
+        return bookLoanRepository.findById(id)
+                .map(LoanResponse::fromEntity)
+                .or(() -> loanHistoryRepository.findById(id).map(LoanResponse::fromHistory))
                 .orElseThrow(() -> new RuntimeException("Loan not found with id: " + id));
-        return LoanResponse.fromEntity(loan);
+    }
+
+    // Get loans by id in request order: chunked IN queries on book_loans, then on the archive for the rest
+    public List<BatchItem<LoanResponse>> getLoansByIds(List<Long> ids) {
+        Set<Long> distinct = BatchLookup.distinctIds(ids);
+        Map<Long, LoanResponse> found = new HashMap<>(distinct.size() * 2);
+        BatchLookup.fetchInChunks(distinct, bookLoanRepository::findWithUserAndBookByIdIn,
+                BookLoan::getId, LoanResponse::fromEntity, found);
+        BatchLookup.fetchInChunks(BatchLookup.missing(distinct, found), loanHistoryRepository::findAllById,
+                LoanHistory::getId, LoanResponse::fromHistory, found);
+        return BatchLookup.inRequestOrder(ids, found);
     }
 
     // Get all loans
+    @Coalesced
     public List<LoanResponse> getAllLoans() {
         return bookLoanRepository.findAll().stream()
                 .map(LoanResponse::fromEntity)
                 .collect(Collectors.toList());
     }
 
+    // Get all loans, books and users listed once
+    @Coalesced
+    public NormalizedLoanList getAllLoansNormalized() {
+        return NormalizedLoanList.of(bookLoanRepository.findAll());
+    }
+
     // Get active loans
+    @Coalesced
     public List<LoanResponse> getActiveLoans() {
         return bookLoanRepository.findByStatus(BookLoan.LoanStatus.ACTIVE).stream()
                 .map(LoanResponse::fromEntity)
                 .collect(Collectors.toList());
     }
 
-    // Get loans by user
+    // Get active loans, books and users listed once
+    @Coalesced
+    public NormalizedLoanList getActiveLoansNormalized() {
+        return NormalizedLoanList.of(bookLoanRepository.findByStatus(BookLoan.LoanStatus.ACTIVE));
+    }
+
+    // Get loans by user (live and archived), newest first like the paged history
+    @Coalesced
     public List<LoanResponse> getLoansByUser(Long userId) {
-        return bookLoanRepository.findByUserId(userId).stream()
+        List<LoanResponse> loans = bookLoanRepository.findByUserId(userId).stream()
                 .map(LoanResponse::fromEntity)
                 .collect(Collectors.toList());
+        loanHistoryRepository.findByUserId(userId).stream()
+                .map(LoanResponse::fromHistory)
+                .forEach(loans::add);
+        loans.sort(Comparator.comparing(LoanResponse::getLoanDate).reversed());
+        return loans;
+    }
+
+    // Get loans by user (live and archived), newest first, books and users listed once
+    @Coalesced
+    public NormalizedLoanList getLoansByUserNormalized(Long userId) {
+        NormalizedLoanList loans = NormalizedLoanList.of(bookLoanRepository.findByUserId(userId));
+        loanHistoryRepository.findByUserId(userId).forEach(loans::add);
+        loans.getLoans().sort(Comparator.comparing(NormalizedLoanList.LoanEntry::getLoanDate).reversed());
+        return loans;
     }
 
     // Get active loans by user
+    @Coalesced
     public List<LoanResponse> getActiveLoansByUser(Long userId) {
         return bookLoanRepository.findByUserIdAndStatus(userId, BookLoan.LoanStatus.ACTIVE).stream()
                 .map(LoanResponse::fromEntity)
                 .collect(Collectors.toList());
     }
 
-    // Get loan history by user with pagination
+    // Get active loans by user, books and users listed once
+    @Coalesced
+    public NormalizedLoanList getActiveLoansByUserNormalized(Long userId) {
+        return NormalizedLoanList.of(bookLoanRepository.findByUserIdAndStatus(userId, BookLoan.LoanStatus.ACTIVE));
+    }
+
+    // Get loan history by user with pagination, merged across live and archived loans
+    @Coalesced
     public Page<LoanResponse> getLoanHistoryByUser(Long userId, int page, int size) {
         Pageable pageable = PageRequest.of(page, size);
-        return bookLoanRepository.findByUserIdOrderByLoanDateDesc(userId, pageable)
-                .map(LoanResponse::fromEntity);
+        long total = bookLoanRepository.countByUserId(userId) + loanHistoryRepository.countByUserId(userId);
+        long offset = pageable.getOffset();
+
+        // A live loan's merged position is its live index plus the archived loans newer than it.
+        // The live tier is small (settled loans get archived), so this places every live loan,
+        // and the rest of the page is read from the archive at the offset that remains.
+        List<Long> livePageIds = new ArrayList<>();
+        long liveBeforePage = 0;
+        List<Object[]> positions = bookLoanRepository.findHistoryPositionsByUserId(userId);
+        for (int i = 0; i < positions.size(); i++) {
+            long position = i + (Long) positions.get(i)[1];
+            if (position < offset) {
+                liveBeforePage++;
+            } else if (position < offset + size) {
+                livePageIds.add((Long) positions.get(i)[0]);
+            } else {
+                break;
+            }
+        }
+
+        Map<Long, BookLoan> liveById = bookLoanRepository.findAllById(livePageIds).stream()
+                .collect(Collectors.toMap(BookLoan::getId, Function.identity()));
+        List<LoanResponse> merged = new ArrayList<>(size);
+        for (Long id : livePageIds) {
+            merged.add(LoanResponse.fromEntity(liveById.get(id)));
+        }
+        int archivedInPage = size - livePageIds.size();
+        if (archivedInPage > 0) {
+            loanHistoryRepository.findByUserIdNewestFirst(userId, offset - liveBeforePage, archivedInPage).stream()
+                    .map(LoanResponse::fromHistory)
+                    .forEach(merged::add);
+        }
+        // Stable sort: on equal dates live loans stay ahead, as in the position count
+        merged.sort(Comparator.comparing(LoanResponse::getLoanDate).reversed());
+        return new PageImpl<>(merged, pageable, total);
     }
 
     // Get overdue loans
+    @Coalesced
     public List<LoanResponse> getOverdueLoans() {
         return bookLoanRepository.findOverdueLoans(LocalDateTime.now()).stream()
                 .map(LoanResponse::fromEntity)
                 .collect(Collectors.toList());
     }
 
+    // Get overdue loans, books and users listed once
+    @Coalesced
+    public NormalizedLoanList getOverdueLoansNormalized() {
+        return NormalizedLoanList.of(bookLoanRepository.findOverdueLoans(LocalDateTime.now()));
+    }
+
+    // Get overdue loans by user
+    @Coalesced
+    public List<LoanResponse> getOverdueLoansByUser(Long userId) {
+        return bookLoanRepository.findOverdueLoansByUserId(userId, LocalDateTime.now()).stream()
+                .map(LoanResponse::fromEntity)
+                .collect(Collectors.toList());
+    }
+
     // Get loans due soon (within specified days)
+    @Coalesced
     public List<LoanResponse> getLoansDueSoon(int days) {
         LocalDateTime currentDate = LocalDateTime.now();
         LocalDateTime dueDate = currentDate.plusDays(days);
@@ -186,10 +314,23 @@ public class BookLoanService {
                 .collect(Collectors.toList());
     }
 
+    // Get loans due soon (within specified days), books and users listed once
+    @Coalesced
+    public NormalizedLoanList getLoansDueSoonNormalized(int days) {
+        LocalDateTime currentDate = LocalDateTime.now();
+        return NormalizedLoanList.of(bookLoanRepository.findLoansDueSoon(currentDate, currentDate.plusDays(days)));
+    }
+
     // Renew loan (extend due date)
     public LoanResponse renewLoan(Long loanId, int additionalDays) {
+        return renewLoan(loanId, additionalDays, null);
+    }
+
+    // Renew loan, failing if it no longer has the version the client read (If-Match)
+    public LoanResponse renewLoan(Long loanId, int additionalDays, Long expectedVersion) {
         BookLoan loan = bookLoanRepository.findById(loanId)
                 .orElseThrow(() -> new RuntimeException("Loan not found with id: " + loanId));
+        EntityTagService.checkVersion("Loan", loanId, loan.getVersion(), expectedVersion);
 
         if (loan.getStatus() != BookLoan.LoanStatus.ACTIVE) {
             throw new RuntimeException("Cannot renew inactive loan");
@@ -203,57 +344,110 @@ public class BookLoanService {
         loan.setDueDate(loan.getDueDate().plusDays(additionalDays));
 
         BookLoan updatedLoan = bookLoanRepository.save(loan);
+        publishEvent(LoanEvent.Type.RENEWED, updatedLoan, 0);
         return LoanResponse.fromEntity(updatedLoan);
     }
 
     // Pay fine
     public LoanResponse payFine(Long loanId) {
+        return payFine(loanId, null);
+    }
+
+    // Pay fine, failing if the loan no longer has the version the client read (If-Match)
+    public LoanResponse payFine(Long loanId, Long expectedVersion) {
         BookLoan loan = bookLoanRepository.findById(loanId)
                 .orElseThrow(() -> new RuntimeException("Loan not found with id: " + loanId));
+        EntityTagService.checkVersion("Loan", loanId, loan.getVersion(), expectedVersion);
 
         if (loan.getFine().compareTo(BigDecimal.ZERO) <= 0) {
             throw new RuntimeException("No fine to pay for this loan");
         }
 
+        long paidCents = FinePolicy.toCents(loan.getFine());
         loan.setFine(BigDecimal.ZERO);
         BookLoan updatedLoan = bookLoanRepository.save(loan);
+        publishEvent(LoanEvent.Type.FINE_PAID, updatedLoan, -paidCents);
         return LoanResponse.fromEntity(updatedLoan);
     }
 
     // Update overdue status for all active loans
     @Transactional
     public void updateOverdueLoans() {
-        List<BookLoan> overdueLoans = bookLoanRepository.findOverdueLoans(LocalDateTime.now());
+        LocalDateTime now = LocalDateTime.now();
+        List<BookLoan> overdueLoans = bookLoanRepository.findOverdueLoansWithUser(now);
+
+        // Evaluate all fines in one pass over primitive arrays
+        int count = overdueLoans.size();
+        long[] dueDates = new long[count];
+        byte[] roles = new byte[count];
+        long[] fines = new long[count];
+        for (int i = 0; i < count; i++) {
+            BookLoan loan = overdueLoans.get(i);
+            dueDates[i] = FinePolicy.epochSecond(loan.getDueDate());
+            roles[i] = (byte) loan.getUser().getRole().ordinal();
+        }
+        finePolicy.evaluate(dueDates, roles, count, FinePolicy.epochSecond(now), fines);
 
-        for (BookLoan loan : overdueLoans) {
+        for (int i = 0; i < count; i++) {
+            BookLoan loan = overdueLoans.get(i);
             if (loan.getStatus() == BookLoan.LoanStatus.ACTIVE) {
+                long fineBefore = FinePolicy.toCents(loan.getFine());
                 loan.setStatus(BookLoan.LoanStatus.OVERDUE);
-                // Calculate and update fine
-                BigDecimal fine = calculateFine(loan);
-                loan.setFine(fine);
+                loan.setFine(FinePolicy.toAmount(fines[i]));
                 bookLoanRepository.save(loan);
+                publishEvent(LoanEvent.Type.OVERDUE, loan, fines[i] - fineBefore);
             }
         }
     }
 
     // Get loan statistics
+    @Coalesced
     public LoanStatistics getLoanStatistics() {
-        long totalLoans = bookLoanRepository.getTotalLoansCount();
+        long totalLoans = bookLoanRepository.getTotalLoansCount() + loanHistoryRepository.getTotalArchivedCount();
         long activeLoans = bookLoanRepository.getActiveLoansCount();
         long overdueLoans = bookLoanRepository.getOverdueLoansCount(LocalDateTime.now());
 
-        // Calculate total fines
-        List<BookLoan> loansWithFines = bookLoanRepository.findByFineGreaterThan(BigDecimal.ZERO);
-        BigDecimal totalFines = loansWithFines.stream()
-                .map(BookLoan::getFine)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        // Calculate total fines in the database instead of loading every fined loan
+        BigDecimal totalFines = bookLoanRepository.getTotalOutstandingFines();
 
         return new LoanStatistics(totalLoans, activeLoans, overdueLoans, totalFines);
     }
 
+    // Get most active borrowers in a time window
+    public List<BorrowerRank> getTopBorrowers(StatsWindow window, int limit) {
+        List<long[]> top = borrowerLeaderboardService.getTopBorrowers(window,
+                Math.min(limit, borrowerLeaderboardService.getCapacity()));
+        List<Long> userIds = top.stream().map(entry -> entry[0]).collect(Collectors.toList());
+        Map<Long, User> usersById = userRepository.findAllById(userIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+
+        List<BorrowerRank> ranks = new ArrayList<>(top.size());
+        for (long[] entry : top) {
+            User user = usersById.get(entry[0]);
+            if (user != null) {
+                ranks.add(new BorrowerRank(ranks.size() + 1, user.getId(), user.getUsername(),
+                        user.getFirstName() + " " + user.getLastName(), entry[1]));
+            }
+        }
+        return ranks;
+    }
+
     // Helper methods
+    // The limit and duplicate checks read book_loans, not the per-user summaries: those only
+    // move after commit, and this transaction may already have changed loans (circulation batches)
     private boolean canUserBorrowMoreBooks(User user) {
-        return bookLoanRepository.canUserBorrowMoreBooks(user);
+        return bookLoanRepository.countByUserIdAndStatus(user.getId(), BookLoan.LoanStatus.ACTIVE)
+                < MAX_ACTIVE_LOANS_PER_USER;
+    }
+
+    private boolean hasBorrowed(User user, Book book) {
+        return bookLoanRepository.existsByUserIdAndBookIdAndStatusIn(user.getId(), book.getId(), OPEN_STATUSES);
+    }
+
+    // Listeners receive the event only if the transaction commits
+    private void publishEvent(LoanEvent.Type type, BookLoan loan, long fineDeltaCents) {
+        eventPublisher.publishEvent(new LoanEvent(type, loan.getId(), loan.getUser().getId(),
+                loan.getBook().getId(), LocalDateTime.now(), loan.getDueDate(), fineDeltaCents));
     }
 
     private BigDecimal calculateFine(BookLoan loan) {
@@ -261,8 +455,8 @@ public class BookLoanService {
             return BigDecimal.ZERO;
         }
 
-        long daysOverdue = loan.getDaysOverdue();
-        return DAILY_FINE_RATE.multiply(new BigDecimal(daysOverdue));
+        long fineCents = finePolicy.fineCents(loan.getUser().getRole(), loan.getDueDate(), LocalDateTime.now());
+        return FinePolicy.toAmount(fineCents);
     }
 
     // Inner class for statistics
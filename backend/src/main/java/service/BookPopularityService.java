@@ -0,0 +1,180 @@
+package com.library.service;
+
+import com.library.event.BookEvent;
+import com.library.event.LoanEvent;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Incremental book popularity ranking.
+ *
+ * Every loan adds a weight to the book's score for each {@link StatsWindow}. ALL_TIME uses a
+ * constant weight (a plain loan count); the other windows use exponential decay with the window
+ * length as half-life. Weights are computed relative to a fixed landmark time (forward decay),
+ * so older scores never have to be touched and the ordering of books only changes when a book
+ * is loaned. Each window keeps its books in a sorted set, which makes top-K reads O(K).
+ */
+@Service
+public class BookPopularityService {
+
+    private static final double SECONDS_PER_DAY = 86_400d;
+    // Landmark weights grow over time; rescale well before doubles lose range
+    private static final double RESCALE_THRESHOLD = 1e100;
+
+    @Autowired
+    private CirculationJournal circulationJournal;
+
+    private final StatsWindow[] windows = StatsWindow.values();
+    private final double[] decayRates = new double[windows.length];
+    // Writes are serialized on this; readers only touch the concurrent rankings. A rescale
+    // builds new sets and swaps the whole list, so readers never see a half-rebuilt ranking
+    private volatile List<ConcurrentSkipListSet<RankedBook>> rankings;
+    private final Map<Long, double[]> scores = new HashMap<>();
+    private long landmark = epochSecond(LocalDateTime.now());
+
+    public BookPopularityService() {
+        List<ConcurrentSkipListSet<RankedBook>> initial = new ArrayList<>();
+        for (int i = 0; i < windows.length; i++) {
+            decayRates[i] = windows[i].isAllTime() ? 0 : Math.log(2) / (windows[i].getDays() * SECONDS_PER_DAY);
+            initial.add(new ConcurrentSkipListSet<>());
+        }
+        this.rankings = initial;
+    }
+
+    // Rebuild the scores by replaying the circulation journal once at startup
+    @PostConstruct
+    public void load() {
+        circulationJournal.replay(0, record -> {
+            if (record.getType() == LoanEvent.Type.CREATED) {
+                recordLoan(record.getBookId(), record.getOccurredAt());
+            }
+        });
+    }
+
+    @Order(EntityTagService.READ_MODEL_ORDER)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onLoanEvent(LoanEvent event) {
+        if (event.getType() == LoanEvent.Type.CREATED) {
+            recordLoan(event.getBookId(), event.getOccurredAt());
+        }
+    }
+
+    @Order(EntityTagService.READ_MODEL_ORDER)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onBookEvent(BookEvent event) {
+        if (event.getType() == BookEvent.Type.DELETED) {
+            removeBook(event.getBookId());
+        }
+    }
+
+    // Add one loan of the given book at the given time to every window
+    public synchronized void recordLoan(Long bookId, LocalDateTime loanDate) {
+        long time = epochSecond(loanDate);
+        if (weight(maxDecayRate(), time) > RESCALE_THRESHOLD) {
+            rescale(time);
+        }
+
+        double[] bookScores = scores.computeIfAbsent(bookId, id -> new double[windows.length]);
+        for (int i = 0; i < windows.length; i++) {
+            ConcurrentSkipListSet<RankedBook> ranking = rankings.get(i);
+            double previous = bookScores[i];
+            bookScores[i] += weight(decayRates[i], time);
+            // Add the new position before dropping the old one, so a concurrent read never misses the book
+            ranking.add(new RankedBook(bookId, bookScores[i]));
+            ranking.remove(new RankedBook(bookId, previous));
+        }
+    }
+
+    // Forget a deleted book
+    public synchronized void removeBook(Long bookId) {
+        double[] bookScores = scores.remove(bookId);
+        if (bookScores != null) {
+            for (int i = 0; i < windows.length; i++) {
+                rankings.get(i).remove(new RankedBook(bookId, bookScores[i]));
+            }
+        }
+    }
+
+    // Ids of the most popular books in the window, best first
+    public List<Long> getTopBookIds(StatsWindow window, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be at least 1");
+        }
+        // A book being re-ranked can be seen at both positions; the first one is the new one
+        Set<Long> ids = new LinkedHashSet<>();
+        Iterator<RankedBook> iterator = rankings.get(window.ordinal()).iterator();
+        while (ids.size() < limit && iterator.hasNext()) {
+            ids.add(iterator.next().bookId);
+        }
+        return new ArrayList<>(ids);
+    }
+
+    // Helper methods
+    private double weight(double decayRate, long time) {
+        return decayRate == 0 ? 1d : Math.exp(decayRate * (time - landmark));
+    }
+
+    private double maxDecayRate() {
+        double max = 0;
+        for (double rate : decayRates) {
+            max = Math.max(max, rate);
+        }
+        return max;
+    }
+
+    // Move the landmark to the given time, scaling all scores down so their order is preserved
+    private void rescale(long newLandmark) {
+        double[] factors = new double[windows.length];
+        List<ConcurrentSkipListSet<RankedBook>> rescaled = new ArrayList<>();
+        for (int i = 0; i < windows.length; i++) {
+            factors[i] = decayRates[i] == 0 ? 1d : Math.exp(-decayRates[i] * (newLandmark - landmark));
+            rescaled.add(new ConcurrentSkipListSet<>());
+        }
+        landmark = newLandmark;
+
+        for (Map.Entry<Long, double[]> entry : scores.entrySet()) {
+            double[] bookScores = entry.getValue();
+            for (int i = 0; i < windows.length; i++) {
+                bookScores[i] *= factors[i];
+                rescaled.get(i).add(new RankedBook(entry.getKey(), bookScores[i]));
+            }
+        }
+        rankings = rescaled;
+    }
+
+    private static long epochSecond(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    // Sort key: highest score first, ties broken by book id
+    private static final class RankedBook implements Comparable<RankedBook> {
+        private final long bookId;
+        private final double score;
+
+        private RankedBook(long bookId, double score) {
+            this.bookId = bookId;
+            this.score = score;
+        }
+
+        @Override
+        public int compareTo(RankedBook other) {
+            int byScore = Double.compare(other.score, score);
+            return byScore != 0 ? byScore : Long.compare(bookId, other.bookId);
+        }
+    }
+}
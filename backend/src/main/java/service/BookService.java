@@ -1,31 +1,78 @@
 package com.library.service;
 
+import com.library.dto.BatchItem;
+import com.library.dto.book.BookChanges;
+import com.library.dto.book.BookFacetQuery;
+import com.library.dto.book.BookFacetResult;
+import com.library.dto.book.BookField;
 import com.library.dto.book.BookRequest;
 import com.library.dto.book.BookResponse;
+import com.library.dto.book.CategorySummary;
 import com.library.entity.Book;
+import com.library.event.BookEvent;
 import com.library.repository.BookRepository;
+import com.library.util.Isbn;
+import jakarta.persistence.Tuple;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class BookService {
 
+    private static final int MAX_CHANGES_PER_SYNC = 10000;
+
     @Autowired
     private BookRepository bookRepository;
 
+    @Autowired
+    private BookPopularityService bookPopularityService;
+
+    @Autowired
+    private BookAvailabilityRegistry bookAvailabilityRegistry;
+
+    @Autowired
+    private BookFacetIndex bookFacetIndex;
+
+    @Autowired
+    private CategoryCatalog categoryCatalog;
+
+    @Autowired
+    private IsbnIndex isbnIndex;
+
+    @Autowired
+    private CatalogChangeLog catalogChangeLog;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     // Create new book
     public BookResponse createBook(BookRequest bookRequest) {
-        // Check if ISBN already exists
-        if (bookRepository.existsByIsbn(bookRequest.getIsbn())) {
+        // Check if ISBN is valid and not already taken
+        long isbnKey = Isbn.toKey(bookRequest.getIsbn());
+        if (isbnKey == Isbn.INVALID) {
+            throw new RuntimeException("Invalid ISBN: " + bookRequest.getIsbn());
+        }
+        if (!isbnIndex.claim(isbnKey, null)) {
             throw new RuntimeException("Book with ISBN " + bookRequest.getIsbn() + " already exists");
         }
 
@@ -34,18 +81,23 @@ public class BookService {
         book.setTitle(bookRequest.getTitle());
         book.setAuthor(bookRequest.getAuthor());
         book.setIsbn(bookRequest.getIsbn());
+        book.setIsbnKey(isbnKey);
         book.setPublisher(bookRequest.getPublisher());
         book.setPublishedYear(bookRequest.getPublishedYear());
         book.setCategory(bookRequest.getCategory());
+        book.setCategoryId(categoryCatalog.resolve(bookRequest.getCategory()));
         book.setTotalCopies(bookRequest.getTotalCopies());
         book.setAvailableCopies(bookRequest.getTotalCopies()); // Initially all copies are available
         book.setDescription(bookRequest.getDescription());
 
-        Book savedBook = bookRepository.save(book);
+        Book savedBook = bookRepository.saveAndFlush(book);
+        eventPublisher.publishEvent(new BookEvent(BookEvent.Type.CREATED, savedBook.getId(),
+                BookResponse.summaryOf(savedBook), savedBook.getVersion(), 0));
         return BookResponse.fromEntity(savedBook);
     }
 
     // Get book by ID
+    @Coalesced
     public BookResponse getBookById(Long id) {
         Book book = bookRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Book not found with id: " + id));
@@ -53,74 +105,189 @@ public class BookService {
     }
 
     // Get book by ISBN
+    @Coalesced
     public BookResponse getBookByIsbn(String isbn) {
-        Book book = bookRepository.findByIsbn(isbn)
-                .orElseThrow(() -> new RuntimeException("Book not found with ISBN: " + isbn));
-        return BookResponse.fromEntity(book);
+        long isbnKey = Isbn.toKey(isbn);
+        Optional<Book> book;
+        if (isbnKey == Isbn.INVALID) {
+            // Legacy ISBNs that do not validate can only be matched exactly
+            book = bookRepository.findByIsbn(isbn);
+        } else {
+            long bookId = isbnIndex.findBookId(isbnKey);
+            book = bookId != 0
+                    ? bookRepository.findById(bookId)
+                    : bookRepository.findFirstByIsbnKeyOrderByIdAsc(isbnKey);
+        }
+        return BookResponse.fromEntity(book
+                .orElseThrow(() -> new RuntimeException("Book not found with ISBN: " + isbn)));
     }
 
     // Get all books
+    @Coalesced
     public List<BookResponse> getAllBooks() {
         return bookRepository.findAll().stream()
-                .map(BookResponse::fromEntity)
+                .map(BookResponse::summaryOf)
                 .collect(Collectors.toList());
     }
 
+    // Get books by id in request order: served from the availability registry, the rest by chunked IN queries
+    public List<BatchItem<BookResponse>> getBooksByIds(List<Long> ids) {
+        Set<Long> distinct = BatchLookup.distinctIds(ids);
+        Map<Long, BookResponse> found = new HashMap<>(distinct.size() * 2);
+        for (Long id : distinct) {
+            bookAvailabilityRegistry.getBook(id).ifPresent(book -> found.put(id, book));
+        }
+        BatchLookup.fetchInChunks(BatchLookup.missing(distinct, found), bookRepository::findAllById,
+                Book::getId, BookResponse::summaryOf, found);
+        return BatchLookup.inRequestOrder(ids, found);
+    }
+
+    // Get catalog changes since a sync token, or the whole catalog if the token cannot be served
+    public BookChanges getChangesSince(String token, int limit) {
+        if (limit < 1 || limit > MAX_CHANGES_PER_SYNC) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_CHANGES_PER_SYNC);
+        }
+        BookChanges changes = catalogChangeLog.since(token, limit);
+        if (changes != null) {
+            return changes;
+        }
+        // Take the token first: changes committed during the snapshot are sent again next time
+        String current = catalogChangeLog.currentToken();
+        return new BookChanges(current, true, false, getAllBooks(), List.of());
+    }
+
     // Get books with pagination and sorting
+    @Coalesced
     public Page<BookResponse> getBooksWithPagination(int page, int size, String sortBy, String sortDirection) {
         Sort.Direction direction = Sort.Direction.fromString(sortDirection);
         Pageable pageable = PageRequest.of(page, size, Sort.by(direction, sortBy));
 
         return bookRepository.findAll(pageable)
-                .map(BookResponse::fromEntity);
+                .map(BookResponse::summaryOf);
     }
 
-    // Get available books only
+    // Get available books only (served from the availability registry)
+    @Coalesced
     public List<BookResponse> getAvailableBooks() {
-        return bookRepository.findByAvailableCopiesGreaterThanOrderByTitleAsc(0).stream()
-                .map(BookResponse::fromEntity)
-                .collect(Collectors.toList());
+        return bookAvailabilityRegistry.getAvailableBooks();
+    }
+
+    // Filter by any AND/OR/NOT combination of category, year range and availability, with
+    // facet counts (served from the bitmap indexes)
+    public BookFacetResult searchFacets(BookFacetQuery query) {
+        return bookFacetIndex.search(query);
     }
 
     // Get books by category
+    @Coalesced
     public List<BookResponse> getBooksByCategory(String category) {
-        return bookRepository.findByCategory(category).stream()
-                .map(BookResponse::fromEntity)
+        Integer categoryId = categoryCatalog.idOf(category);
+        if (categoryId == null) {
+            return new ArrayList<>();
+        }
+        return bookRepository.findByCategoryId(categoryId).stream()
+                .map(BookResponse::summaryOf)
                 .collect(Collectors.toList());
     }
 
     // Get books by author
+    @Coalesced
     public List<BookResponse> getBooksByAuthor(String author) {
         return bookRepository.findByAuthorContainingIgnoreCase(author).stream()
-                .map(BookResponse::fromEntity)
+                .map(BookResponse::summaryOf)
                 .collect(Collectors.toList());
     }
 
     // Search books (title, author, ISBN)
+    @Coalesced
     public List<BookResponse> searchBooks(String searchTerm) {
         return bookRepository.searchBooks(searchTerm).stream()
-                .map(BookResponse::fromEntity)
+                .map(BookResponse::summaryOf)
                 .collect(Collectors.toList());
     }
 
     // Search books with pagination
+    @Coalesced
     public Page<BookResponse> searchBooksWithPagination(String searchTerm, int page, int size) {
         Pageable pageable = PageRequest.of(page, size);
         return bookRepository.searchBooksWithPagination(searchTerm, pageable)
-                .map(BookResponse::fromEntity);
+                .map(BookResponse::summaryOf);
+    }
+
+    // Sparse fieldsets: the same lookups selecting only the columns behind the requested fields
+    @Coalesced
+    public Map<String, Object> getBookById(Long id, Set<BookField> fields) {
+        List<Tuple> books = bookRepository.findAttributes(attributesOf(fields),
+                (book, query, cb) -> cb.equal(book.get("id"), id));
+        if (books.isEmpty()) {
+            throw new RuntimeException("Book not found with id: " + id);
+        }
+        return toFieldMap(fields, books.get(0));
+    }
+
+    @Coalesced
+    public List<Map<String, Object>> getAllBooks(Set<BookField> fields) {
+        return findFields(fields, null);
+    }
+
+    @Coalesced
+    public Page<Map<String, Object>> getBooksWithPagination(int page, int size, String sortBy, String sortDirection,
+                                                            Set<BookField> fields) {
+        Sort.Direction direction = Sort.Direction.fromString(sortDirection);
+        Pageable pageable = PageRequest.of(page, size, Sort.by(direction, sortBy));
+        return bookRepository.findAttributes(attributesOf(fields), null, pageable)
+                .map(tuple -> toFieldMap(fields, tuple));
+    }
+
+    @Coalesced
+    public List<Map<String, Object>> getBooksByCategory(String category, Set<BookField> fields) {
+        Integer categoryId = categoryCatalog.idOf(category);
+        if (categoryId == null) {
+            return new ArrayList<>();
+        }
+        return findFields(fields, (book, query, cb) -> cb.equal(book.get("categoryId"), categoryId));
+    }
+
+    @Coalesced
+    public List<Map<String, Object>> getBooksByAuthor(String author, Set<BookField> fields) {
+        return findFields(fields, (book, query, cb) ->
+                cb.like(cb.lower(book.get("author")), "%" + author.toLowerCase() + "%"));
+    }
+
+    @Coalesced
+    public List<Map<String, Object>> searchBooks(String searchTerm, Set<BookField> fields) {
+        return findFields(fields, matching(searchTerm));
+    }
+
+    @Coalesced
+    public Page<Map<String, Object>> searchBooksWithPagination(String searchTerm, int page, int size,
+                                                               Set<BookField> fields) {
+        return bookRepository.findAttributes(attributesOf(fields), matching(searchTerm), PageRequest.of(page, size))
+                .map(tuple -> toFieldMap(fields, tuple));
     }
 
     // Update book
     public BookResponse updateBook(Long id, BookRequest bookRequest) {
+        return updateBook(id, bookRequest, null);
+    }
+
+    // Update book, failing if it no longer has the version the client read (If-Match)
+    public BookResponse updateBook(Long id, BookRequest bookRequest, Long expectedVersion) {
         Book book = bookRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Book not found with id: " + id));
+        EntityTagService.checkVersion("Book", id, book.getVersion(), expectedVersion);
 
-        // Check if ISBN is being changed and if it already exists
+        // Check if ISBN is being changed, is valid and is not already taken
         if (!book.getIsbn().equals(bookRequest.getIsbn())) {
-            if (bookRepository.existsByIsbn(bookRequest.getIsbn())) {
+            long isbnKey = Isbn.toKey(bookRequest.getIsbn());
+            if (isbnKey == Isbn.INVALID) {
+                throw new RuntimeException("Invalid ISBN: " + bookRequest.getIsbn());
+            }
+            if (!Long.valueOf(isbnKey).equals(book.getIsbnKey()) && !isbnIndex.claim(isbnKey, book.getId())) {
                 throw new RuntimeException("Book with ISBN " + bookRequest.getIsbn() + " already exists");
             }
             book.setIsbn(bookRequest.getIsbn());
+            book.setIsbnKey(isbnKey);
         }
 
         book.setTitle(bookRequest.getTitle());
@@ -128,6 +295,7 @@ public class BookService {
         book.setPublisher(bookRequest.getPublisher());
         book.setPublishedYear(bookRequest.getPublishedYear());
         book.setCategory(bookRequest.getCategory());
+        book.setCategoryId(categoryCatalog.resolve(bookRequest.getCategory()));
         book.setDescription(bookRequest.getDescription());
 
         // Update total copies and adjust available copies accordingly
@@ -140,7 +308,10 @@ public class BookService {
             throw new RuntimeException("Cannot reduce total copies below currently loaned copies");
         }
 
-        Book updatedBook = bookRepository.save(book);
+        // Flushed so the event carries the version this write commits with
+        Book updatedBook = bookRepository.saveAndFlush(book);
+        eventPublisher.publishEvent(new BookEvent(BookEvent.Type.UPDATED, id, BookResponse.summaryOf(updatedBook),
+                updatedBook.getVersion(), 0));
         return BookResponse.fromEntity(updatedBook);
     }
 
@@ -156,40 +327,79 @@ public class BookService {
         }
 
         bookRepository.deleteById(id);
+        eventPublisher.publishEvent(new BookEvent(BookEvent.Type.DELETED, id, null, BookEvent.DELETED_VERSION, 0));
     }
 
-    // Get all categories
+    // Get all categories (served from the category catalog)
     public List<String> getAllCategories() {
-        return bookRepository.findDistinctCategories();
+        return categoryCatalog.getCategoryNames();
+    }
+
+    // Get categories with their book counts
+    public List<CategorySummary> getCategorySummaries() {
+        return categoryCatalog.getCategories();
     }
 
     // Get books by publication year range
+    @Coalesced
     public List<BookResponse> getBooksByYearRange(Integer startYear, Integer endYear) {
         return bookRepository.findByPublishedYearBetween(startYear, endYear).stream()
-                .map(BookResponse::fromEntity)
+                .map(BookResponse::summaryOf)
                 .collect(Collectors.toList());
     }
 
-    // Get most popular books (most loaned)
+    // Get most popular books (most loaned) over all time
     public List<BookResponse> getMostPopularBooks(int limit) {
-        Pageable pageable = PageRequest.of(0, limit);
-        return bookRepository.findMostPopularBooks(pageable).stream()
-                .map(BookResponse::fromEntity)
-                .collect(Collectors.toList());
+        return getMostPopularBooks(limit, StatsWindow.ALL_TIME);
+    }
+
+    // Get most popular books (most loaned) within a time window
+    @Coalesced
+    public List<BookResponse> getMostPopularBooks(int limit, StatsWindow window) {
+        List<Long> topIds = bookPopularityService.getTopBookIds(window, limit);
+        Map<Long, Book> booksById = bookRepository.findAllById(topIds).stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity()));
+
+        List<BookResponse> popular = new ArrayList<>(topIds.size());
+        for (Long id : topIds) {
+            Book book = booksById.get(id);
+            if (book != null) {
+                popular.add(BookResponse.summaryOf(book));
+            }
+        }
+
+        // Not enough loaned books yet: fill up with other books, as the old ranking did
+        if (popular.size() < limit) {
+            Set<Long> included = new HashSet<>(booksById.keySet());
+            for (Book book : bookRepository.findAll(PageRequest.of(0, limit)).getContent()) {
+                if (popular.size() >= limit) {
+                    break;
+                }
+                if (included.add(book.getId())) {
+                    popular.add(BookResponse.summaryOf(book));
+                }
+            }
+        }
+        return popular;
     }
 
     // Get out of stock books
+    @Coalesced
     public List<BookResponse> getOutOfStockBooks() {
         return bookRepository.findByAvailableCopiesEquals(0).stream()
-                .map(BookResponse::fromEntity)
+                .map(BookResponse::summaryOf)
                 .collect(Collectors.toList());
     }
 
     // Book availability check
     public boolean isBookAvailable(Long bookId) {
-        Book book = bookRepository.findById(bookId)
+        return getBookAvailability(bookId).isAvailable();
+    }
+
+    // Available and total copies of a book, served from the availability registry
+    public BookAvailabilityRegistry.Availability getBookAvailability(Long bookId) {
+        return bookAvailabilityRegistry.getAvailability(bookId)
                 .orElseThrow(() -> new RuntimeException("Book not found with id: " + bookId));
-        return book.isAvailable();
     }
 
     // Reserve book (decrease available copies)
@@ -202,7 +412,9 @@ public class BookService {
         }
 
         book.decreaseAvailableCopies();
-        bookRepository.save(book);
+        Book savedBook = bookRepository.saveAndFlush(book);
+        eventPublisher.publishEvent(new BookEvent(BookEvent.Type.AVAILABILITY_CHANGED, bookId,
+                BookResponse.summaryOf(savedBook), savedBook.getVersion(), -1));
     }
 
     // Return book (increase available copies)
@@ -210,18 +422,60 @@ public class BookService {
         Book book = bookRepository.findById(bookId)
                 .orElseThrow(() -> new RuntimeException("Book not found with id: " + bookId));
 
+        int availableBefore = book.getAvailableCopies();
         book.increaseAvailableCopies();
-        bookRepository.save(book);
+        Book savedBook = bookRepository.saveAndFlush(book);
+        eventPublisher.publishEvent(new BookEvent(BookEvent.Type.AVAILABILITY_CHANGED, bookId,
+                BookResponse.summaryOf(savedBook), savedBook.getVersion(),
+                savedBook.getAvailableCopies() - availableBefore));
+    }
+
+    // Helper methods for sparse fieldsets
+    private List<Map<String, Object>> findFields(Set<BookField> fields, Specification<Book> filter) {
+        return bookRepository.findAttributes(attributesOf(fields), filter).stream()
+                .map(tuple -> toFieldMap(fields, tuple))
+                .collect(Collectors.toList());
+    }
+
+    // Title, author or ISBN contains the term (case insensitive), like BookRepository.searchBooks
+    private static Specification<Book> matching(String searchTerm) {
+        String pattern = "%" + searchTerm.toLowerCase() + "%";
+        return (book, query, cb) -> cb.or(
+                cb.like(cb.lower(book.get("title")), pattern),
+                cb.like(cb.lower(book.get("author")), pattern),
+                cb.like(cb.lower(book.get("isbn")), pattern));
+    }
+
+    private static Set<String> attributesOf(Set<BookField> fields) {
+        Set<String> attributes = new LinkedHashSet<>();
+        for (BookField field : fields) {
+            attributes.addAll(field.getAttributes());
+        }
+        return attributes;
+    }
+
+    private static Map<String, Object> toFieldMap(Set<BookField> fields, Tuple tuple) {
+        Map<String, Object> book = new LinkedHashMap<>();
+        for (BookField field : fields) {
+            switch (field) {
+                case AVAILABLE -> book.put(field.getName(), tuple.get("availableCopies", Integer.class) > 0);
+                case LOANED_COPIES -> book.put(field.getName(),
+                        tuple.get("totalCopies", Integer.class) - tuple.get("availableCopies", Integer.class));
+                default -> book.put(field.getName(), tuple.get(field.getAttributes().get(0)));
+            }
+        }
+        return book;
     }
 
     // Get book statistics
+    @Coalesced
     public BookStatistics getBookStatistics() {
         long totalBooks = bookRepository.count();
         long availableBooks = bookRepository.findByAvailableCopiesGreaterThan(0).size();
         long outOfStockBooks = bookRepository.findByAvailableCopiesEquals(0).size();
-        List<String> categories = bookRepository.findDistinctCategories();
+        int categories = categoryCatalog.getCategoryCount();
 
-        return new BookStatistics(totalBooks, availableBooks, outOfStockBooks, categories.size());
+        return new BookStatistics(totalBooks, availableBooks, outOfStockBooks, categories);
     }
 
     // Inner class for statistics
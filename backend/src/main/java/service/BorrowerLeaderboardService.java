@@ -0,0 +1,186 @@
+package com.library.service;
+
+import com.library.event.LoanEvent;
+import com.library.util.LongIntHashMap;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Incrementally maintained ranking of the most active borrowers.
+ *
+ * Per-user loan counts are kept in primitive maps: one for all time and one per rolling
+ * window. Each window also keeps the loans of every day it covers, so when the day changes
+ * the expired day is subtracted and the window's top list is rebuilt once. Between day
+ * changes a new loan only adjusts the bounded top list, which never needs a table scan.
+ */
+@Service
+public class BorrowerLeaderboardService {
+
+    @Autowired
+    private CirculationJournal circulationJournal;
+
+    // Number of borrowers kept in each top list
+    @Value("${app.leaderboard.size:100}")
+    private int capacity;
+
+    private final StatsWindow[] windows = StatsWindow.values();
+    private final LongIntHashMap[] counts = new LongIntHashMap[windows.length];
+    private final TopList[] topLists = new TopList[windows.length];
+
+    // Loans per user for each day still covered by the longest window
+    private final TreeMap<LocalDate, LongIntHashMap> days = new TreeMap<>();
+    private final int longestWindowDays;
+    private LocalDate today = LocalDate.now();
+
+    public BorrowerLeaderboardService() {
+        int longest = 0;
+        for (int i = 0; i < windows.length; i++) {
+            counts[i] = new LongIntHashMap();
+            longest = Math.max(longest, windows[i].getDays());
+        }
+        this.longestWindowDays = longest;
+    }
+
+    // Rebuild the counters by replaying the circulation journal once at startup
+    @PostConstruct
+    public synchronized void load() {
+        circulationJournal.replay(0, record -> {
+            if (record.getType() == LoanEvent.Type.CREATED) {
+                count(record.getUserId(), record.getOccurredAt().toLocalDate());
+            }
+        });
+        for (int i = 0; i < windows.length; i++) {
+            rebuildTopList(i);
+        }
+    }
+
+    @Order(EntityTagService.READ_MODEL_ORDER)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onLoanEvent(LoanEvent event) {
+        if (event.getType() == LoanEvent.Type.CREATED) {
+            recordLoan(event.getUserId(), event.getOccurredAt());
+        }
+    }
+
+    // Count a new loan and adjust the top lists
+    public synchronized void recordLoan(Long userId, LocalDateTime loanDate) {
+        advanceTo(LocalDate.now());
+        LocalDate day = loanDate.toLocalDate();
+        count(userId, day);
+        for (int i = 0; i < windows.length; i++) {
+            if (covers(windows[i], day)) {
+                topLists[i].offer(userId, counts[i].get(userId));
+            }
+        }
+    }
+
+    // Top borrowers in the window as (userId, loanCount), best first
+    public synchronized List<long[]> getTopBorrowers(StatsWindow window, int limit) {
+        advanceTo(LocalDate.now());
+        return topLists[window.ordinal()].top(limit);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    // Helper methods
+    private void count(long userId, LocalDate day) {
+        for (int i = 0; i < windows.length; i++) {
+            if (covers(windows[i], day)) {
+                counts[i].addTo(userId, 1);
+            }
+        }
+        if (!day.isAfter(today) && day.isAfter(today.minusDays(longestWindowDays))) {
+            days.computeIfAbsent(day, d -> new LongIntHashMap()).addTo(userId, 1);
+        }
+    }
+
+    private boolean covers(StatsWindow window, LocalDate day) {
+        return window.isAllTime() || day.isAfter(today.minusDays(window.getDays()));
+    }
+
+    // Move the rolling windows forward to the given day
+    private void advanceTo(LocalDate newToday) {
+        if (!newToday.isAfter(today)) {
+            return;
+        }
+        LocalDate previous = today;
+        today = newToday;
+        for (int i = 0; i < windows.length; i++) {
+            if (windows[i].isAllTime()) {
+                continue;
+            }
+            LocalDate oldStart = previous.minusDays(windows[i].getDays());
+            LocalDate newStart = newToday.minusDays(windows[i].getDays());
+            LongIntHashMap windowCounts = counts[i];
+            // Days in (oldStart, newStart] just fell out of this window
+            for (LongIntHashMap expired : days.subMap(oldStart, false, newStart, true).values()) {
+                expired.forEach((userId, loans) -> windowCounts.addTo(userId, -loans));
+            }
+            rebuildTopList(i);
+        }
+        days.headMap(newToday.minusDays(longestWindowDays), true).clear();
+    }
+
+    private void rebuildTopList(int windowIndex) {
+        TopList topList = new TopList(capacity);
+        counts[windowIndex].forEach(topList::offer);
+        topLists[windowIndex] = topList;
+    }
+
+    /**
+     * Bounded set of the highest counts. Counts only grow between rebuilds, so a user
+     * outside the list can only enter by overtaking the current minimum.
+     */
+    private static final class TopList {
+        private final int capacity;
+        private final LongIntHashMap members = new LongIntHashMap();
+        // Ordered by count then user id, lowest first
+        private final TreeSet<long[]> ranking = new TreeSet<>((a, b) ->
+                a[1] != b[1] ? Long.compare(a[1], b[1]) : Long.compare(b[0], a[0]));
+
+        private TopList(int capacity) {
+            this.capacity = capacity;
+        }
+
+        private void offer(long userId, int count) {
+            int current = members.get(userId);
+            if (current > 0) {
+                ranking.remove(new long[]{userId, current});
+            } else if (members.size() >= capacity) {
+                long[] lowest = ranking.first();
+                if (ranking.comparator().compare(new long[]{userId, count}, lowest) <= 0) {
+                    return;
+                }
+                ranking.pollFirst();
+                members.remove(lowest[0]);
+            }
+            members.put(userId, count);
+            ranking.add(new long[]{userId, count});
+        }
+
+        private List<long[]> top(int limit) {
+            List<long[]> top = new ArrayList<>(Math.min(limit, ranking.size()));
+            for (long[] entry : ranking.descendingSet()) {
+                if (top.size() >= limit) {
+                    break;
+                }
+                top.add(entry.clone());
+            }
+            return top;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.library.service;
+
+import com.library.dto.book.BookChanges;
+import com.library.dto.book.BookResponse;
+import com.library.event.BookEvent;
+import com.library.util.LongObjectHashMap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Change sequence of the book catalog, for delta sync.
+ *
+ * Every committed BookEvent gets the next sequence number. Listeners of concurrent
+ * transactions can run out of commit order, so an event with an older book version than the
+ * entry already kept is ignored. Only the latest change of each book is kept, with the
+ * snapshot carried by the event, so the log holds at most one entry per book plus the
+ * tombstones of deleted books. The oldest tombstones are dropped beyond the configured
+ * limit; tokens from before the last dropped one can no longer be served.
+ *
+ * The sequence lives in memory and starts over on restart. Tokens carry the start time of
+ * this instance, so a token from before a restart also asks for a full snapshot.
+ */
+@Service
+public class CatalogChangeLog {
+
+    @Value("${app.catalog.changes.max-tombstones:100000}")
+    private int maxTombstones;
+
+    private final String instance = Long.toString(System.currentTimeMillis(), 36);
+    private final TreeMap<Long, Change> bySequence = new TreeMap<>();
+    private final LongObjectHashMap<Change> byBook = new LongObjectHashMap<>();
+    private final ArrayDeque<Change> tombstones = new ArrayDeque<>();
+    private long sequence;
+    // Highest sequence whose tombstone was dropped; older tokens may have missed it
+    private long horizon;
+
+    @Order(EntityTagService.READ_MODEL_ORDER)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public synchronized void onBookEvent(BookEvent event) {
+        long bookId = event.getBookId();
+        Change previous = byBook.get(bookId);
+        if (previous != null) {
+            if (event.getVersion() < previous.version) {
+                return;
+            }
+            bySequence.remove(previous.sequence);
+        }
+        Change change = new Change(++sequence, bookId, event.getVersion(),
+                event.getType() == BookEvent.Type.DELETED ? null : event.getBook());
+        bySequence.put(change.sequence, change);
+        byBook.put(bookId, change);
+
+        if (change.book == null) {
+            tombstones.add(change);
+            while (tombstones.size() > maxTombstones) {
+                Change dropped = tombstones.poll();
+                bySequence.remove(dropped.sequence);
+                byBook.remove(dropped.bookId);
+                horizon = dropped.sequence;
+            }
+        }
+    }
+
+    // Token for the current end of the log; read it before taking a full snapshot
+    public synchronized String currentToken() {
+        return token(sequence);
+    }
+
+    /**
+     * Up to limit changes after the token, oldest first, or null when the token cannot be
+     * served (missing, malformed, from another instance, or older than the dropped tombstones).
+     */
+    public synchronized BookChanges since(String token, int limit) {
+        long from = parse(token);
+        if (from < horizon || from > sequence) {
+            return null;
+        }
+        List<BookResponse> books = new ArrayList<>();
+        List<Long> deleted = new ArrayList<>();
+        long last = from;
+        for (Change change : bySequence.tailMap(from, false).values()) {
+            if (books.size() + deleted.size() == limit) {
+                return new BookChanges(token(last), false, true, books, deleted);
+            }
+            if (change.book != null) {
+                books.add(change.book);
+            } else {
+                deleted.add(change.bookId);
+            }
+            last = change.sequence;
+        }
+        // Nothing newer than the last change returned, so the client is now at the end of the log
+        return new BookChanges(token(sequence), false, false, books, deleted);
+    }
+
+    // Helper methods
+    private String token(long position) {
+        return instance + "." + position;
+    }
+
+    // Sequence in the token, or -1 if it is not one of this instance's tokens
+    private long parse(String token) {
+        if (token == null || !token.startsWith(instance + ".")) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(token.substring(instance.length() + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static final class Change {
+        private final long sequence;
+        private final long bookId;
+        private final long version;
+        // Null for deleted books
+        private final BookResponse book;
+
+        private Change(long sequence, long bookId, long version, BookResponse book) {
+            this.sequence = sequence;
+            this.bookId = bookId;
+            this.version = version;
+            this.book = book;
+        }
+    }
+}
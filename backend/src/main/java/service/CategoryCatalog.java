@@ -0,0 +1,236 @@
+package com.library.service;
+
+import com.library.dto.book.CategorySummary;
+import com.library.entity.Category;
+import com.library.event.BookEvent;
+import com.library.repository.BookRepository;
+import com.library.repository.CategoryRepository;
+import com.library.util.LongIntHashMap;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * In-memory copy of the categories table, with the number of books in each category.
+ *
+ * BookService resolves a book's category name to its integer id here before saving it.
+ * A new name gets its row in a transaction of its own, so the id it receives stays valid
+ * even if the book's transaction rolls back. Book counts are loaded at startup and then
+ * follow BookEvents. The category list and statistics are read from memory instead of
+ * running DISTINCT over the books table.
+ *
+ * At startup, books saved before the categories table existed are linked to it, one
+ * bulk update per category name.
+ */
+@Service
+public class CategoryCatalog {
+
+    private static final Logger log = LoggerFactory.getLogger(CategoryCatalog.class);
+
+    // Category id 0 stands for "no category" in the per-book map
+    private static final int NONE = 0;
+
+    private static final Comparator<Entry> NAME_ORDER = Comparator
+            .comparing((Entry entry) -> entry.name, String.CASE_INSENSITIVE_ORDER)
+            .thenComparing(entry -> entry.name);
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate newTransaction;
+
+    // Guarded by this
+    private final Map<String, Entry> byName = new HashMap<>();
+    private final Map<Integer, Entry> byId = new HashMap<>();
+    private final LongIntHashMap bookCategories = new LongIntHashMap();
+
+    public CategoryCatalog(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @PostConstruct
+    public void load() {
+        transactionTemplate.executeWithoutResult(status -> {
+            int linked = 0;
+            for (String name : bookRepository.findUnlinkedCategoryNames()) {
+                Category category = categoryRepository.findByNameIgnoreCase(name)
+                        .orElseGet(() -> categoryRepository.save(new Category(name)));
+                linked += bookRepository.linkCategory(name, category.getId());
+            }
+            if (linked > 0) {
+                log.info("Linked {} books to the categories table", linked);
+            }
+
+            synchronized (this) {
+                for (Category category : categoryRepository.findAll()) {
+                    register(category);
+                }
+                for (Object[] row : bookRepository.findAllCategoryIds()) {
+                    setBookCategory((Long) row[0], row[1] != null ? (Integer) row[1] : NONE);
+                }
+            }
+        });
+    }
+
+    @Order(EntityTagService.READ_MODEL_ORDER)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public synchronized void onBookEvent(BookEvent event) {
+        switch (event.getType()) {
+            case CREATED, UPDATED -> {
+                Integer categoryId = idOf(event.getBook().getCategory());
+                setBookCategory(event.getBookId(), categoryId != null ? categoryId : NONE);
+            }
+            case DELETED -> setBookCategory(event.getBookId(), NONE);
+            case AVAILABILITY_CHANGED -> { }
+        }
+    }
+
+    // Id of the category with this name, creating it if needed; null for a blank name
+    public Integer resolve(String name) {
+        String normalized = normalize(name);
+        if (normalized == null) {
+            return null;
+        }
+        synchronized (this) {
+            Entry entry = byName.get(key(normalized));
+            if (entry != null) {
+                return entry.id;
+            }
+        }
+
+        Category category;
+        try {
+            category = newTransaction.execute(status -> findOrCreate(normalized));
+        } catch (DataIntegrityViolationException e) {
+            // Another instance created it first
+            category = newTransaction.execute(status -> findOrCreate(normalized));
+        }
+        synchronized (this) {
+            return register(category).id;
+        }
+    }
+
+    // Id of an existing category, or null
+    public synchronized Integer idOf(String name) {
+        String normalized = normalize(name);
+        Entry entry = normalized == null ? null : byName.get(key(normalized));
+        return entry == null ? null : entry.id;
+    }
+
+    // Names of the categories that have books, in name order
+    public synchronized List<String> getCategoryNames() {
+        List<String> names = new ArrayList<>();
+        for (Entry entry : inUse()) {
+            names.add(entry.name);
+        }
+        return names;
+    }
+
+    // Categories that have books, with their book counts, in name order
+    public synchronized List<CategorySummary> getCategories() {
+        List<CategorySummary> categories = new ArrayList<>();
+        for (Entry entry : inUse()) {
+            categories.add(new CategorySummary(entry.id, entry.name, entry.bookCount));
+        }
+        return categories;
+    }
+
+    // Number of categories that have books
+    public synchronized int getCategoryCount() {
+        int count = 0;
+        for (Entry entry : byId.values()) {
+            if (entry.bookCount > 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Helper methods (callers hold the monitor)
+    private List<Entry> inUse() {
+        List<Entry> entries = new ArrayList<>();
+        for (Entry entry : byId.values()) {
+            if (entry.bookCount > 0) {
+                entries.add(entry);
+            }
+        }
+        entries.sort(NAME_ORDER);
+        return entries;
+    }
+
+    private Category findOrCreate(String name) {
+        return categoryRepository.findByNameIgnoreCase(name)
+                .orElseGet(() -> categoryRepository.saveAndFlush(new Category(name)));
+    }
+
+    private Entry register(Category category) {
+        Entry entry = byId.get(category.getId());
+        if (entry == null) {
+            entry = new Entry(category.getId(), category.getName());
+            byId.put(entry.id, entry);
+            byName.putIfAbsent(key(entry.name), entry);
+        }
+        return entry;
+    }
+
+    private void setBookCategory(long bookId, int categoryId) {
+        int previous = bookCategories.get(bookId);
+        if (previous == categoryId) {
+            return;
+        }
+        Entry old = byId.get(previous);
+        if (old != null) {
+            old.bookCount--;
+        }
+        Entry current = byId.get(categoryId);
+        if (current != null) {
+            current.bookCount++;
+        }
+        if (categoryId == NONE) {
+            bookCategories.remove(bookId);
+        } else {
+            bookCategories.put(bookId, categoryId);
+        }
+    }
+
+    private static String normalize(String name) {
+        return name == null || name.isBlank() ? null : name.trim();
+    }
+
+    private static String key(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Entry {
+        private final int id;
+        private final String name;
+        private int bookCount;
+
+        private Entry(int id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+}
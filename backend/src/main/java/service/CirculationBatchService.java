@@ -0,0 +1,177 @@
+package com.library.service;
+
+import com.library.dto.loan.CirculationBatchRequest;
+import com.library.dto.loan.CirculationBatchResponse;
+import com.library.dto.loan.CirculationOperation;
+import com.library.dto.loan.CirculationOperationResult;
+import com.library.dto.loan.LoanResponse;
+import com.library.repository.BookLoanRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs an ordered list of circulation operations (return, renew, pay fine, new loan) for
+ * the checkout desk in one request.
+ *
+ * ALL_OR_NOTHING runs them in a single transaction and stops at the first failure, which
+ * rolls back everything before it. PER_OPERATION commits each operation on its own, so a
+ * failure only costs that operation. Every operation goes through BookLoanService and is
+ * flushed right away, so constraint and version errors are reported against the
+ * operation that caused them rather than at commit.
+ */
+@Service
+public class CirculationBatchService {
+
+    private static final int DEFAULT_RENEWAL_DAYS = 14;
+
+    @Autowired
+    private BookLoanService bookLoanService;
+
+    @Autowired
+    private BookLoanRepository bookLoanRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    // Largest number of operations accepted in one batch
+    @Value("${app.batch.max-operations:50}")
+    private int maxOperations;
+
+    public CirculationBatchService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public CirculationBatchResponse execute(CirculationBatchRequest request) {
+        List<CirculationOperation> operations = request.getOperations();
+        if (operations == null || operations.isEmpty()) {
+            throw new IllegalArgumentException("At least one operation is required");
+        }
+        if (operations.size() > maxOperations) {
+            throw new IllegalArgumentException("At most " + maxOperations + " operations per batch");
+        }
+
+        CirculationBatchRequest.Mode mode = request.getMode() != null
+                ? request.getMode()
+                : CirculationBatchRequest.Mode.ALL_OR_NOTHING;
+        List<CirculationOperationResult> results = mode == CirculationBatchRequest.Mode.PER_OPERATION
+                ? executeEach(operations)
+                : executeAll(operations);
+        return new CirculationBatchResponse(mode, results);
+    }
+
+    // Helper methods
+    private List<CirculationOperationResult> executeAll(List<CirculationOperation> operations) {
+        List<CirculationOperationResult> results = new ArrayList<>(operations.size());
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (CirculationOperation operation : operations) {
+                    int index = results.size();
+                    try {
+                        results.add(succeeded(index, operation, apply(operation)));
+                    } catch (RuntimeException e) {
+                        results.add(failed(index, operation, e));
+                        status.setRollbackOnly();
+                        return;
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            // Commit itself failed: nothing was applied
+            results.replaceAll(result -> result.getStatus() == CirculationOperationResult.Status.SUCCEEDED
+                    ? rolledBack(result, "Batch could not be committed: " + e.getMessage())
+                    : result);
+            return results;
+        }
+
+        // A failure is always the last result: the loop stops there
+        if (results.get(results.size() - 1).getStatus() == CirculationOperationResult.Status.FAILED) {
+            int failedIndex = results.size() - 1;
+            results.replaceAll(result -> result.getStatus() == CirculationOperationResult.Status.SUCCEEDED
+                    ? rolledBack(result, "Rolled back because operation " + failedIndex + " failed")
+                    : result);
+            for (int i = results.size(); i < operations.size(); i++) {
+                results.add(new CirculationOperationResult(i, operations.get(i).getType(),
+                        CirculationOperationResult.Status.SKIPPED, null,
+                        "Skipped because operation " + failedIndex + " failed"));
+            }
+        }
+        return results;
+    }
+
+    private List<CirculationOperationResult> executeEach(List<CirculationOperation> operations) {
+        List<CirculationOperationResult> results = new ArrayList<>(operations.size());
+        for (CirculationOperation operation : operations) {
+            int index = results.size();
+            try {
+                LoanResponse loan = transactionTemplate.execute(status -> apply(operation));
+                results.add(succeeded(index, operation, loan));
+            } catch (RuntimeException e) {
+                results.add(failed(index, operation, e));
+            }
+        }
+        return results;
+    }
+
+    private LoanResponse apply(CirculationOperation operation) {
+        if (operation.getType() == null) {
+            throw new IllegalArgumentException("Operation type is required");
+        }
+        LoanResponse loan;
+        switch (operation.getType()) {
+            case RETURN:
+                loan = bookLoanService.returnBook(requireLoanId(operation), expectedVersion(operation));
+                break;
+            case RENEW:
+                int additionalDays = operation.getAdditionalDays() != null
+                        ? operation.getAdditionalDays()
+                        : DEFAULT_RENEWAL_DAYS;
+                loan = bookLoanService.renewLoan(requireLoanId(operation), additionalDays, expectedVersion(operation));
+                break;
+            case PAY_FINE:
+                loan = bookLoanService.payFine(requireLoanId(operation), expectedVersion(operation));
+                break;
+            case CREATE_LOAN:
+                if (operation.getLoan() == null) {
+                    throw new IllegalArgumentException("CREATE_LOAN needs a loan");
+                }
+                loan = bookLoanService.createLoan(operation.getLoan());
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported operation: " + operation.getType());
+        }
+        bookLoanRepository.flush();
+        return loan;
+    }
+
+    private static Long requireLoanId(CirculationOperation operation) {
+        if (operation.getLoanId() == null) {
+            throw new IllegalArgumentException(operation.getType() + " needs a loanId");
+        }
+        return operation.getLoanId();
+    }
+
+    private static Long expectedVersion(CirculationOperation operation) {
+        return EntityTagService.expectedVersion(operation.getIfMatch(), EntityTagService.Table.LOANS,
+                operation.getLoanId());
+    }
+
+    private static CirculationOperationResult succeeded(int index, CirculationOperation operation, LoanResponse loan) {
+        return new CirculationOperationResult(index, operation.getType(),
+                CirculationOperationResult.Status.SUCCEEDED, loan, null);
+    }
+
+    private static CirculationOperationResult failed(int index, CirculationOperation operation, RuntimeException e) {
+        return new CirculationOperationResult(index, operation.getType(),
+                CirculationOperationResult.Status.FAILED, null, e.getMessage());
+    }
+
+    private static CirculationOperationResult rolledBack(CirculationOperationResult result, String reason) {
+        return new CirculationOperationResult(result.getIndex(), result.getType(),
+                CirculationOperationResult.Status.ROLLED_BACK, null, reason);
+    }
+}
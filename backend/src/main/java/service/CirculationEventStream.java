@@ -0,0 +1,241 @@
+package com.library.service;
+
+import com.library.dto.book.BookResponse;
+import com.library.dto.loan.CirculationChange;
+import com.library.event.BookEvent;
+import com.library.event.LoanEvent;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pushes committed book and loan changes to connected clients as server-sent events.
+ *
+ * Each subscriber has its own bounded buffer. A newer event for the same book or loan
+ * replaces the one still waiting, and when the buffer is full the oldest event is dropped
+ * and the subscriber is told to resync. A send that has not finished within the send timeout
+ * gets the subscriber dropped and its connection closed, so a stalled client cannot hold one
+ * of the shared sender threads and delay everyone else.
+ */
+@Service
+public class CirculationEventStream {
+
+    private static final Logger log = LoggerFactory.getLogger(CirculationEventStream.class);
+
+    static final String RESYNC = "RESYNC";
+
+    // Maximum number of pending events per subscriber
+    @Value("${app.stream.buffer-size:256}")
+    private int bufferSize;
+
+    // Connection timeout for an emitter; clients reconnect automatically
+    @Value("${app.stream.timeout-ms:1800000}")
+    private long timeoutMillis;
+
+    // Longest a single send may block before the subscriber is dropped
+    @Value("${app.stream.send-timeout-ms:5000}")
+    private long sendTimeoutMillis;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final ExecutorService senders = Executors.newFixedThreadPool(4, runnable -> {
+        Thread thread = new Thread(runnable, "circulation-stream");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Register a new client
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(error -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        return emitter;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onBookEvent(BookEvent event) {
+        BookResponse book = event.getBook();
+        String type = event.getType() == BookEvent.Type.AVAILABILITY_CHANGED
+                ? "BOOK_AVAILABILITY"
+                : "BOOK_" + event.getType().name();
+        publish(new CirculationChange(sequence.incrementAndGet(), type, event.getBookId(), null, null,
+                book != null ? book.getAvailableCopies() : null,
+                book != null ? book.getTotalCopies() : null));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onLoanEvent(LoanEvent event) {
+        publish(new CirculationChange(sequence.incrementAndGet(), "LOAN_" + event.getType().name(),
+                event.getBookId(), event.getLoanId(), event.getUserId(), null, null));
+    }
+
+    // Keep idle connections open through proxies and notice clients that went away
+    @Scheduled(fixedDelayString = "${app.stream.heartbeat-ms:30000}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.heartbeatDue = true;
+            schedule(subscriber);
+        }
+    }
+
+    // Drop subscribers whose current send has been blocked for too long
+    @Scheduled(fixedDelayString = "${app.stream.stall-check-ms:1000}")
+    public void evictStalled() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            long started = subscriber.sendStartedAt;
+            if (started != 0 && now - started > TimeUnit.MILLISECONDS.toNanos(sendTimeoutMillis)) {
+                log.debug("Dropping stalled circulation stream subscriber");
+                subscribers.remove(subscriber);
+                subscriber.emitter.completeWithError(new IOException("Send timed out"));
+                subscriber.interruptSender();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+        }
+        subscribers.clear();
+        senders.shutdownNow();
+        senders.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    // Helper methods
+    private void publish(CirculationChange change) {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(change, bufferSize);
+            schedule(subscriber);
+        }
+    }
+
+    // At most one drain task per subscriber, so events stay in order
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.draining.compareAndSet(false, true)) {
+            senders.execute(() -> drain(subscriber));
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            List<CirculationChange> batch;
+            while (!(batch = subscriber.takeAll()).isEmpty() || subscriber.heartbeatDue) {
+                subscriber.heartbeatDue = false;
+                if (batch.isEmpty()) {
+                    subscriber.send(SseEmitter.event().comment("heartbeat"));
+                }
+                for (CirculationChange change : batch) {
+                    subscriber.send(SseEmitter.event()
+                            .id(String.valueOf(change.getSequence()))
+                            .name(change.getType())
+                            .data(change, MediaType.APPLICATION_JSON));
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Dropping circulation stream subscriber: {}", e.getMessage());
+            subscribers.remove(subscriber);
+            subscriber.emitter.completeWithError(e);
+        } finally {
+            subscriber.draining.set(false);
+        }
+        // An event may have arrived between the last take and releasing the flag
+        if (subscriber.hasPending() && subscribers.contains(subscriber)) {
+            schedule(subscriber);
+        }
+    }
+
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final LinkedHashMap<String, CirculationChange> pending = new LinkedHashMap<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean heartbeatDue;
+        private boolean overflowed;
+        // Start of the send in progress (System.nanoTime), or 0
+        private volatile long sendStartedAt;
+        // Guarded by sendLock: the thread running the send in progress
+        private final Object sendLock = new Object();
+        private Thread sender;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        private void send(SseEmitter.SseEventBuilder event) throws IOException {
+            synchronized (sendLock) {
+                sender = Thread.currentThread();
+            }
+            sendStartedAt = System.nanoTime();
+            try {
+                emitter.send(event);
+            } finally {
+                sendStartedAt = 0;
+                synchronized (sendLock) {
+                    sender = null;
+                    // An eviction may have interrupted this send; do not leak it to the next task
+                    Thread.interrupted();
+                }
+            }
+        }
+
+        private void interruptSender() {
+            synchronized (sendLock) {
+                if (sender != null) {
+                    sender.interrupt();
+                }
+            }
+        }
+
+        private synchronized void offer(CirculationChange change, int capacity) {
+            String key = change.coalesceKey();
+            // Re-insert so a coalesced event moves to the back of the queue
+            pending.remove(key);
+            if (pending.size() >= capacity) {
+                Iterator<String> oldest = pending.keySet().iterator();
+                oldest.next();
+                oldest.remove();
+                overflowed = true;
+            }
+            pending.put(key, change);
+        }
+
+        private synchronized List<CirculationChange> takeAll() {
+            List<CirculationChange> batch = new ArrayList<>(pending.size() + 1);
+            if (overflowed) {
+                // The client missed events and has to reload what it shows
+                batch.add(new CirculationChange(sequence.incrementAndGet(), RESYNC, null, null, null, null, null));
+                overflowed = false;
+            }
+            batch.addAll(pending.values());
+            pending.clear();
+            return batch;
+        }
+
+        private synchronized boolean hasPending() {
+            return overflowed || !pending.isEmpty() || heartbeatDue;
+        }
+    }
+}
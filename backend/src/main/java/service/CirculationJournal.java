@@ -0,0 +1,339 @@
+package com.library.service;
+
+import com.library.dto.loan.LoanActivity;
+import com.library.event.LoanEvent;
+import com.library.repository.BookLoanRepository;
+import com.library.repository.LoanHistoryRepository;
+import com.library.util.LongLongHashMap;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only binary journal of circulation events, written through memory-mapped segment files.
+ *
+ * Records have a fixed size of 48 bytes: sequence, timestamp (epoch millis), loan id, user id,
+ * book id, event type code and a CRC32 of the preceding bytes. Segments are pre-allocated, so
+ * the end of the journal is the first slot with sequence 0 or a bad checksum. Appends only write
+ * to the mapped buffer; a background flusher forces dirty segments to disk in groups.
+ *
+ * Appends happen after commit, so a crash can lose the last records of committed loans. At
+ * startup the journal is therefore reconciled with the database: every loan (live or archived)
+ * without a CREATED record gets one, which also bootstraps an empty journal. A journal that
+ * records loans the database does not have, or has with another user or book, belongs to a
+ * different database; it is moved aside and rebuilt. In-memory read models rebuild themselves
+ * by replaying it. No snapshots are written, so every startup replays the journal from the
+ * first record, and startup time grows with the loan history.
+ */
+@Service
+public class CirculationJournal {
+
+    private static final Logger log = LoggerFactory.getLogger(CirculationJournal.class);
+
+    public static final int RECORD_SIZE = 48;
+    private static final int CHECKSUMMED_BYTES = 44;
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    @Autowired
+    private BookLoanRepository bookLoanRepository;
+
+    @Autowired
+    private LoanHistoryRepository loanHistoryRepository;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    // Relative paths resolve against the working directory; deployments should set an absolute one
+    @Value("${app.journal.dir:./data/journal}")
+    private String directory;
+
+    // Records per segment file (48 bytes each)
+    @Value("${app.journal.records-per-segment:1048576}")
+    private int recordsPerSegment;
+
+    private final CRC32 writeChecksum = new CRC32();
+    private FileChannel activeChannel;
+    private MappedByteBuffer activeSegment;
+    private long nextSequence = 1;
+    private volatile boolean dirty;
+
+    public CirculationJournal(PlatformTransactionManager transactionManager) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @PostConstruct
+    public synchronized void open() {
+        try {
+            Files.createDirectories(Paths.get(directory));
+            List<Path> segments = segments();
+            if (segments.isEmpty()) {
+                openSegment(1);
+            } else {
+                recover(segments.get(segments.size() - 1));
+            }
+            if (!reconcile()) {
+                discard();
+                reconcile();
+            }
+            flush();
+            log.info("Circulation journal in {} ready, next sequence {}",
+                    Paths.get(directory).toAbsolutePath(), nextSequence);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open circulation journal in " + directory, e);
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onLoanEvent(LoanEvent event) {
+        append(event.getType(), event.getOccurredAt(), event.getLoanId(), event.getUserId(), event.getBookId());
+    }
+
+    // Append one record; durable after the next group flush
+    public synchronized long append(LoanEvent.Type type, LocalDateTime occurredAt, long loanId, long userId, long bookId) {
+        if (!activeSegment.hasRemaining()) {
+            rollSegment();
+        }
+        long sequence = nextSequence++;
+        int start = activeSegment.position();
+        activeSegment.putLong(sequence)
+                .putLong(occurredAt.toInstant(ZoneOffset.UTC).toEpochMilli())
+                .putLong(loanId)
+                .putLong(userId)
+                .putLong(bookId)
+                .putInt(type.getCode());
+        writeChecksum.reset();
+        writeChecksum.update(activeSegment.slice(start, CHECKSUMMED_BYTES));
+        activeSegment.putInt((int) writeChecksum.getValue());
+        dirty = true;
+        return sequence;
+    }
+
+    // Group fsync: one force() covers every record appended since the last one
+    @Scheduled(fixedDelayString = "${app.journal.fsync-interval-ms:50}")
+    public synchronized void flush() {
+        if (dirty && activeSegment != null) {
+            activeSegment.force();
+            dirty = false;
+        }
+    }
+
+    // Replay records with a sequence of at least fromSequence, in order
+    public void replay(long fromSequence, RecordHandler handler) {
+        JournalRecord record = new JournalRecord();
+        CRC32 checksum = new CRC32();
+        try {
+            for (Path segment : segments()) {
+                try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+                    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                    while (buffer.remaining() >= RECORD_SIZE) {
+                        if (!read(buffer, record, checksum)) {
+                            break;
+                        }
+                        if (record.sequence >= fromSequence) {
+                            handler.handle(record);
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot replay circulation journal", e);
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        flush();
+        if (activeChannel != null) {
+            activeChannel.close();
+        }
+    }
+
+    // Helper methods
+
+    /**
+     * Append a CREATED record for every loan in the database that the journal is missing.
+     * Returns false if the journal disagrees with the database about the loans they share,
+     * or none of its loans exist there.
+     */
+    private boolean reconcile() {
+        LongLongHashMap journaledUsers = new LongLongHashMap();
+        LongLongHashMap journaledBooks = new LongLongHashMap();
+        replay(0, record -> {
+            if (record.getType() == LoanEvent.Type.CREATED) {
+                journaledUsers.put(record.getLoanId(), record.getUserId());
+                journaledBooks.put(record.getLoanId(), record.getBookId());
+            }
+        });
+        int journaled = journaledBooks.size();
+
+        long[] counts = new long[3]; // matched, mismatched, appended
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<LoanActivity> live = bookLoanRepository.streamLoanActivity();
+                 Stream<LoanActivity> archived = loanHistoryRepository.streamLoanActivity()) {
+                Stream.concat(archived, live).forEach(activity -> {
+                    long loanId = activity.getLoanId();
+                    if (!journaledBooks.containsKey(loanId)) {
+                        append(LoanEvent.Type.CREATED, activity.getLoanDate(), loanId,
+                                activity.getUserId(), activity.getBookId());
+                        // A loan archived between the two scans is seen twice
+                        journaledUsers.put(loanId, activity.getUserId());
+                        journaledBooks.put(loanId, activity.getBookId());
+                        counts[2]++;
+                    } else if (journaledUsers.get(loanId) == activity.getUserId()
+                            && journaledBooks.get(loanId) == activity.getBookId()) {
+                        counts[0]++;
+                    } else {
+                        counts[1]++;
+                    }
+                });
+            }
+        });
+
+        if (counts[1] > 0 || (journaled > 0 && counts[0] == 0)) {
+            log.warn("Circulation journal does not match the database ({} of its {} loans match, {} differ)",
+                    counts[0], journaled, counts[1]);
+            return false;
+        }
+        if (counts[2] > 0) {
+            log.info("Circulation journal: appended {} loans missing from it", counts[2]);
+        }
+        return true;
+    }
+
+    // Move every segment into a discarded-<millis> directory and start an empty journal
+    private void discard() throws IOException {
+        activeChannel.close();
+        Path target = Paths.get(directory, "discarded-" + System.currentTimeMillis());
+        Files.createDirectories(target);
+        for (Path segment : segments()) {
+            Files.move(segment, target.resolve(segment.getFileName()));
+        }
+        log.warn("Moved the circulation journal to {}", target.toAbsolutePath());
+        nextSequence = 1;
+        openSegment(1);
+    }
+
+    // Find the end of the last segment after a restart
+    private void recover(Path lastSegment) throws IOException {
+        openSegment(lastSegment);
+        JournalRecord record = new JournalRecord();
+        CRC32 checksum = new CRC32();
+        long lastSequence = firstSequenceOf(lastSegment) - 1;
+        while (activeSegment.remaining() >= RECORD_SIZE) {
+            int start = activeSegment.position();
+            if (!read(activeSegment, record, checksum)) {
+                activeSegment.position(start);
+                break;
+            }
+            lastSequence = record.sequence;
+        }
+        nextSequence = lastSequence + 1;
+    }
+
+    private boolean read(MappedByteBuffer buffer, JournalRecord record, CRC32 checksum) {
+        int start = buffer.position();
+        record.sequence = buffer.getLong();
+        if (record.sequence == 0) {
+            return false;
+        }
+        record.timestamp = buffer.getLong();
+        record.loanId = buffer.getLong();
+        record.userId = buffer.getLong();
+        record.bookId = buffer.getLong();
+        record.type = LoanEvent.Type.fromCode(buffer.getInt());
+        int storedChecksum = buffer.getInt();
+        checksum.reset();
+        checksum.update(buffer.slice(start, CHECKSUMMED_BYTES));
+        // A bad checksum or unknown type means a torn write at the tail
+        return (int) checksum.getValue() == storedChecksum && record.type != null;
+    }
+
+    private void rollSegment() {
+        try {
+            activeSegment.force();
+            activeChannel.close();
+            openSegment(nextSequence);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot roll circulation journal segment", e);
+        }
+    }
+
+    private void openSegment(long firstSequence) throws IOException {
+        openSegment(Paths.get(directory, String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX)));
+    }
+
+    private void openSegment(Path path) throws IOException {
+        activeChannel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        activeSegment = activeChannel.map(FileChannel.MapMode.READ_WRITE, 0, (long) recordsPerSegment * RECORD_SIZE);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(Paths.get(directory))) {
+            return files
+                    .filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .sorted()
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+
+    private static long firstSequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * Reusable view of one journal record. Replay hands the same instance to every call,
+     * so handlers must copy what they keep.
+     */
+    public static final class JournalRecord {
+        private long sequence;
+        private long timestamp;
+        private long loanId;
+        private long userId;
+        private long bookId;
+        private LoanEvent.Type type;
+
+        public long getSequence() { return sequence; }
+        public long getTimestamp() { return timestamp; }
+        public long getLoanId() { return loanId; }
+        public long getUserId() { return userId; }
+        public long getBookId() { return bookId; }
+        public LoanEvent.Type getType() { return type; }
+
+        public LocalDateTime getOccurredAt() {
+            return LocalDateTime.ofEpochSecond(Math.floorDiv(timestamp, 1000L),
+                    (int) Math.floorMod(timestamp, 1000L) * 1_000_000, ZoneOffset.UTC);
+        }
+    }
+
+    @FunctionalInterface
+    public interface RecordHandler {
+        void handle(JournalRecord record);
+    }
+}
@@ -0,0 +1,277 @@
+package com.library.service;
+
+import com.library.dto.loan.CirculationPoint;
+import com.library.dto.loan.LoanFact;
+import com.library.entity.BookLoan;
+import com.library.event.LoanEvent;
+import com.library.repository.BookLoanRepository;
+import com.library.repository.LoanHistoryRepository;
+import com.library.util.LongObjectHashMap;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Pre-aggregated circulation counters for trend charts.
+ *
+ * For every day, week and month the service keeps the number of loans, returns and loans that
+ * went overdue, and the fines assessed, in total and broken down by category and by book.
+ * Loans and returns count on the day they happen; overdues and fines count on the loan's due
+ * date. Fines are assessed amounts, so paying a fine does not remove it from the rollup (the
+ * backfill can only see fines that are still unpaid).
+ *
+ * Backfilled at startup from both loan tables, split into id-range chunks that are read in
+ * parallel, then kept current from LoanEvents after commit. Archived loans keep their ids, so
+ * each chunk reads the same range from both tables, live first, and counts every id once: a
+ * loan archived while the chunk is read is then seen in one table or both, never in neither.
+ * Range queries read one rollup per bucket, whatever the number of loans behind it.
+ */
+@Service
+public class CirculationRollupService {
+
+    private static final int LOANS = 0;
+    private static final int RETURNS = 1;
+    private static final int OVERDUES = 2;
+    private static final int FINES = 3;
+    private static final int COUNTERS = 4;
+    private static final int MAX_POINTS = 5000;
+
+    @Autowired
+    private BookLoanRepository bookLoanRepository;
+
+    @Autowired
+    private LoanHistoryRepository loanHistoryRepository;
+
+    @Autowired
+    private LoanAnalyticsStore loanAnalyticsStore;
+
+    // Parallel readers and loan ids per chunk for the startup backfill
+    @Value("${app.rollups.backfill-threads:4}")
+    private int backfillThreads;
+
+    @Value("${app.rollups.backfill-chunk-size:50000}")
+    private int backfillChunkSize;
+
+    private final TransactionTemplate readOnlyTransaction;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<RollupGranularity, TreeMap<LocalDate, Rollup>> levels = new EnumMap<>(RollupGranularity.class);
+
+    public CirculationRollupService(PlatformTransactionManager transactionManager) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            levels.put(granularity, new TreeMap<>());
+        }
+    }
+
+    @PostConstruct
+    public void load() throws InterruptedException, ExecutionException {
+        ExecutorService executor = Executors.newFixedThreadPool(backfillThreads);
+        try {
+            List<Future<TreeMap<LocalDate, Rollup>>> chunks = new ArrayList<>();
+            submitChunks(executor, chunks,
+                    min(bookLoanRepository.getMinLoanId(), loanHistoryRepository.getMinLoanId()),
+                    max(bookLoanRepository.getMaxLoanId(), loanHistoryRepository.getMaxLoanId()));
+
+            lock.writeLock().lock();
+            try {
+                for (Future<TreeMap<LocalDate, Rollup>> chunk : chunks) {
+                    for (Map.Entry<LocalDate, Rollup> day : chunk.get().entrySet()) {
+                        for (RollupGranularity granularity : RollupGranularity.values()) {
+                            levels.get(granularity)
+                                    .computeIfAbsent(granularity.periodStart(day.getKey()), start -> new Rollup())
+                                    .addAll(day.getValue());
+                        }
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Order(EntityTagService.READ_MODEL_ORDER)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onLoanEvent(LoanEvent event) {
+        String category = loanAnalyticsStore.getBookCategory(event.getBookId());
+        LocalDate day = event.getOccurredAt().toLocalDate();
+        LocalDate dueDay = event.getDueDate().toLocalDate();
+        long fine = Math.max(0, event.getFineDeltaCents());
+
+        lock.writeLock().lock();
+        try {
+            switch (event.getType()) {
+                case CREATED -> record(day, event.getBookId(), category, LOANS, 1);
+                case RETURNED -> {
+                    record(day, event.getBookId(), category, RETURNS, 1);
+                    // Loans returned late without having been flagged overdue
+                    if (event.getOccurredAt().isAfter(event.getDueDate())) {
+                        record(dueDay, event.getBookId(), category, OVERDUES, 1);
+                    }
+                    record(dueDay, event.getBookId(), category, FINES, fine);
+                }
+                case OVERDUE -> {
+                    record(dueDay, event.getBookId(), category, OVERDUES, 1);
+                    record(dueDay, event.getBookId(), category, FINES, fine);
+                }
+                default -> { }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * One point per bucket between the buckets containing from and to (inclusive), with
+     * empty buckets filled in. Counts can be narrowed to one category or one book.
+     */
+    public List<CirculationPoint> getCirculation(LocalDate from, LocalDate to, RollupGranularity granularity,
+                                                 String category, Long bookId) {
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("'to' must not be before 'from'");
+        }
+        List<CirculationPoint> points = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            TreeMap<LocalDate, Rollup> level = levels.get(granularity);
+            for (LocalDate period = granularity.periodStart(from); !period.isAfter(to); period = granularity.next(period)) {
+                if (points.size() == MAX_POINTS) {
+                    throw new IllegalArgumentException("Too many buckets; use a shorter range or a coarser granularity");
+                }
+                Rollup rollup = level.get(period);
+                long[] counters = rollup == null ? null : rollup.counters(category, bookId);
+                points.add(counters == null
+                        ? new CirculationPoint(period, 0, 0, 0, FinePolicy.toAmount(0))
+                        : new CirculationPoint(period, counters[LOANS], counters[RETURNS], counters[OVERDUES],
+                                FinePolicy.toAmount(counters[FINES])));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return points;
+    }
+
+    // Helper methods
+    private void submitChunks(ExecutorService executor, List<Future<TreeMap<LocalDate, Rollup>>> chunks,
+                              Long minId, Long maxId) {
+        if (minId == null) {
+            return;
+        }
+        for (long fromId = minId; fromId <= maxId; fromId += backfillChunkSize) {
+            long chunkFrom = fromId;
+            long chunkTo = Math.min(maxId, fromId + backfillChunkSize - 1);
+            chunks.add(executor.submit(() -> readOnlyTransaction.execute(status -> {
+                TreeMap<LocalDate, Rollup> days = new TreeMap<>();
+                Set<Long> seen = new HashSet<>();
+                // Live before archived: archiving moves rows the other way
+                for (LoanFact loan : bookLoanRepository.findLoanFactsByIdRange(chunkFrom, chunkTo)) {
+                    if (seen.add(loan.getLoanId())) {
+                        backfill(days, loan);
+                    }
+                }
+                for (LoanFact loan : loanHistoryRepository.findLoanFactsByIdRange(chunkFrom, chunkTo)) {
+                    if (seen.add(loan.getLoanId())) {
+                        backfill(days, loan);
+                    }
+                }
+                return days;
+            })));
+        }
+    }
+
+    private static Long min(Long a, Long b) {
+        return a == null ? b : b == null ? a : Long.valueOf(Math.min(a, b));
+    }
+
+    private static Long max(Long a, Long b) {
+        return a == null ? b : b == null ? a : Long.valueOf(Math.max(a, b));
+    }
+
+    private void backfill(TreeMap<LocalDate, Rollup> days, LoanFact loan) {
+        long bookId = loan.getBookId();
+        String category = loanAnalyticsStore.getBookCategory(bookId);
+        LocalDate dueDay = loan.getDueDate().toLocalDate();
+
+        days.computeIfAbsent(loan.getLoanDate().toLocalDate(), day -> new Rollup()).add(bookId, category, LOANS, 1);
+        if (loan.getReturnDate() != null) {
+            days.computeIfAbsent(loan.getReturnDate().toLocalDate(), day -> new Rollup()).add(bookId, category, RETURNS, 1);
+        }
+        boolean overdue = loan.getStatus() == BookLoan.LoanStatus.OVERDUE
+                || (loan.getReturnDate() != null && loan.getReturnDate().isAfter(loan.getDueDate()));
+        if (overdue) {
+            days.computeIfAbsent(dueDay, day -> new Rollup()).add(bookId, category, OVERDUES, 1);
+        }
+        long fine = FinePolicy.toCents(loan.getFine());
+        if (fine > 0) {
+            days.computeIfAbsent(dueDay, day -> new Rollup()).add(bookId, category, FINES, fine);
+        }
+    }
+
+    private void record(LocalDate day, long bookId, String category, int counter, long amount) {
+        if (amount == 0) {
+            return;
+        }
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            levels.get(granularity)
+                    .computeIfAbsent(granularity.periodStart(day), start -> new Rollup())
+                    .add(bookId, category, counter, amount);
+        }
+    }
+
+    // Counters of one bucket: overall, per category and per book
+    private static final class Rollup {
+        private final long[] totals = new long[COUNTERS];
+        private final Map<String, long[]> byCategory = new HashMap<>();
+        private final LongObjectHashMap<long[]> byBook = new LongObjectHashMap<>();
+
+        private void add(long bookId, String category, int counter, long amount) {
+            totals[counter] += amount;
+            byCategory.computeIfAbsent(category, key -> new long[COUNTERS])[counter] += amount;
+            byBook.computeIfAbsent(bookId, key -> new long[COUNTERS])[counter] += amount;
+        }
+
+        private void addAll(Rollup other) {
+            addTo(totals, other.totals);
+            other.byCategory.forEach((category, counters) ->
+                    addTo(byCategory.computeIfAbsent(category, key -> new long[COUNTERS]), counters));
+            other.byBook.forEach((bookId, counters) ->
+                    addTo(byBook.computeIfAbsent(bookId, key -> new long[COUNTERS]), counters));
+        }
+
+        private long[] counters(String category, Long bookId) {
+            if (bookId != null) {
+                return byBook.get(bookId);
+            }
+            return category != null ? byCategory.get(category) : totals;
+        }
+
+        private static void addTo(long[] target, long[] source) {
+            for (int i = 0; i < COUNTERS; i++) {
+                target[i] += source[i];
+            }
+        }
+    }
+}
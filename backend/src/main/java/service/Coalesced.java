@@ -0,0 +1,16 @@
+package com.library.service;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a read-only service method whose concurrent calls with equal arguments may share one
+ * execution (see {@link RequestCoalescer}). The method must not depend on anything but its
+ * arguments, and callers must not modify the result, since it is handed to every caller.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Coalesced {
+}
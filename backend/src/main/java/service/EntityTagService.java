@@ -0,0 +1,214 @@
+package com.library.service;
+
+import com.library.entity.BookLoan;
+import com.library.event.BookEvent;
+import com.library.event.LoanEvent;
+import com.library.event.UserEvent;
+import com.library.repository.BookLoanRepository;
+import com.library.repository.BookRepository;
+import com.library.repository.LoanHistoryRepository;
+import com.library.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Strong ETags for conditional GETs and If-Match updates.
+ *
+ * A single book or user is tagged with its version column, which Hibernate increments on
+ * every update. A loan's tag also covers the user and book it shows and how many days it is
+ * overdue. Lists are tagged with per-table change counters that move whenever a BookEvent,
+ * LoanEvent or UserEvent commits. Each counter is bumped both before and after the commit,
+ * so a request cannot be answered 304 while a change is half-way committed. The counters
+ * start over on restart, so list tags also carry the start time of this instance.
+ *
+ * The bump after the commit runs last among the AFTER_COMMIT listeners. Read models order
+ * their listeners with READ_MODEL_ORDER, so they have applied the change by the time a new
+ * tag can be read, and data read under that tag is never from before the change.
+ *
+ * Callers must read a tag before they read the data it describes.
+ */
+@Service
+public class EntityTagService {
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BookLoanRepository bookLoanRepository;
+
+    @Autowired
+    private LoanHistoryRepository loanHistoryRepository;
+
+    // AFTER_COMMIT order of the listeners that keep read models current
+    public static final int READ_MODEL_ORDER = 0;
+
+    private final String instance = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLongArray counters = new AtomicLongArray(Table.values().length);
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void beforeBookCommit(BookEvent event) {
+        recordChange(Table.BOOKS);
+    }
+
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void afterBookCommit(BookEvent event) {
+        recordChange(Table.BOOKS);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void beforeUserCommit(UserEvent event) {
+        recordChange(Table.USERS);
+    }
+
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void afterUserCommit(UserEvent event) {
+        recordChange(Table.USERS);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void beforeLoanCommit(LoanEvent event) {
+        recordChange(Table.LOANS);
+    }
+
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void afterLoanCommit(LoanEvent event) {
+        recordChange(Table.LOANS);
+    }
+
+    // For writers that do not publish events (loan archival)
+    public void recordChange(Table table) {
+        counters.incrementAndGet(table.ordinal());
+    }
+
+    // Number of changes to any table since startup
+    public long getTotalChangeCount() {
+        long total = 0;
+        for (Table table : Table.values()) {
+            total += counters.get(table.ordinal());
+        }
+        return total;
+    }
+
+    // Tag for lists read from the given tables
+    public String listTag(Table... tables) {
+        StringBuilder tag = new StringBuilder().append('"').append(instance);
+        for (Table table : tables) {
+            tag.append('.').append(table.prefix).append(counters.get(table.ordinal()));
+        }
+        return tag.append('"').toString();
+    }
+
+    /**
+     * Tag for loan lists. Besides the loans they show users and books, and whether each loan is
+     * overdue, which changes with the clock; the tag moves every minute to pick that up.
+     */
+    public String loanListTag() {
+        String tag = listTag(Table.LOANS, Table.BOOKS, Table.USERS);
+        long minute = TimeUnit.MILLISECONDS.toMinutes(System.currentTimeMillis());
+        return tag.substring(0, tag.length() - 1) + ".m" + minute + '"';
+    }
+
+    // Tag of a single book, or null if it does not exist
+    public String bookTag(Long id) {
+        return bookRepository.findVersionById(id)
+                .map(version -> quote(Table.BOOKS.prefix + id + "." + version))
+                .orElse(null);
+    }
+
+    // Tag of a single user, or null if it does not exist
+    public String userTag(Long id) {
+        return userRepository.findVersionById(id)
+                .map(version -> quote(Table.USERS.prefix + id + "." + version))
+                .orElse(null);
+    }
+
+    // Tag of a single loan, or null if it does not exist; archived loans never change
+    public String loanTag(Long id) {
+        List<Object[]> rows = bookLoanRepository.findTagStateById(id);
+        if (rows.isEmpty()) {
+            return loanHistoryRepository.existsById(id) ? quote("h" + id) : null;
+        }
+        Object[] row = rows.get(0);
+        long overdueDays = overdueDays((BookLoan.LoanStatus) row[3], (LocalDateTime) row[4]);
+        return quote(Table.LOANS.prefix + id + "." + row[0] + "." + row[1] + "." + row[2] + "." + overdueDays);
+    }
+
+    /**
+     * Version that an If-Match header expects the given book, user or loan to have, or null
+     * when there is no header or it is "*". A header that holds no tag of this entity returns
+     * -1, which no version matches. For loans only the loan's own version is compared.
+     */
+    public static Long expectedVersion(String ifMatch, Table table, Long id) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String prefix = table.prefix + id + ".";
+        for (String candidate : ifMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.length() < 2 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"') {
+                continue;
+            }
+            tag = tag.substring(1, tag.length() - 1);
+            if (!tag.startsWith(prefix)) {
+                continue;
+            }
+            int end = tag.indexOf('.', prefix.length());
+            try {
+                return Long.parseLong(end < 0 ? tag.substring(prefix.length()) : tag.substring(prefix.length(), end));
+            } catch (NumberFormatException e) {
+                // Not one of our tags
+            }
+        }
+        return -1L;
+    }
+
+    // Fail an update whose If-Match version is no longer current
+    public static void checkVersion(String entity, Long id, long version, Long expectedVersion) {
+        if (expectedVersion != null && expectedVersion != version) {
+            throw new OptimisticLockingFailureException(entity + " " + id + " has been modified since it was read");
+        }
+    }
+
+    // Helper methods
+    // Mirrors BookLoan.isOverdue and getDaysOverdue; -1 when the loan does not show as overdue
+    private static long overdueDays(BookLoan.LoanStatus status, LocalDateTime dueDate) {
+        LocalDateTime now = LocalDateTime.now();
+        if (status != BookLoan.LoanStatus.ACTIVE || !now.isAfter(dueDate)) {
+            return -1;
+        }
+        return Duration.between(dueDate, now).toDays();
+    }
+
+    private static String quote(String tag) {
+        return "\"" + tag + "\"";
+    }
+
+    public enum Table {
+        BOOKS("b"),
+        USERS("u"),
+        LOANS("l");
+
+        private final String prefix;
+
+        Table(String prefix) {
+            this.prefix = prefix;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.library.service;
+
+import com.library.entity.User;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Overdue fine rules, evaluated in whole cents.
+ *
+ * Each role has its own rate table entry: a daily rate, a number of grace days that are not
+ * charged, and an optional cap (0 means uncapped). All arithmetic is done on longs; amounts are
+ * converted to BigDecimal only when they are written to an entity or a response.
+ *
+ * Configured per role, e.g. app.fines.member.daily-rate-cents=50,
+ * app.fines.member.grace-days=0, app.fines.member.cap-cents=0.
+ */
+@Service
+public class FinePolicy {
+
+    private static final long SECONDS_PER_DAY = 86_400L;
+
+    // Indexed by User.Role ordinal
+    private final long[] dailyRateCents;
+    private final long[] graceDays;
+    private final long[] capCents;
+
+    public FinePolicy(Environment environment) {
+        User.Role[] roles = User.Role.values();
+        dailyRateCents = new long[roles.length];
+        graceDays = new long[roles.length];
+        capCents = new long[roles.length];
+        for (User.Role role : roles) {
+            String prefix = "app.fines." + role.name().toLowerCase() + ".";
+            dailyRateCents[role.ordinal()] = environment.getProperty(prefix + "daily-rate-cents", Long.class, 50L);
+            graceDays[role.ordinal()] = environment.getProperty(prefix + "grace-days", Long.class, 0L);
+            capCents[role.ordinal()] = environment.getProperty(prefix + "cap-cents", Long.class, 0L);
+        }
+    }
+
+    // Fine in cents for a loan due at dueDate, evaluated at now
+    public long fineCents(User.Role role, LocalDateTime dueDate, LocalDateTime now) {
+        return fineCents(role.ordinal(), epochSecond(dueDate), epochSecond(now));
+    }
+
+    public long fineCents(int roleOrdinal, long dueEpochSecond, long nowEpochSecond) {
+        if (nowEpochSecond <= dueEpochSecond) {
+            return 0;
+        }
+        // Whole days only, like Duration.toDays()
+        long chargeableDays = (nowEpochSecond - dueEpochSecond) / SECONDS_PER_DAY - graceDays[roleOrdinal];
+        if (chargeableDays <= 0) {
+            return 0;
+        }
+        long fine = chargeableDays * dailyRateCents[roleOrdinal];
+        long cap = capCents[roleOrdinal];
+        return cap > 0 && fine > cap ? cap : fine;
+    }
+
+    /**
+     * Evaluates the fines of a batch of loans in one pass without allocating.
+     * Arrays are parallel: entry i describes loan i; results are written to finesOut.
+     */
+    public void evaluate(long[] dueEpochSeconds, byte[] roleOrdinals, int count,
+                         long nowEpochSecond, long[] finesOut) {
+        for (int i = 0; i < count; i++) {
+            finesOut[i] = fineCents(roleOrdinals[i], dueEpochSeconds[i], nowEpochSecond);
+        }
+    }
+
+    // Conversions at the entity/DTO boundary
+    public static BigDecimal toAmount(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    public static long toCents(BigDecimal amount) {
+        if (amount == null) {
+            return 0;
+        }
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static long epochSecond(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+}
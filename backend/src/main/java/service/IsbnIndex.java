@@ -0,0 +1,174 @@
+package com.library.service;
+
+import com.library.event.BookEvent;
+import com.library.repository.BookRepository;
+import com.library.util.Isbn;
+import com.library.util.LongLongHashMap;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory index from numeric ISBN keys (see Isbn) to book ids, on primitive long maps.
+ *
+ * The index holds every committed book with a valid ISBN and follows BookEvents. Writers
+ * claim a key before saving a book. The claim lasts until the book's event indexes the key
+ * or the transaction rolls back, so two concurrent creates cannot both pass the duplicate
+ * check. Duplicate checks therefore never query the database.
+ *
+ * At startup, books saved before the isbn_key column existed get their key written.
+ */
+@Service
+public class IsbnIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(IsbnIndex.class);
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    private final TransactionTemplate transactionTemplate;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Guarded by lock
+    private final LongLongHashMap bookIdsByKey = new LongLongHashMap();
+    private final LongLongHashMap keysByBookId = new LongLongHashMap();
+    private final Set<Long> claims = new HashSet<>();
+
+    public IsbnIndex(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void load() {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Object[]> rows = bookRepository.findAllIsbns();
+            int backfilled = 0;
+            int invalid = 0;
+            lock.writeLock().lock();
+            try {
+                for (Object[] row : rows) {
+                    long bookId = (Long) row[0];
+                    long key = row[2] != null ? (Long) row[2] : Isbn.toKey((String) row[1]);
+                    if (key == Isbn.INVALID) {
+                        invalid++;
+                        continue;
+                    }
+                    if (row[2] == null) {
+                        bookRepository.setIsbnKey(bookId, key);
+                        backfilled++;
+                    }
+                    if (bookIdsByKey.containsKey(key)) {
+                        log.warn("Books {} and {} have the same ISBN {}", bookIdsByKey.get(key), bookId, key);
+                    } else {
+                        bookIdsByKey.put(key, bookId);
+                    }
+                    keysByBookId.put(bookId, key);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (backfilled > 0 || invalid > 0) {
+                log.info("ISBN keys written for {} books; {} books have no valid ISBN", backfilled, invalid);
+            }
+        });
+    }
+
+    @Order(EntityTagService.READ_MODEL_ORDER)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onBookEvent(BookEvent event) {
+        lock.writeLock().lock();
+        try {
+            switch (event.getType()) {
+                case CREATED, UPDATED -> put(event.getBookId(), Isbn.toKey(event.getBook().getIsbn()));
+                case DELETED -> remove(event.getBookId());
+                case AVAILABILITY_CHANGED -> { }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Id of the committed book with this key, or 0
+    public long findBookId(long key) {
+        lock.readLock().lock();
+        try {
+            return bookIdsByKey.get(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Claims a key for a book being created (bookId null) or given a new ISBN in the current
+     * transaction. Returns false if another book already has the key, or another transaction
+     * holds a claim on it. Re-claiming a book's own key always succeeds.
+     */
+    public boolean claim(long key, Long bookId) {
+        lock.writeLock().lock();
+        try {
+            long owner = bookIdsByKey.get(key);
+            if (owner != 0) {
+                return bookId != null && owner == bookId;
+            }
+            if (!claims.add(key)) {
+                return false;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        // After a commit the book's event takes the claim over; otherwise drop it here
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    release(key);
+                }
+            }
+        });
+        return true;
+    }
+
+    // Helper methods (callers hold the write lock, except release)
+    private void put(long bookId, long key) {
+        remove(bookId);
+        if (key == Isbn.INVALID) {
+            return;
+        }
+        if (!bookIdsByKey.containsKey(key)) {
+            bookIdsByKey.put(key, bookId);
+        }
+        keysByBookId.put(bookId, key);
+        claims.remove(key);
+    }
+
+    private void remove(long bookId) {
+        long key = keysByBookId.remove(bookId);
+        if (key != 0 && bookIdsByKey.get(key) == bookId) {
+            bookIdsByKey.remove(key);
+        }
+    }
+
+    private void release(long key) {
+        lock.writeLock().lock();
+        try {
+            claims.remove(key);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,555 @@
+package com.library.service;
+
+import com.library.dto.loan.LoanAnalyticsRow;
+import com.library.dto.loan.LoanFact;
+import com.library.entity.Book;
+import com.library.entity.BookLoan;
+import com.library.entity.User;
+import com.library.event.BookEvent;
+import com.library.event.LoanEvent;
+import com.library.repository.BookLoanRepository;
+import com.library.repository.BookRepository;
+import com.library.repository.LoanHistoryRepository;
+import com.library.repository.UserRepository;
+import com.library.util.LongIntHashMap;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.Year;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Columnar copy of every loan (live and archived) for ad-hoc analytics.
+ *
+ * Each loan is one row across parallel primitive arrays: epoch-second dates, a status byte,
+ * outstanding fine in cents and dictionary indexes for the borrower and the book. Borrower
+ * role and book category are stored once per dictionary entry. Queries filter by loan date and
+ * group by up to a few {@link AnalyticsDimension}s; the scan is split into row ranges on a
+ * fork-join pool and the per-range aggregates are summed.
+ *
+ * Loaded once at startup, then kept current from LoanEvents and BookEvents after commit.
+ * Rows are never removed: archiving a loan does not change it analytically.
+ */
+@Service
+public class LoanAnalyticsStore {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MIN_ROWS_PER_TASK = 1 << 16;
+    private static final int MAX_GROUPS = 1 << 20;
+    private static final double SECONDS_PER_DAY = 86_400d;
+    private static final String UNCATEGORIZED = "Uncategorized";
+    private static final String UNKNOWN_ROLE = "UNKNOWN";
+
+    private static final User.Role[] ROLES = User.Role.values();
+    private static final BookLoan.LoanStatus[] STATUSES = BookLoan.LoanStatus.values();
+    private static final byte STATUS_ACTIVE = (byte) BookLoan.LoanStatus.ACTIVE.ordinal();
+    private static final byte STATUS_RETURNED = (byte) BookLoan.LoanStatus.RETURNED.ordinal();
+    private static final byte STATUS_OVERDUE = (byte) BookLoan.LoanStatus.OVERDUE.ordinal();
+    // Role index of borrowers that no longer exist
+    private static final byte NO_ROLE = (byte) ROLES.length;
+
+    @Autowired
+    private BookLoanRepository bookLoanRepository;
+
+    @Autowired
+    private LoanHistoryRepository loanHistoryRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    // Worker threads for scans (0 = one per processor)
+    @Value("${app.analytics.parallelism:0}")
+    private int parallelism;
+
+    private final TransactionTemplate readOnlyTransaction;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private ForkJoinPool pool;
+
+    // Loan rows
+    private int size;
+    private long[] loanIds = new long[INITIAL_CAPACITY];
+    private int[] userIndexes = new int[INITIAL_CAPACITY];
+    private int[] bookIndexes = new int[INITIAL_CAPACITY];
+    private byte[] statuses = new byte[INITIAL_CAPACITY];
+    private long[] loanDates = new long[INITIAL_CAPACITY];
+    private long[] dueDates = new long[INITIAL_CAPACITY];
+    private long[] returnDates = new long[INITIAL_CAPACITY];
+    private long[] fineCents = new long[INITIAL_CAPACITY];
+    // Row + 1 by loan id
+    private final LongIntHashMap rowsByLoanId = new LongIntHashMap(INITIAL_CAPACITY);
+    private long minLoanDate = Long.MAX_VALUE;
+    private long maxLoanDate = Long.MIN_VALUE;
+
+    // Dictionaries (index + 1 by id)
+    private final LongIntHashMap usersById = new LongIntHashMap();
+    private byte[] userRoles = new byte[INITIAL_CAPACITY];
+    private final LongIntHashMap booksById = new LongIntHashMap();
+    private int[] bookCategories = new int[INITIAL_CAPACITY];
+    private final Map<String, Integer> categoriesByName = new HashMap<>();
+    private final List<String> categoryNames = new ArrayList<>();
+
+    public LoanAnalyticsStore(PlatformTransactionManager transactionManager) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @PostConstruct
+    public void load() {
+        pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        lock.writeLock().lock();
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                for (Object[] user : userRepository.findAllRoles()) {
+                    setUserRole((Long) user[0], (User.Role) user[1]);
+                }
+                for (Object[] book : bookRepository.findAllCategories()) {
+                    setBookCategory((Long) book[0], (String) book[1]);
+                }
+                // Live loans first: a loan archived in between then shows up twice and is skipped
+                try (Stream<LoanFact> loans = bookLoanRepository.streamLoanFacts()) {
+                    loans.forEach(this::append);
+                }
+                try (Stream<LoanFact> loans = loanHistoryRepository.streamLoanFacts()) {
+                    loans.forEach(this::append);
+                }
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    @Order(EntityTagService.READ_MODEL_ORDER)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onLoanEvent(LoanEvent event) {
+        if (event.getType() == LoanEvent.Type.CREATED) {
+            // Dimension lookups for borrowers and books first seen here happen outside the lock
+            User.Role role = isKnownUser(event.getUserId()) ? null :
+                    userRepository.findById(event.getUserId()).map(User::getRole).orElse(null);
+            String category = isKnownBook(event.getBookId()) ? null :
+                    bookRepository.findById(event.getBookId()).map(Book::getCategory).orElse(null);
+            lock.writeLock().lock();
+            try {
+                if (role != null) {
+                    setUserRole(event.getUserId(), role);
+                }
+                if (category != null) {
+                    setBookCategory(event.getBookId(), category);
+                }
+                append(new LoanFact(event.getLoanId(), event.getUserId(), event.getBookId(),
+                        event.getOccurredAt(), event.getDueDate(), null, BookLoan.LoanStatus.ACTIVE, null));
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            int row = rowsByLoanId.get(event.getLoanId()) - 1;
+            if (row < 0) {
+                return;
+            }
+            switch (event.getType()) {
+                case RETURNED -> {
+                    statuses[row] = STATUS_RETURNED;
+                    returnDates[row] = epochSecond(event.getOccurredAt());
+                }
+                case RENEWED -> dueDates[row] = epochSecond(event.getDueDate());
+                case OVERDUE -> statuses[row] = STATUS_OVERDUE;
+                default -> { }
+            }
+            fineCents[row] += event.getFineDeltaCents();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Order(EntityTagService.READ_MODEL_ORDER)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onBookEvent(BookEvent event) {
+        // Deleted books keep their category for the loans that reference them
+        if (event.getType() == BookEvent.Type.CREATED || event.getType() == BookEvent.Type.UPDATED) {
+            lock.writeLock().lock();
+            try {
+                setBookCategory(event.getBookId(), event.getBook().getCategory());
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Aggregates loans with a loan date in [from, to) grouped by the given dimensions
+     * (none = one overall row). Either bound may be null. Groups without loans are omitted.
+     */
+    public List<LoanAnalyticsRow> query(List<AnalyticsDimension> groupBy, LocalDateTime from, LocalDateTime to) {
+        lock.readLock().lock();
+        try {
+            long fromSecond = from != null ? Math.max(epochSecond(from), minLoanDate) : minLoanDate;
+            long toSecond = to != null ? Math.min(epochSecond(to), maxLoanDate + 1) : maxLoanDate + 1;
+            if (size == 0 || fromSecond >= toSecond) {
+                return new ArrayList<>();
+            }
+
+            Scan scan = new Scan(groupBy, fromSecond, toSecond);
+            Aggregate total = pool.invoke(new ScanTask(scan, 0, size,
+                    Math.max(MIN_ROWS_PER_TASK, size / (pool.getParallelism() * 4))));
+            return scan.toRows(total);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Category of a book as last seen, Uncategorized if unknown
+    public String getBookCategory(Long bookId) {
+        lock.readLock().lock();
+        try {
+            int index = booksById.get(bookId) - 1;
+            return index < 0 ? UNCATEGORIZED : categoryNames.get(bookCategories[index]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Number of loans held
+    public int getLoanCount() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Helper methods (callers hold the write lock)
+    private void append(LoanFact loan) {
+        if (rowsByLoanId.containsKey(loan.getLoanId())) {
+            return;
+        }
+        if (size == loanIds.length) {
+            int capacity = size + (size >> 1);
+            loanIds = Arrays.copyOf(loanIds, capacity);
+            userIndexes = Arrays.copyOf(userIndexes, capacity);
+            bookIndexes = Arrays.copyOf(bookIndexes, capacity);
+            statuses = Arrays.copyOf(statuses, capacity);
+            loanDates = Arrays.copyOf(loanDates, capacity);
+            dueDates = Arrays.copyOf(dueDates, capacity);
+            returnDates = Arrays.copyOf(returnDates, capacity);
+            fineCents = Arrays.copyOf(fineCents, capacity);
+        }
+        long loanDate = epochSecond(loan.getLoanDate());
+        loanIds[size] = loan.getLoanId();
+        userIndexes[size] = userIndex(loan.getUserId());
+        bookIndexes[size] = bookIndex(loan.getBookId());
+        statuses[size] = (byte) loan.getStatus().ordinal();
+        loanDates[size] = loanDate;
+        dueDates[size] = epochSecond(loan.getDueDate());
+        returnDates[size] = loan.getReturnDate() != null ? epochSecond(loan.getReturnDate()) : 0;
+        fineCents[size] = FinePolicy.toCents(loan.getFine());
+        rowsByLoanId.put(loan.getLoanId(), size + 1);
+        minLoanDate = Math.min(minLoanDate, loanDate);
+        maxLoanDate = Math.max(maxLoanDate, loanDate);
+        size++;
+    }
+
+    private int userIndex(long userId) {
+        int index = usersById.get(userId) - 1;
+        if (index < 0) {
+            index = usersById.size();
+            if (index == userRoles.length) {
+                userRoles = Arrays.copyOf(userRoles, index * 2);
+            }
+            userRoles[index] = NO_ROLE;
+            usersById.put(userId, index + 1);
+        }
+        return index;
+    }
+
+    private int bookIndex(long bookId) {
+        int index = booksById.get(bookId) - 1;
+        if (index < 0) {
+            index = booksById.size();
+            if (index == bookCategories.length) {
+                bookCategories = Arrays.copyOf(bookCategories, index * 2);
+            }
+            bookCategories[index] = categoryIndex(null);
+            booksById.put(bookId, index + 1);
+        }
+        return index;
+    }
+
+    private void setUserRole(long userId, User.Role role) {
+        userRoles[userIndex(userId)] = role != null ? (byte) role.ordinal() : NO_ROLE;
+    }
+
+    private void setBookCategory(long bookId, String category) {
+        bookCategories[bookIndex(bookId)] = categoryIndex(category);
+    }
+
+    private int categoryIndex(String category) {
+        String name = category == null || category.isBlank() ? UNCATEGORIZED : category.trim();
+        return categoriesByName.computeIfAbsent(name, key -> {
+            categoryNames.add(key);
+            return categoryNames.size() - 1;
+        });
+    }
+
+    private boolean isKnownUser(long userId) {
+        lock.readLock().lock();
+        try {
+            return usersById.containsKey(userId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean isKnownBook(long bookId) {
+        lock.readLock().lock();
+        try {
+            return booksById.containsKey(bookId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static long epochSecond(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    /**
+     * One query over the current arrays. Group keys are mixed-radix numbers with one digit per
+     * dimension; time dimensions are bucketed by binary search over precomputed boundaries.
+     */
+    private final class Scan {
+        private final AnalyticsDimension[] dimensions;
+        private final int[] cardinalities;
+        private final long[][] boundaries;
+        private final int groups;
+        private final long fromSecond;
+        private final long toSecond;
+        private final long now = epochSecond(LocalDateTime.now());
+
+        // Captured under the read lock, which keeps writers out for the whole scan
+        private final int[] userIndexes = LoanAnalyticsStore.this.userIndexes;
+        private final int[] bookIndexes = LoanAnalyticsStore.this.bookIndexes;
+        private final byte[] statuses = LoanAnalyticsStore.this.statuses;
+        private final long[] loanDates = LoanAnalyticsStore.this.loanDates;
+        private final long[] dueDates = LoanAnalyticsStore.this.dueDates;
+        private final long[] returnDates = LoanAnalyticsStore.this.returnDates;
+        private final long[] fineCents = LoanAnalyticsStore.this.fineCents;
+        private final byte[] userRoles = LoanAnalyticsStore.this.userRoles;
+        private final int[] bookCategories = LoanAnalyticsStore.this.bookCategories;
+
+        private Scan(List<AnalyticsDimension> groupBy, long fromSecond, long toSecond) {
+            this.dimensions = groupBy.toArray(new AnalyticsDimension[0]);
+            this.cardinalities = new int[dimensions.length];
+            this.boundaries = new long[dimensions.length][];
+            this.fromSecond = fromSecond;
+            this.toSecond = toSecond;
+
+            long groupCount = 1;
+            for (int d = 0; d < dimensions.length; d++) {
+                switch (dimensions[d]) {
+                    case CATEGORY -> cardinalities[d] = categoryNames.size();
+                    case ROLE -> cardinalities[d] = ROLES.length + 1;
+                    case STATUS -> cardinalities[d] = STATUSES.length;
+                    case MONTH, YEAR -> {
+                        boundaries[d] = timeBoundaries(dimensions[d]);
+                        cardinalities[d] = boundaries[d].length - 1;
+                    }
+                }
+                groupCount *= cardinalities[d];
+                if (groupCount > MAX_GROUPS) {
+                    throw new IllegalArgumentException("Too many groups; narrow the date range or use fewer dimensions");
+                }
+            }
+            this.groups = (int) groupCount;
+        }
+
+        // Start of every month/year touched by [fromSecond, toSecond), plus the end of the last one
+        private long[] timeBoundaries(AnalyticsDimension dimension) {
+            LocalDateTime first = LocalDateTime.ofEpochSecond(fromSecond, 0, ZoneOffset.UTC);
+            LocalDateTime last = LocalDateTime.ofEpochSecond(toSecond - 1, 0, ZoneOffset.UTC);
+            List<LocalDateTime> starts = new ArrayList<>();
+            if (dimension == AnalyticsDimension.MONTH) {
+                YearMonth end = YearMonth.from(last).plusMonths(1);
+                for (YearMonth month = YearMonth.from(first); !month.isAfter(end); month = month.plusMonths(1)) {
+                    starts.add(month.atDay(1).atStartOfDay());
+                }
+            } else {
+                Year end = Year.from(last).plusYears(1);
+                for (Year year = Year.from(first); !year.isAfter(end); year = year.plusYears(1)) {
+                    starts.add(year.atDay(1).atStartOfDay());
+                }
+            }
+            long[] result = new long[starts.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = epochSecond(starts.get(i));
+            }
+            return result;
+        }
+
+        private Aggregate scan(int from, int to) {
+            Aggregate aggregate = new Aggregate(groups);
+            for (int row = from; row < to; row++) {
+                long loanDate = loanDates[row];
+                if (loanDate < fromSecond || loanDate >= toSecond) {
+                    continue;
+                }
+                int key = 0;
+                for (int d = 0; d < dimensions.length; d++) {
+                    key = key * cardinalities[d] + bucket(d, row, loanDate);
+                }
+
+                aggregate.loans[key]++;
+                aggregate.fineCents[key] += fineCents[row];
+                long returnDate = returnDates[row];
+                if (returnDate != 0) {
+                    aggregate.returned[key]++;
+                    aggregate.loanSeconds[key] += returnDate - loanDate;
+                    if (returnDate > dueDates[row]) {
+                        aggregate.overdue[key]++;
+                    }
+                } else if (statuses[row] == STATUS_OVERDUE || (statuses[row] == STATUS_ACTIVE && dueDates[row] < now)) {
+                    aggregate.overdue[key]++;
+                }
+            }
+            return aggregate;
+        }
+
+        private int bucket(int dimension, int row, long loanDate) {
+            return switch (dimensions[dimension]) {
+                case CATEGORY -> bookCategories[bookIndexes[row]];
+                case ROLE -> userRoles[userIndexes[row]];
+                case STATUS -> statuses[row];
+                case MONTH, YEAR -> {
+                    int index = Arrays.binarySearch(boundaries[dimension], loanDate);
+                    yield index >= 0 ? index : -index - 2;
+                }
+            };
+        }
+
+        private List<LoanAnalyticsRow> toRows(Aggregate total) {
+            List<LoanAnalyticsRow> rows = new ArrayList<>();
+            for (int key = 0; key < groups; key++) {
+                long loans = total.loans[key];
+                if (loans == 0) {
+                    continue;
+                }
+                long returned = total.returned[key];
+                rows.add(new LoanAnalyticsRow(
+                        labels(key),
+                        loans,
+                        returned,
+                        total.overdue[key],
+                        (double) total.overdue[key] / loans,
+                        returned > 0 ? total.loanSeconds[key] / SECONDS_PER_DAY / returned : 0d,
+                        FinePolicy.toAmount(total.fineCents[key])));
+            }
+            return rows;
+        }
+
+        private Map<String, String> labels(int key) {
+            String[] values = new String[dimensions.length];
+            for (int d = dimensions.length - 1; d >= 0; d--) {
+                int value = key % cardinalities[d];
+                key /= cardinalities[d];
+                values[d] = switch (dimensions[d]) {
+                    case CATEGORY -> categoryNames.get(value);
+                    case ROLE -> value < ROLES.length ? ROLES[value].name() : UNKNOWN_ROLE;
+                    case STATUS -> STATUSES[value].name();
+                    case MONTH -> YearMonth.from(LocalDateTime.ofEpochSecond(boundaries[d][value], 0, ZoneOffset.UTC)).toString();
+                    case YEAR -> String.valueOf(LocalDateTime.ofEpochSecond(boundaries[d][value], 0, ZoneOffset.UTC).getYear());
+                };
+            }
+            Map<String, String> labels = new LinkedHashMap<>();
+            for (int d = 0; d < dimensions.length; d++) {
+                labels.put(dimensions[d].name().toLowerCase(), values[d]);
+            }
+            return labels;
+        }
+    }
+
+    // Per-group sums, indexed by group key
+    private static final class Aggregate {
+        private final long[] loans;
+        private final long[] returned;
+        private final long[] overdue;
+        private final long[] loanSeconds;
+        private final long[] fineCents;
+
+        private Aggregate(int groups) {
+            loans = new long[groups];
+            returned = new long[groups];
+            overdue = new long[groups];
+            loanSeconds = new long[groups];
+            fineCents = new long[groups];
+        }
+
+        private Aggregate add(Aggregate other) {
+            for (int key = 0; key < loans.length; key++) {
+                loans[key] += other.loans[key];
+                returned[key] += other.returned[key];
+                overdue[key] += other.overdue[key];
+                loanSeconds[key] += other.loanSeconds[key];
+                fineCents[key] += other.fineCents[key];
+            }
+            return this;
+        }
+    }
+
+    // Splits the row range in halves until it is small enough to scan directly
+    private static final class ScanTask extends RecursiveTask<Aggregate> {
+        private final Scan scan;
+        private final int from;
+        private final int to;
+        private final int threshold;
+
+        private ScanTask(Scan scan, int from, int to, int threshold) {
+            this.scan = scan;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected Aggregate compute() {
+            if (to - from <= threshold) {
+                return scan.scan(from, to);
+            }
+            int middle = (from + to) >>> 1;
+            ScanTask left = new ScanTask(scan, from, middle, threshold);
+            left.fork();
+            Aggregate right = new ScanTask(scan, middle, to, threshold).compute();
+            return right.add(left.join());
+        }
+    }
+}
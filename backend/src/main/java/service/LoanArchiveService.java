@@ -0,0 +1,95 @@
+package com.library.service;
+
+import com.library.entity.BookLoan;
+import com.library.entity.LoanHistory;
+import com.library.repository.BookLoanRepository;
+import com.library.repository.LoanHistoryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Moves settled loans out of book_loans into loan_history.
+ * Only RETURNED loans without an outstanding fine are archived, so every query that
+ * looks at active, overdue or unpaid loans keeps working against the hot table alone.
+ * Each chunk is moved in its own transaction to keep lock times short.
+ */
+@Service
+public class LoanArchiveService {
+
+    private static final Logger log = LoggerFactory.getLogger(LoanArchiveService.class);
+
+    @Autowired
+    private BookLoanRepository bookLoanRepository;
+
+    @Autowired
+    private LoanHistoryRepository loanHistoryRepository;
+
+    @Autowired
+    private EntityTagService entityTagService;
+
+    private final TransactionTemplate transactionTemplate;
+
+    // Loans returned more than this many days ago are archived
+    @Value("${app.loans.archive.after-days:365}")
+    private int archiveAfterDays;
+
+    // Number of loans moved per transaction
+    @Value("${app.loans.archive.batch-size:500}")
+    private int batchSize;
+
+    public LoanArchiveService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // Scheduled archival run (nightly by default)
+    @Scheduled(cron = "${app.loans.archive.cron:0 30 2 * * *}")
+    public void scheduledArchive() {
+        int archived = archiveReturnedLoans();
+        log.info("Loan archival finished, {} loans moved to loan_history", archived);
+    }
+
+    // Archive all eligible loans, chunk by chunk; returns the number of loans moved
+    public int archiveReturnedLoans() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(archiveAfterDays);
+        int total = 0;
+        int moved;
+        do {
+            // No LoanEvents here, so move the loan list tags around each commit by hand
+            entityTagService.recordChange(EntityTagService.Table.LOANS);
+            moved = transactionTemplate.execute(status -> archiveChunk(cutoff));
+            entityTagService.recordChange(EntityTagService.Table.LOANS);
+            total += moved;
+        } while (moved == batchSize);
+        return total;
+    }
+
+    private int archiveChunk(LocalDateTime cutoff) {
+        // Archived rows leave the table, so the first page is always the next chunk
+        List<BookLoan> loans = bookLoanRepository.findArchivableLoans(cutoff, PageRequest.of(0, batchSize));
+        if (loans.isEmpty()) {
+            return 0;
+        }
+
+        List<LoanHistory> history = loans.stream()
+                .map(LoanHistory::fromLoan)
+                .collect(Collectors.toList());
+        loanHistoryRepository.saveAll(history);
+
+        List<Long> ids = loans.stream()
+                .map(BookLoan::getId)
+                .collect(Collectors.toList());
+        bookLoanRepository.deleteAllByIdInBatch(ids);
+        return loans.size();
+    }
+}
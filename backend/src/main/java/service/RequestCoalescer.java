@@ -0,0 +1,143 @@
+package com.library.service;
+
+import com.library.dto.report.CoalescingStats;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Single-flight execution of {@link Coalesced} service methods.
+ *
+ * The first call for a method and argument list runs it; calls with equal arguments that
+ * arrive while it is running wait for that run and receive its result (or its exception)
+ * instead of running the same queries again. Nothing is kept once the run finishes, so this
+ * is not a cache: a call that starts after the result was produced runs the method anew.
+ *
+ * A call only joins a run that started after the last change it could have seen: the run's
+ * key includes the change counters of {@link EntityTagService}. So a shared result is never
+ * older than the ETag its caller read beforehand.
+ *
+ * The advice is ordered before the transaction interceptor, so waiting callers do not hold
+ * a transaction or a connection. Calls made inside an existing transaction are never
+ * coalesced, because they must see that transaction's own writes.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestCoalescer {
+
+    @Autowired
+    private EntityTagService entityTagService;
+
+    private final ConcurrentHashMap<Call, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Method, Counters> counters = new ConcurrentHashMap<>();
+
+    @Around("@annotation(com.library.service.Coalesced)")
+    public Object coalesce(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return joinPoint.proceed();
+        }
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Counters methodCounters = counters.computeIfAbsent(method, m -> new Counters());
+        methodCounters.calls.increment();
+
+        Call call = new Call(method, joinPoint.getArgs(), entityTagService.getTotalChangeCount());
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(call, flight);
+        if (running != null) {
+            methodCounters.coalesced.increment();
+            return await(running);
+        }
+
+        methodCounters.executions.increment();
+        try {
+            Object result = joinPoint.proceed();
+            flight.complete(result);
+            return result;
+        } catch (Throwable e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(call, flight);
+        }
+    }
+
+    // Calls, executions and coalesced calls per method, busiest first
+    public List<CoalescingStats> getStats() {
+        List<CoalescingStats> stats = new ArrayList<>();
+        counters.forEach((method, methodCounters) -> {
+            int running = 0;
+            for (Call call : inFlight.keySet()) {
+                if (call.method.equals(method)) {
+                    running++;
+                }
+            }
+            stats.add(new CoalescingStats(method.getDeclaringClass().getSimpleName() + "." + method.getName(),
+                    methodCounters.calls.sum(), methodCounters.executions.sum(),
+                    methodCounters.coalesced.sum(), running));
+        });
+        stats.sort(Comparator.comparingLong(CoalescingStats::getCalls).reversed());
+        return stats;
+    }
+
+    // Helper methods
+    private static Object await(CompletableFuture<Object> running) throws Throwable {
+        try {
+            return running.get();
+        } catch (ExecutionException e) {
+            // Rethrow what the running call threw, as if this call had run the method itself
+            throw e.getCause();
+        }
+    }
+
+    private static final class Counters {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder executions = new LongAdder();
+        private final LongAdder coalesced = new LongAdder();
+    }
+
+    // A method, its arguments (compared with equals) and the change count when it was called
+    private static final class Call {
+        private final Method method;
+        private final Object[] args;
+        private final long changes;
+        private final int hash;
+
+        private Call(Method method, Object[] args, long changes) {
+            this.method = method;
+            this.args = args;
+            this.changes = changes;
+            this.hash = 31 * (31 * method.hashCode() + Arrays.deepHashCode(args)) + Long.hashCode(changes);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Call)) {
+                return false;
+            }
+            Call call = (Call) other;
+            return changes == call.changes && method.equals(call.method) && Arrays.deepEquals(args, call.args);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.library.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Final response bytes of hot read endpoints.
+ *
+ * Entries are keyed by route and parameters. Each entry holds the JSON exactly as the
+ * message converter would write it, plus a gzipped copy, and the ETag it was built for.
+ * The tags of the cached endpoints come from the catalog change counter (or a single book's
+ * version), so once a BookService mutation commits, old entries no longer match. They are
+ * rebuilt on the next read. A hit skips the service, the mapping and Jackson, and its
+ * bytes are written straight to the servlet output stream.
+ *
+ * Endpoints that serve read-model state rely on EntityTagService moving the list tags only
+ * after the read models have applied a change. Bytes built from the old state during a
+ * commit are therefore cached under a tag that the commit itself retires.
+ *
+ * Only JSON is cached; requests that ask for Smile or CBOR take the normal path.
+ */
+@Service
+public class ResponseByteCache {
+
+    // Smaller bodies are not worth a Content-Encoding header
+    private static final int MIN_GZIP_BYTES = 256;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // The cache is cleared when it grows past this many entries
+    @Value("${app.response-cache.max-entries:10000}")
+    private int maxEntries;
+
+    private final ConcurrentHashMap<String, CachedResponse> entries = new ConcurrentHashMap<>();
+
+    // Whether the client takes the JSON this cache holds
+    public boolean isCacheable(HttpServletRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept == null || accept.isBlank()) {
+            return true;
+        }
+        if (accept.contains("smile") || accept.contains("cbor")) {
+            return false;
+        }
+        return accept.contains(MediaType.APPLICATION_JSON_VALUE) || accept.contains("*/*");
+    }
+
+    /**
+     * Writes the response for the key, serializing what the loader returns only when there is
+     * no entry built for this tag. Exceptions thrown by the loader propagate before anything
+     * has been written.
+     */
+    public void write(String key, String tag, Supplier<?> loader,
+                      HttpServletRequest request, HttpServletResponse response) throws IOException {
+        CachedResponse cached = entries.get(key);
+        if (cached == null || !cached.tag.equals(tag)) {
+            cached = serialize(tag, loader.get());
+            if (entries.size() >= maxEntries && !entries.containsKey(key)) {
+                entries.clear();
+            }
+            entries.put(key, cached);
+        }
+
+        boolean gzip = cached.gzipped != null && acceptsGzip(request);
+        byte[] body = gzip ? cached.gzipped : cached.json;
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+        response.flushBuffer();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // Helper methods
+    private CachedResponse serialize(String tag, Object body) throws IOException {
+        byte[] json = objectMapper.writeValueAsBytes(body);
+        byte[] gzipped = null;
+        if (json.length >= MIN_GZIP_BYTES) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(json.length / 4);
+            try (GZIPOutputStream out = new GZIPOutputStream(buffer)) {
+                out.write(json);
+            }
+            gzipped = buffer.toByteArray();
+        }
+        return new CachedResponse(tag, json, gzipped);
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                // "gzip;q=0" explicitly refuses it
+                return parts.length == 1 || !parts[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    private static final class CachedResponse {
+        private final String tag;
+        private final byte[] json;
+        private final byte[] gzipped;
+
+        private CachedResponse(String tag, byte[] json, byte[] gzipped) {
+            this.tag = tag;
+            this.json = json;
+            this.gzipped = gzipped;
+        }
+    }
+}
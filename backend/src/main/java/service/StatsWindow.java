@@ -0,0 +1,39 @@
+package com.library.service;
+
+/**
+ * Time windows supported by the circulation rankings.
+ * ALL_TIME counts every loan; the others only consider recent activity.
+ */
+public enum StatsWindow {
+    ALL_TIME(0),
+    WEEK(7),
+    MONTH(30),
+    YEAR(365);
+
+    private final int days;
+
+    StatsWindow(int days) {
+        this.days = days;
+    }
+
+    public int getDays() {
+        return days;
+    }
+
+    public boolean isAllTime() {
+        return days == 0;
+    }
+
+    // Lenient parsing for request parameters ("all", "week", "30" ...)
+    public static StatsWindow fromParameter(String value) {
+        for (StatsWindow window : values()) {
+            if (window.name().equalsIgnoreCase(value) || String.valueOf(window.days).equals(value)) {
+                return window;
+            }
+        }
+        if ("all".equalsIgnoreCase(value)) {
+            return ALL_TIME;
+        }
+        throw new IllegalArgumentException("Invalid window: " + value + ". Must be one of: ALL_TIME, WEEK, MONTH, YEAR");
+    }
+}
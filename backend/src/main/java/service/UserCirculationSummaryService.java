@@ -0,0 +1,237 @@
+package com.library.service;
+
+import com.library.dto.loan.LoanSnapshot;
+import com.library.dto.user.UserCirculationSummary;
+import com.library.entity.BookLoan;
+import com.library.event.LoanEvent;
+import com.library.repository.BookLoanRepository;
+import com.library.util.LongObjectHashMap;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Per-user circulation read model: open loans (with book ids and due dates) and outstanding
+ * fines, kept in primitive-keyed maps split into lock stripes. Seeded at startup from loans
+ * that are open or fined, then updated from LoanEvents after each commit.
+ *
+ * It lags commits, so it serves reads only; createLoan checks the loan limit and duplicates
+ * against book_loans.
+ */
+@Service
+public class UserCirculationSummaryService {
+
+    private static final int STRIPES = 64;
+
+    @Autowired
+    private BookLoanRepository bookLoanRepository;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    @SuppressWarnings("unchecked")
+    private final LongObjectHashMap<Summary>[] stripes = new LongObjectHashMap[STRIPES];
+
+    public UserCirculationSummaryService(PlatformTransactionManager transactionManager) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new LongObjectHashMap<>();
+        }
+    }
+
+    @PostConstruct
+    public void load() {
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<LoanSnapshot> loans = bookLoanRepository.streamOpenOrFinedLoans()) {
+                loans.forEach(loan -> update(loan.getUserId(), summary -> {
+                    if (loan.getStatus() != BookLoan.LoanStatus.RETURNED) {
+                        summary.addLoan(loan.getLoanId(), loan.getBookId(),
+                                FinePolicy.epochSecond(loan.getDueDate()),
+                                loan.getStatus() == BookLoan.LoanStatus.OVERDUE);
+                    }
+                    summary.fineCents += FinePolicy.toCents(loan.getFine());
+                }));
+            }
+        });
+    }
+
+    @Order(EntityTagService.READ_MODEL_ORDER)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onLoanEvent(LoanEvent event) {
+        update(event.getUserId(), summary -> {
+            switch (event.getType()) {
+                case CREATED -> summary.addLoan(event.getLoanId(), event.getBookId(),
+                        FinePolicy.epochSecond(event.getDueDate()), false);
+                case RETURNED -> summary.removeLoan(event.getLoanId());
+                case RENEWED -> summary.setDueDate(event.getLoanId(), FinePolicy.epochSecond(event.getDueDate()));
+                case OVERDUE -> summary.markOverdue(event.getLoanId());
+                case FINE_PAID -> { }
+            }
+            summary.fineCents += event.getFineDeltaCents();
+        });
+    }
+
+    public UserCirculationSummary getSummary(Long userId) {
+        long now = FinePolicy.epochSecond(LocalDateTime.now());
+        LongObjectHashMap<Summary> stripe = stripe(userId);
+        synchronized (stripe) {
+            return toResponse(userId, stripe.get(userId), now);
+        }
+    }
+
+    public List<UserCirculationSummary> getSummaries(List<Long> userIds) {
+        long now = FinePolicy.epochSecond(LocalDateTime.now());
+        List<UserCirculationSummary> summaries = new ArrayList<>(userIds.size());
+        for (Long userId : userIds) {
+            LongObjectHashMap<Summary> stripe = stripe(userId);
+            synchronized (stripe) {
+                summaries.add(toResponse(userId, stripe.get(userId), now));
+            }
+        }
+        return summaries;
+    }
+
+    // Summaries of every user with open loans or unpaid fines
+    public List<UserCirculationSummary> getAllSummaries() {
+        long now = FinePolicy.epochSecond(LocalDateTime.now());
+        List<UserCirculationSummary> summaries = new ArrayList<>();
+        for (LongObjectHashMap<Summary> stripe : stripes) {
+            synchronized (stripe) {
+                stripe.forEach((userId, summary) -> summaries.add(toResponse(userId, summary, now)));
+            }
+        }
+        return summaries;
+    }
+
+    // Helper methods
+    private void update(long userId, Consumer<Summary> change) {
+        LongObjectHashMap<Summary> stripe = stripe(userId);
+        synchronized (stripe) {
+            Summary summary = stripe.computeIfAbsent(userId, id -> new Summary());
+            change.accept(summary);
+            if (summary.isEmpty()) {
+                stripe.remove(userId);
+            }
+        }
+    }
+
+    private LongObjectHashMap<Summary> stripe(long userId) {
+        return stripes[(int) (userId ^ (userId >>> 32)) & (STRIPES - 1)];
+    }
+
+    private static UserCirculationSummary toResponse(long userId, Summary summary, long now) {
+        if (summary == null) {
+            return new UserCirculationSummary(userId, 0, 0, BigDecimal.ZERO.setScale(2), List.of());
+        }
+        List<Long> bookIds = new ArrayList<>(summary.size);
+        for (int i = 0; i < summary.size; i++) {
+            bookIds.add(summary.bookIds[i]);
+        }
+        return new UserCirculationSummary(userId, summary.activeCount(), summary.overdueCount(now),
+                FinePolicy.toAmount(summary.fineCents), bookIds);
+    }
+
+    /**
+     * Open loans of one user as parallel arrays; users rarely have more than a handful.
+     */
+    private static final class Summary {
+        private long[] loanIds = new long[4];
+        private long[] bookIds = new long[4];
+        private long[] dueDates = new long[4];
+        private boolean[] flaggedOverdue = new boolean[4];
+        private int size;
+        private long fineCents;
+
+        private void addLoan(long loanId, long bookId, long dueDate, boolean overdue) {
+            if (indexOf(loanId) >= 0) {
+                return;
+            }
+            if (size == loanIds.length) {
+                int capacity = size * 2;
+                loanIds = Arrays.copyOf(loanIds, capacity);
+                bookIds = Arrays.copyOf(bookIds, capacity);
+                dueDates = Arrays.copyOf(dueDates, capacity);
+                flaggedOverdue = Arrays.copyOf(flaggedOverdue, capacity);
+            }
+            loanIds[size] = loanId;
+            bookIds[size] = bookId;
+            dueDates[size] = dueDate;
+            flaggedOverdue[size] = overdue;
+            size++;
+        }
+
+        private void removeLoan(long loanId) {
+            int index = indexOf(loanId);
+            if (index < 0) {
+                return;
+            }
+            // Move the last loan into the gap
+            size--;
+            loanIds[index] = loanIds[size];
+            bookIds[index] = bookIds[size];
+            dueDates[index] = dueDates[size];
+            flaggedOverdue[index] = flaggedOverdue[size];
+        }
+
+        private void setDueDate(long loanId, long dueDate) {
+            int index = indexOf(loanId);
+            if (index >= 0) {
+                dueDates[index] = dueDate;
+            }
+        }
+
+        private void markOverdue(long loanId) {
+            int index = indexOf(loanId);
+            if (index >= 0) {
+                flaggedOverdue[index] = true;
+            }
+        }
+
+        private int activeCount() {
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                if (!flaggedOverdue[i]) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        // Loans flagged OVERDUE plus active loans already past their due date
+        private int overdueCount(long now) {
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                if (flaggedOverdue[i] || dueDates[i] < now) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        private int indexOf(long loanId) {
+            for (int i = 0; i < size; i++) {
+                if (loanIds[i] == loanId) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private boolean isEmpty() {
+            return size == 0 && fineCents == 0;
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.library.service;
+
+import com.library.dto.user.UserLookupResult;
+import com.library.dto.user.UserResponse;
+import com.library.entity.User;
+import com.library.event.UserEvent;
+import com.library.repository.UserRepository;
+import com.library.util.LongObjectHashMap;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Token index over member names, usernames and emails for the lookup desk.
+ *
+ * Each field is split into tokens on anything that is not a letter or digit, lower-cased
+ * and stripped of accents, so "José" is found as "jose". A user matches when every query
+ * term is a prefix of one of their tokens. Matches are ranked by how well the terms hit:
+ * whole name tokens first, then name prefixes, then username and email tokens. Only the
+ * best maxResults matches are kept, so a one-letter query does not sort the whole table.
+ * The index is loaded at startup and kept current from UserEvents.
+ */
+@Service
+public class UserLookupIndex {
+
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_TERMS = 8;
+
+    // Token weights: name tokens rank above username and email tokens
+    private static final int NAME = 2;
+    private static final int ACCOUNT = 1;
+
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    private static final Comparator<Match> RANK = Comparator
+            .comparingInt((Match match) -> -match.score)
+            .thenComparing(match -> !Boolean.TRUE.equals(match.entry.user.getIsActive()))
+            .thenComparing(match -> match.entry.sortName)
+            .thenComparingLong(match -> match.entry.user.getId());
+
+    @Autowired
+    private UserRepository userRepository;
+
+    // Upper bound on the matches a lookup ranks and pages through
+    @Value("${app.users.lookup.max-results:200}")
+    private int maxResults;
+
+    private final TransactionTemplate readOnlyTransaction;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Guarded by lock
+    private final LongObjectHashMap<Entry> entries = new LongObjectHashMap<>();
+    private final TreeMap<String, Set<Long>> postings = new TreeMap<>();
+
+    public UserLookupIndex(PlatformTransactionManager transactionManager) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @PostConstruct
+    public void load() {
+        readOnlyTransaction.executeWithoutResult(status -> {
+            List<User> users = userRepository.findAll();
+            lock.writeLock().lock();
+            try {
+                for (User user : users) {
+                    put(UserResponse.fromEntity(user));
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    @Order(EntityTagService.READ_MODEL_ORDER)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onUserEvent(UserEvent event) {
+        lock.writeLock().lock();
+        try {
+            switch (event.getType()) {
+                case CREATED, UPDATED -> put(event.getUser());
+                case DELETED -> remove(event.getUserId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // One page of the users matching every term of the query, best matches first
+    public UserLookupResult lookup(String query, int page, int size) {
+        List<String> terms = new ArrayList<>(tokenize(query));
+        if (terms.isEmpty()) {
+            throw new IllegalArgumentException("Query must contain letters or digits");
+        }
+        if (terms.size() > MAX_TERMS) {
+            terms = terms.subList(0, MAX_TERMS);
+        }
+        page = Math.max(0, page);
+        size = Math.max(1, Math.min(MAX_PAGE_SIZE, size));
+
+        // Worst-ranked match at the head, so the queue keeps the best maxResults
+        PriorityQueue<Match> best = new PriorityQueue<>(RANK.reversed());
+        int total = 0;
+
+        lock.readLock().lock();
+        try {
+            for (Long id : candidates(terms)) {
+                Entry entry = entries.get(id);
+                int score = score(entry, terms);
+                if (score == 0) {
+                    continue;
+                }
+                total++;
+                best.add(new Match(entry, score));
+                if (best.size() > maxResults) {
+                    best.poll();
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Match> ranked = new ArrayList<>(best);
+        ranked.sort(RANK);
+        List<UserResponse> users = new ArrayList<>(size);
+        for (long i = (long) page * size; i < ranked.size() && users.size() < size; i++) {
+            users.add(ranked.get((int) i).entry.user);
+        }
+        return new UserLookupResult(query, total, total > maxResults, page, size, users);
+    }
+
+    // Helper methods (callers hold the lock)
+    private Set<Long> candidates(List<String> terms) {
+        // Ids with a token starting with the longest term; the other terms are checked per user
+        String longest = terms.get(0);
+        for (String term : terms) {
+            if (term.length() > longest.length()) {
+                longest = term;
+            }
+        }
+        Set<Long> ids = new LinkedHashSet<>();
+        for (Set<Long> posting : postings.subMap(longest, true, longest + Character.MAX_VALUE, false).values()) {
+            ids.addAll(posting);
+        }
+        return ids;
+    }
+
+    // Sum over the terms of their best hit, or 0 if some term hits no token
+    private static int score(Entry entry, List<String> terms) {
+        int score = 0;
+        for (String term : terms) {
+            int hit = 0;
+            for (int i = 0; i < entry.tokens.length; i++) {
+                String token = entry.tokens[i];
+                if (token.startsWith(term)) {
+                    int weight = entry.weights[i] * (token.length() == term.length() ? 2 : 1);
+                    hit = Math.max(hit, weight);
+                }
+            }
+            if (hit == 0) {
+                return 0;
+            }
+            score += hit;
+        }
+        return score;
+    }
+
+    private void put(UserResponse user) {
+        remove(user.getId());
+
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        addTokens(weights, user.getFirstName(), NAME);
+        addTokens(weights, user.getLastName(), NAME);
+        addTokens(weights, user.getUsername(), ACCOUNT);
+        addTokens(weights, user.getEmail(), ACCOUNT);
+
+        Entry entry = new Entry(user, weights);
+        entries.put(user.getId(), entry);
+        for (String token : entry.tokens) {
+            postings.computeIfAbsent(token, key -> new HashSet<>()).add(user.getId());
+        }
+    }
+
+    private void remove(Long userId) {
+        Entry entry = entries.remove(userId);
+        if (entry == null) {
+            return;
+        }
+        for (String token : entry.tokens) {
+            Set<Long> posting = postings.get(token);
+            if (posting != null) {
+                posting.remove(userId);
+                if (posting.isEmpty()) {
+                    postings.remove(token);
+                }
+            }
+        }
+    }
+
+    private static void addTokens(Map<String, Integer> weights, String text, int weight) {
+        for (String token : tokenize(text)) {
+            weights.merge(token, weight, Math::max);
+        }
+    }
+
+    // Lower-cased, accent-free tokens of the text, in order and without duplicates
+    private static Set<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null) {
+            return tokens;
+        }
+        String folded = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        for (String token : SEPARATORS.split(folded)) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static final class Entry {
+        private final UserResponse user;
+        private final String[] tokens;
+        private final int[] weights;
+        private final String sortName;
+
+        private Entry(UserResponse user, Map<String, Integer> tokenWeights) {
+            this.user = user;
+            this.tokens = new String[tokenWeights.size()];
+            this.weights = new int[tokenWeights.size()];
+            int i = 0;
+            for (Map.Entry<String, Integer> tokenWeight : tokenWeights.entrySet()) {
+                tokens[i] = tokenWeight.getKey();
+                weights[i++] = tokenWeight.getValue();
+            }
+            Set<String> names = tokenize(user.getLastName());
+            names.addAll(tokenize(user.getFirstName()));
+            this.sortName = String.join(" ", names);
+        }
+    }
+
+    private static final class Match {
+        private final Entry entry;
+        private final int score;
+
+        private Match(Entry entry, int score) {
+            this.entry = entry;
+            this.score = score;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.library.service;
+
+import com.library.dto.user.UserOverview;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Builds the member detail view in one call.
+ *
+ * The user, active loans, overdue loans and the requested history page are loaded at the
+ * same time on a small bounded pool, each in its own read-only transaction. The loan
+ * counts and outstanding fines come from the in-memory circulation summary. The caller
+ * waits up to one shared deadline. A section that is late, fails or finds the pool full
+ * is left out and listed as unavailable, and the rest of the overview is still returned.
+ */
+@Service
+public class UserOverviewService {
+
+    private static final Logger log = LoggerFactory.getLogger(UserOverviewService.class);
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private BookLoanService bookLoanService;
+
+    @Autowired
+    private UserCirculationSummaryService userCirculationSummaryService;
+
+    // Time the whole overview may take before missing sections are given up
+    @Value("${app.users.overview.timeout-ms:2000}")
+    private long timeoutMillis;
+
+    // Threads running sub-queries; each overview uses up to four
+    @Value("${app.users.overview.threads:16}")
+    private int threads;
+
+    private final TransactionTemplate readOnlyTransaction;
+    private ThreadPoolExecutor workers;
+
+    public UserOverviewService(PlatformTransactionManager transactionManager) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger count = new AtomicInteger();
+        workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * 16), runnable -> {
+                    Thread thread = new Thread(runnable, "user-overview-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    public UserOverview getOverview(Long userId, int historyPage, int historySize) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        UserOverview overview = new UserOverview();
+
+        Section<?>[] sections = {
+                submit("user", () -> userService.getUserById(userId), overview::setUser),
+                submit("activeLoans", () -> bookLoanService.getActiveLoansByUser(userId), overview::setActiveLoans),
+                submit("overdueLoans", () -> bookLoanService.getOverdueLoansByUser(userId), overview::setOverdueLoans),
+                submit("history", () -> bookLoanService.getLoanHistoryByUser(userId, historyPage, historySize),
+                        overview::setHistory)
+        };
+        overview.setSummary(userCirculationSummaryService.getSummary(userId));
+
+        for (Section<?> section : sections) {
+            if (!section.await(deadline)) {
+                overview.getUnavailable().add(section.name);
+            }
+        }
+        return overview;
+    }
+
+    // Helper methods
+    private <T> Section<T> submit(String name, Supplier<T> query, Consumer<T> target) {
+        Section<T> section = new Section<>(name, target);
+        try {
+            section.future = workers.submit(() -> readOnlyTransaction.execute(status -> query.get()));
+        } catch (RejectedExecutionException e) {
+            log.warn("Overview section {} skipped, sub-query pool is full", name);
+        }
+        return section;
+    }
+
+    private static final class Section<T> {
+        private final String name;
+        private final Consumer<T> target;
+        private Future<T> future;
+
+        private Section(String name, Consumer<T> target) {
+            this.name = name;
+            this.target = target;
+        }
+
+        // Hands the result to the overview; false if it is missing when the deadline passes
+        private boolean await(long deadline) {
+            if (future == null) {
+                return false;
+            }
+            try {
+                target.accept(future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+                return true;
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                log.warn("Overview section {} timed out", name);
+            } catch (ExecutionException e) {
+                log.warn("Overview section {} failed: {}", name, e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                future.cancel(true);
+                Thread.currentThread().interrupt();
+            }
+            return false;
+        }
+    }
+}
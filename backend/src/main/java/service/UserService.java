@@ -1,17 +1,24 @@
 package com.library.service;
 
+import com.library.dto.BatchItem;
 import com.library.dto.auth.RegisterRequest;
+import com.library.dto.user.UserLookupResult;
 import com.library.dto.user.UserRequest;
 import com.library.dto.user.UserResponse;
 import com.library.entity.User;
+import com.library.event.UserEvent;
 import com.library.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -24,6 +31,12 @@ public class UserService {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private UserLookupIndex userLookupIndex;
+
     // Create new user
     public UserResponse createUser(RegisterRequest registerRequest) {
         // Check if username already exists
@@ -46,10 +59,13 @@ public class UserService {
         user.setRole(User.Role.MEMBER); // Default role
 
         User savedUser = userRepository.save(user);
-        return UserResponse.fromEntity(savedUser);
+        UserResponse response = UserResponse.fromEntity(savedUser);
+        eventPublisher.publishEvent(new UserEvent(UserEvent.Type.CREATED, savedUser.getId(), response));
+        return response;
     }
 
     // Get user by ID
+    @Coalesced
     public UserResponse getUserById(Long id) {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("User not found with id: " + id));
@@ -57,13 +73,23 @@ public class UserService {
     }
 
     // Get user by username
+    @Coalesced
     public UserResponse getUserByUsername(String username) {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new RuntimeException("User not found with username: " + username));
         return UserResponse.fromEntity(user);
     }
 
+    // Get users by id in request order, fetched with chunked IN queries
+    public List<BatchItem<UserResponse>> getUsersByIds(List<Long> ids) {
+        Set<Long> distinct = BatchLookup.distinctIds(ids);
+        Map<Long, UserResponse> found = new HashMap<>(distinct.size() * 2);
+        BatchLookup.fetchInChunks(distinct, userRepository::findAllById, User::getId, UserResponse::fromEntity, found);
+        return BatchLookup.inRequestOrder(ids, found);
+    }
+
     // Get all users
+    @Coalesced
     public List<UserResponse> getAllUsers() {
         return userRepository.findAll().stream()
                 .map(UserResponse::fromEntity)
@@ -71,6 +97,7 @@ public class UserService {
     }
 
     // Get users by role
+    @Coalesced
     public List<UserResponse> getUsersByRole(User.Role role) {
         return userRepository.findByRole(role).stream()
                 .map(UserResponse::fromEntity)
@@ -78,6 +105,7 @@ public class UserService {
     }
 
     // Get active users only
+    @Coalesced
     public List<UserResponse> getActiveUsers() {
         return userRepository.findByIsActiveTrue().stream()
                 .map(UserResponse::fromEntity)
@@ -86,8 +114,14 @@ public class UserService {
 
     // Update user
     public UserResponse updateUser(Long id, UserRequest userRequest) {
+        return updateUser(id, userRequest, null);
+    }
+
+    // Update user, failing if it no longer has the version the client read (If-Match)
+    public UserResponse updateUser(Long id, UserRequest userRequest, Long expectedVersion) {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("User not found with id: " + id));
+        EntityTagService.checkVersion("User", id, user.getVersion(), expectedVersion);
 
         // Check if username is being changed and if it already exists
         if (!user.getUsername().equals(userRequest.getUsername())) {
@@ -129,7 +163,7 @@ public class UserService {
         }
 
         User updatedUser = userRepository.save(user);
-        return UserResponse.fromEntity(updatedUser);
+        return published(updatedUser);
     }
 
     // Delete user (soft delete - set as inactive)
@@ -137,7 +171,7 @@ public class UserService {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("User not found with id: " + id));
         user.setIsActive(false);
-        userRepository.save(user);
+        published(userRepository.save(user));
     }
 
     // Hard delete user
@@ -146,13 +180,17 @@ public class UserService {
             throw new RuntimeException("User not found with id: " + id);
         }
         userRepository.deleteById(id);
+        eventPublisher.publishEvent(new UserEvent(UserEvent.Type.DELETED, id, null));
     }
 
-    // Search users
+    // Search users (the best-ranked matches from the lookup index, capped)
     public List<UserResponse> searchUsers(String searchTerm) {
-        return userRepository.searchUsers(searchTerm).stream()
-                .map(UserResponse::fromEntity)
-                .collect(Collectors.toList());
+        return userLookupIndex.lookup(searchTerm, 0, Integer.MAX_VALUE).getUsers();
+    }
+
+    // Ranked, paginated member lookup by name, username or email
+    public UserLookupResult lookupUsers(String query, int page, int size) {
+        return userLookupIndex.lookup(query, page, size);
     }
 
     // Change user role (admin function)
@@ -161,10 +199,18 @@ public class UserService {
                 .orElseThrow(() -> new RuntimeException("User not found with id: " + id));
         user.setRole(role);
         User updatedUser = userRepository.save(user);
-        return UserResponse.fromEntity(updatedUser);
+        return published(updatedUser);
+    }
+
+    // Publish an UPDATED event for a saved user and return its response
+    private UserResponse published(User user) {
+        UserResponse response = UserResponse.fromEntity(user);
+        eventPublisher.publishEvent(new UserEvent(UserEvent.Type.UPDATED, user.getId(), response));
+        return response;
     }
 
     // Get user statistics
+    @Coalesced
     public UserStatistics getUserStatistics() {
         long totalUsers = userRepository.count();
         long activeUsers = userRepository.countByRole(User.Role.MEMBER) +
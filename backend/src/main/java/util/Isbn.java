@@ -0,0 +1,101 @@
+package com.library.util;
+
+/**
+ * ISBN parsing into a canonical numeric key.
+ *
+ * ISBN-10 and ISBN-13, with or without hyphens or spaces, are checksum-validated and
+ * mapped to the 13-digit ISBN-13 read as a long. ISBN-10s get the 978 prefix they carry
+ * as ISBN-13s. Every way of writing the same book therefore gets the same key.
+ */
+public final class Isbn {
+
+    // Returned for text that is not a valid ISBN; real keys are 13-digit numbers
+    public static final long INVALID = -1L;
+
+    private Isbn() {}
+
+    // Canonical key of the ISBN, or INVALID
+    public static long toKey(String isbn) {
+        if (isbn == null) {
+            return INVALID;
+        }
+        int[] digits = new int[13];
+        int count = 0;
+        for (int i = 0; i < isbn.length(); i++) {
+            char c = isbn.charAt(i);
+            if (c == '-' || c == ' ') {
+                continue;
+            }
+            if (count == 13) {
+                return INVALID;
+            }
+            if (c >= '0' && c <= '9') {
+                digits[count++] = c - '0';
+            } else if ((c == 'X' || c == 'x') && count == 9) {
+                // Check digit 10 of an ISBN-10
+                digits[count++] = 10;
+            } else {
+                return INVALID;
+            }
+        }
+
+        if (count == 10) {
+            return isValidIsbn10(digits) ? isbn13Key(978, digits) : INVALID;
+        }
+        if (count == 13 && digits[9] != 10) {
+            return isValidIsbn13(digits) ? number(digits, 13) : INVALID;
+        }
+        return INVALID;
+    }
+
+    public static boolean isValid(String isbn) {
+        return toKey(isbn) != INVALID;
+    }
+
+    // Helper methods
+    private static boolean isValidIsbn10(int[] digits) {
+        int sum = 0;
+        for (int i = 0; i < 10; i++) {
+            if (digits[i] == 10 && i != 9) {
+                return false;
+            }
+            sum += (10 - i) * digits[i];
+        }
+        return sum % 11 == 0;
+    }
+
+    private static boolean isValidIsbn13(int[] digits) {
+        int prefix = digits[0] * 100 + digits[1] * 10 + digits[2];
+        if (prefix != 978 && prefix != 979) {
+            return false;
+        }
+        int sum = 0;
+        for (int i = 0; i < 13; i++) {
+            sum += digits[i] * (i % 2 == 0 ? 1 : 3);
+        }
+        return sum % 10 == 0;
+    }
+
+    // Prefix plus the first nine digits of an ISBN-10, with a new ISBN-13 check digit
+    private static long isbn13Key(int prefix, int[] isbn10) {
+        int[] digits = new int[13];
+        digits[0] = prefix / 100;
+        digits[1] = prefix / 10 % 10;
+        digits[2] = prefix % 10;
+        System.arraycopy(isbn10, 0, digits, 3, 9);
+        int sum = 0;
+        for (int i = 0; i < 12; i++) {
+            sum += digits[i] * (i % 2 == 0 ? 1 : 3);
+        }
+        digits[12] = (10 - sum % 10) % 10;
+        return number(digits, 13);
+    }
+
+    private static long number(int[] digits, int length) {
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            value = value * 10 + digits[i];
+        }
+        return value;
+    }
+}
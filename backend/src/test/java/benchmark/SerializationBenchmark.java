@@ -0,0 +1,108 @@
+package com.library.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.library.config.WebConfig;
+import com.library.dto.loan.LoanResponse;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Compares the response encodings on loan lists: bytes on the wire and mean encode/decode
+ * time per payload, for JSON, Smile and CBOR. Mappers are configured like the ones the
+ * application registers in WebConfig.
+ *
+ * Payloads are synthetic but shaped like real loan lists (a few hundred books and users
+ * repeated across many loans), generated from a fixed seed so runs are comparable.
+ *
+ * Run from the test classpath, outside the server:
+ *   java -cp target/test-classes:target/classes:<dependencies> com.library.benchmark.SerializationBenchmark \
+ *       [sizes, default 10,100,1000,10000] [iterations, default 50]
+ */
+public class SerializationBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        String sizes = args.length > 0 ? args[0] : "10,100,1000,10000";
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+        Map<String, ObjectMapper> formats = new LinkedHashMap<>();
+        formats.put("JSON", Jackson2ObjectMapperBuilder.json().build());
+        formats.put("SMILE", Jackson2ObjectMapperBuilder.json().factory(WebConfig.smileFactory()).build());
+        formats.put("CBOR", Jackson2ObjectMapperBuilder.json().factory(new CBORFactory()).build());
+
+        System.out.printf("%-6s %8s %10s %8s %12s %12s%n",
+                "format", "loans", "bytes", "vs JSON", "encode (us)", "decode (us)");
+        for (String size : sizes.split(",")) {
+            LoanResponse[] payload = samplePayload(Integer.parseInt(size.trim()));
+            int jsonBytes = 0;
+            for (Map.Entry<String, ObjectMapper> format : formats.entrySet()) {
+                jsonBytes = measure(format.getKey(), format.getValue(), payload, iterations, jsonBytes);
+            }
+        }
+    }
+
+    // Prints one result line and returns the JSON size to compare later formats with
+    private static int measure(String format, ObjectMapper mapper, LoanResponse[] payload, int iterations,
+                               int jsonBytes) throws IOException {
+        // Warm up the serializers before timing
+        byte[] encoded = mapper.writeValueAsBytes(payload);
+        for (int i = 0; i < iterations; i++) {
+            mapper.readValue(mapper.writeValueAsBytes(payload), LoanResponse[].class);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            encoded = mapper.writeValueAsBytes(payload);
+        }
+        long encodeNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            mapper.readValue(encoded, LoanResponse[].class);
+        }
+        long decodeNanos = System.nanoTime() - start;
+
+        int baseline = jsonBytes == 0 ? encoded.length : jsonBytes;
+        System.out.printf("%-6s %8d %10d %8.2f %12.1f %12.1f%n", format, payload.length, encoded.length,
+                (double) encoded.length / baseline, encodeNanos / 1000d / iterations,
+                decodeNanos / 1000d / iterations);
+        return baseline;
+    }
+
+    private static LoanResponse[] samplePayload(int size) {
+        Random random = new Random(42);
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        LoanResponse[] loans = new LoanResponse[size];
+        for (int i = 0; i < size; i++) {
+            long bookId = 1 + random.nextInt(300);
+            long userId = 1 + random.nextInt(500);
+            LocalDateTime loanDate = now.minusDays(random.nextInt(60));
+            boolean returned = random.nextInt(3) == 0;
+            boolean overdue = !returned && loanDate.plusDays(14).isBefore(now);
+            loans[i] = new LoanResponse(
+                    (long) i + 1,
+                    userId,
+                    "member" + userId,
+                    "Member " + userId + " Surname" + userId,
+                    bookId,
+                    "The Collected Title of Book " + bookId,
+                    "Author Name " + (bookId % 120),
+                    String.format("978-0-%06d-%02d-1", bookId, bookId % 97),
+                    loanDate,
+                    loanDate.plusDays(14),
+                    returned ? loanDate.plusDays(1 + random.nextInt(20)) : null,
+                    returned ? "RETURNED" : overdue ? "OVERDUE" : "ACTIVE",
+                    overdue ? BigDecimal.valueOf(50 + random.nextInt(500), 2) : BigDecimal.ZERO,
+                    random.nextInt(10) == 0 ? "Handle with care" : null,
+                    overdue,
+                    overdue ? random.nextInt(30) : 0);
+        }
+        return loans;
+    }
+}
@@ -0,0 +1,65 @@
+package com.library.service;
+
+import com.library.dto.book.BookResponse;
+import com.library.event.BookEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class BookAvailabilityRegistryTest {
+
+    private final BookAvailabilityRegistry registry = new BookAvailabilityRegistry(mock(PlatformTransactionManager.class));
+
+    @Test
+    void olderSnapshotDoesNotOverwriteLaterAvailabilityChange() {
+        registry.onBookEvent(event(BookEvent.Type.CREATED, "Dune", 3, 3, 0, 0));
+        // A loan commits (version 2) before the listener of an earlier edit (version 1) runs
+        registry.onBookEvent(event(BookEvent.Type.AVAILABILITY_CHANGED, "Dune", 3, 2, 2, -1));
+        registry.onBookEvent(event(BookEvent.Type.UPDATED, "Dune", 3, 3, 1, 0));
+
+        assertThat(registry.getAvailability(1L)).hasValueSatisfying(availability -> {
+            assertThat(availability.getAvailableCopies()).isEqualTo(2);
+            assertThat(availability.getTotalCopies()).isEqualTo(3);
+        });
+    }
+
+    @Test
+    void lastCopyOnLoanLeavesTheAvailableList() {
+        registry.onBookEvent(event(BookEvent.Type.CREATED, "Dune", 1, 1, 0, 0));
+        assertThat(registry.getAvailableBooks()).extracting(BookResponse::getId).containsExactly(1L);
+
+        registry.onBookEvent(event(BookEvent.Type.AVAILABILITY_CHANGED, "Dune", 1, 0, 1, -1));
+        assertThat(registry.getAvailableBooks()).isEmpty();
+        assertThat(registry.getAvailability(1L)).hasValueSatisfying(availability ->
+                assertThat(availability.isAvailable()).isFalse());
+    }
+
+    @Test
+    void renamedBookIsListedOnceUnderItsNewTitle() {
+        registry.onBookEvent(event(BookEvent.Type.CREATED, "Dune", 2, 2, 0, 0));
+        registry.onBookEvent(event(BookEvent.Type.UPDATED, "Dune Messiah", 2, 2, 1, 0));
+
+        assertThat(registry.getAvailableBooks()).extracting(BookResponse::getTitle).containsExactly("Dune Messiah");
+    }
+
+    @Test
+    void lateEventDoesNotBringBackADeletedBook() {
+        registry.onBookEvent(event(BookEvent.Type.CREATED, "Dune", 2, 2, 0, 0));
+        registry.onBookEvent(new BookEvent(BookEvent.Type.DELETED, 1L, null, BookEvent.DELETED_VERSION, 0));
+        registry.onBookEvent(event(BookEvent.Type.UPDATED, "Dune", 2, 2, 1, 0));
+
+        assertThat(registry.getBook(1L)).isEmpty();
+        assertThat(registry.getAvailability(1L)).isEmpty();
+        assertThat(registry.getAvailableBooks()).isEmpty();
+    }
+
+    private static BookEvent event(BookEvent.Type type, String title, int total, int available, long version, int delta) {
+        BookResponse book = new BookResponse(1L, title, "Frank Herbert", "9780441013593", null, 1965, "Fiction",
+                total, available, null, LocalDateTime.now());
+        return new BookEvent(type, 1L, book, version, delta);
+    }
+}
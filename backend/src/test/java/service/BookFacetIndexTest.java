@@ -0,0 +1,82 @@
+package com.library.service;
+
+import com.library.dto.book.BookFacetQuery;
+import com.library.dto.book.BookFacetResult;
+import com.library.dto.book.BookFilter;
+import com.library.dto.book.BookResponse;
+import com.library.event.BookEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class BookFacetIndexTest {
+
+    private final BookAvailabilityRegistry registry = new BookAvailabilityRegistry(mock(PlatformTransactionManager.class));
+    private final BookFacetIndex index = new BookFacetIndex(mock(PlatformTransactionManager.class));
+
+    @BeforeEach
+    void wireRegistry() {
+        ReflectionTestUtils.setField(index, "bookAvailabilityRegistry", registry);
+    }
+
+    @Test
+    void olderSnapshotDoesNotUndoLaterLoan() {
+        apply(event(BookEvent.Type.CREATED, 1L, "Fiction", 1, 0, 0));
+        // The last copy goes on loan (version 2) before the listener of an earlier edit (version 1) runs
+        apply(event(BookEvent.Type.AVAILABILITY_CHANGED, 1L, "Fiction", 0, 2, -1));
+        apply(event(BookEvent.Type.UPDATED, 1L, "Fiction", 1, 1, 0));
+
+        BookFacetResult result = index.search(new BookFacetQuery(new BookFilter(), 0, 10));
+        assertThat(result.getInStock()).isZero();
+        assertThat(result.getOutOfStock()).isEqualTo(1);
+        assertThat(search(available(true)).getTotal()).isZero();
+    }
+
+    @Test
+    void olderSnapshotDoesNotMoveBookBackToItsOldCategory() {
+        apply(event(BookEvent.Type.CREATED, 1L, "Fiction", 1, 0, 0));
+        apply(event(BookEvent.Type.UPDATED, 1L, "History", 1, 2, 0));
+        apply(event(BookEvent.Type.UPDATED, 1L, "Fiction", 1, 1, 0));
+
+        assertThat(search(new BookFilter()).getCategories()).containsOnlyKeys("History");
+    }
+
+    @Test
+    void deleteBeforeCreateKeepsBookOut() {
+        apply(new BookEvent(BookEvent.Type.DELETED, 2L, null, BookEvent.DELETED_VERSION, 0));
+        apply(event(BookEvent.Type.CREATED, 2L, "Fiction", 1, 0, 0));
+        apply(event(BookEvent.Type.CREATED, 3L, "Fiction", 2, 0, 0));
+
+        BookFacetResult result = search(new BookFilter());
+        assertThat(result.getTotal()).isEqualTo(1);
+        assertThat(result.getBooks()).extracting(BookResponse::getId).containsExactly(3L);
+    }
+
+    private void apply(BookEvent event) {
+        registry.onBookEvent(event);
+        index.onBookEvent(event);
+    }
+
+    private BookFacetResult search(BookFilter filter) {
+        return index.search(new BookFacetQuery(filter, 0, 10));
+    }
+
+    private static BookFilter available(boolean available) {
+        BookFilter filter = new BookFilter();
+        filter.setAvailable(available);
+        return filter;
+    }
+
+    private static BookEvent event(BookEvent.Type type, Long id, String category, int available, long version,
+                                   int delta) {
+        BookResponse book = new BookResponse(id, "Book " + id, "Author", null, null, 2001, category,
+                1, available, null, LocalDateTime.now());
+        return new BookEvent(type, id, book, version, delta);
+    }
+}
@@ -0,0 +1,74 @@
+package com.library.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BookPopularityServiceTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.now();
+
+    private final BookPopularityService popularity = new BookPopularityService();
+
+    @Test
+    void recentLoansOutrankOlderOnesInDecayedWindows() {
+        for (int i = 0; i < 3; i++) {
+            popularity.recordLoan(1L, NOW.minusDays(60));
+        }
+        popularity.recordLoan(2L, NOW);
+        popularity.recordLoan(2L, NOW);
+
+        assertThat(popularity.getTopBookIds(StatsWindow.ALL_TIME, 10)).containsExactly(1L, 2L);
+        assertThat(popularity.getTopBookIds(StatsWindow.WEEK, 10)).containsExactly(2L, 1L);
+        assertThat(popularity.getTopBookIds(StatsWindow.MONTH, 10)).containsExactly(2L, 1L);
+        // 60 days is a sixth of the year's half-life: three old loans still weigh about 2.7
+        assertThat(popularity.getTopBookIds(StatsWindow.YEAR, 10)).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void orderDependsOnLoanTimesNotOnArrivalOrder() {
+        popularity.recordLoan(2L, NOW.plusDays(1));
+        popularity.recordLoan(1L, NOW);
+
+        assertThat(popularity.getTopBookIds(StatsWindow.WEEK, 10)).containsExactly(2L, 1L);
+        // Equal counts fall back to the book id
+        assertThat(popularity.getTopBookIds(StatsWindow.ALL_TIME, 10)).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void rescalingKeepsTheOrder() {
+        for (int i = 0; i < 5; i++) {
+            popularity.recordLoan(1L, NOW);
+        }
+        popularity.recordLoan(2L, NOW.plusDays(1));
+        // Ten years on, the weekly weight passes the rescale threshold
+        popularity.recordLoan(3L, NOW.plusYears(10));
+        popularity.recordLoan(2L, NOW.plusYears(10).plusDays(1));
+
+        assertThat(popularity.getTopBookIds(StatsWindow.ALL_TIME, 10)).containsExactly(1L, 2L, 3L);
+        assertThat(popularity.getTopBookIds(StatsWindow.WEEK, 10)).containsExactly(2L, 3L, 1L);
+    }
+
+    @Test
+    void reRankedBookIsListedOnceAndDeletedBookIsDropped() {
+        popularity.recordLoan(1L, NOW);
+        popularity.recordLoan(2L, NOW);
+        popularity.recordLoan(2L, NOW);
+
+        assertThat(popularity.getTopBookIds(StatsWindow.MONTH, 1)).containsExactly(2L);
+
+        popularity.removeBook(2L);
+        for (StatsWindow window : StatsWindow.values()) {
+            assertThat(popularity.getTopBookIds(window, 10)).containsExactly(1L);
+        }
+    }
+
+    @Test
+    void limitMustBePositive() {
+        assertThatThrownBy(() -> popularity.getTopBookIds(StatsWindow.WEEK, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
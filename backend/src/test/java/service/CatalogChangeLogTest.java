@@ -0,0 +1,105 @@
+package com.library.service;
+
+import com.library.dto.book.BookChanges;
+import com.library.dto.book.BookResponse;
+import com.library.event.BookEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CatalogChangeLogTest {
+
+    private final CatalogChangeLog changeLog = new CatalogChangeLog();
+
+    CatalogChangeLogTest() {
+        ReflectionTestUtils.setField(changeLog, "maxTombstones", 2);
+    }
+
+    @Test
+    void onlyTheLatestChangeOfEachBookIsReturned() {
+        String token = changeLog.currentToken();
+        changeLog.onBookEvent(saved(1L, "Dune", 0));
+        changeLog.onBookEvent(saved(2L, "Emma", 0));
+        changeLog.onBookEvent(saved(1L, "Dune Messiah", 1));
+        changeLog.onBookEvent(deleted(2L));
+
+        BookChanges changes = changeLog.since(token, 10);
+
+        assertThat(changes.getBooks()).extracting(BookResponse::getTitle).containsExactly("Dune Messiah");
+        assertThat(changes.getDeleted()).containsExactly(2L);
+        assertThat(changes.isHasMore()).isFalse();
+        assertThat(changes.getToken()).isEqualTo(changeLog.currentToken());
+        assertThat(changeLog.since(changes.getToken(), 10).getBooks()).isEmpty();
+    }
+
+    @Test
+    void olderVersionArrivingLateIsIgnored() {
+        String token = changeLog.currentToken();
+        changeLog.onBookEvent(saved(1L, "Dune Messiah", 2));
+        changeLog.onBookEvent(saved(1L, "Dune", 1));
+
+        assertThat(changeLog.since(token, 10).getBooks()).extracting(BookResponse::getTitle)
+                .containsExactly("Dune Messiah");
+        // A delete outranks every version
+        changeLog.onBookEvent(deleted(1L));
+        changeLog.onBookEvent(saved(1L, "Dune", 3));
+        assertThat(changeLog.since(token, 10).getDeleted()).containsExactly(1L);
+    }
+
+    @Test
+    void limitPagesThroughTheLog() {
+        String token = changeLog.currentToken();
+        for (long id = 1; id <= 3; id++) {
+            changeLog.onBookEvent(saved(id, "Book " + id, 0));
+        }
+
+        BookChanges first = changeLog.since(token, 2);
+        BookChanges second = changeLog.since(first.getToken(), 2);
+
+        assertThat(first.getBooks()).extracting(BookResponse::getId).containsExactly(1L, 2L);
+        assertThat(first.isHasMore()).isTrue();
+        assertThat(second.getBooks()).extracting(BookResponse::getId).containsExactly(3L);
+        assertThat(second.isHasMore()).isFalse();
+    }
+
+    @Test
+    void foreignAndMalformedTokensAreNotServed() {
+        String current = changeLog.currentToken();
+        String instance = current.substring(0, current.indexOf('.'));
+
+        assertThat(changeLog.since(null, 10)).isNull();
+        assertThat(changeLog.since("", 10)).isNull();
+        assertThat(changeLog.since(instance, 10)).isNull();
+        assertThat(changeLog.since(instance + ".x", 10)).isNull();
+        assertThat(changeLog.since(instance + "0.0", 10)).isNull();
+        // Ahead of the log: issued by an earlier run of the same instance id
+        assertThat(changeLog.since(instance + ".5", 10)).isNull();
+        assertThat(changeLog.since(current, 10)).isNotNull();
+    }
+
+    @Test
+    void tokensFromBeforeADroppedTombstoneAreNotServed() {
+        String beforeFirstDelete = changeLog.currentToken();
+        changeLog.onBookEvent(deleted(1L));
+        String afterFirstDelete = changeLog.currentToken();
+        changeLog.onBookEvent(deleted(2L));
+        changeLog.onBookEvent(deleted(3L));
+
+        // Only two tombstones are kept, so the delete of book 1 is gone
+        assertThat(changeLog.since(beforeFirstDelete, 10)).isNull();
+        assertThat(changeLog.since(afterFirstDelete, 10).getDeleted()).containsExactly(2L, 3L);
+    }
+
+    private static BookEvent saved(Long id, String title, long version) {
+        BookResponse book = new BookResponse(id, title, "Frank Herbert", "9780441013593", null, 1965, "Fiction",
+                1, 1, null, LocalDateTime.now());
+        return new BookEvent(version == 0 ? BookEvent.Type.CREATED : BookEvent.Type.UPDATED, id, book, version, 0);
+    }
+
+    private static BookEvent deleted(Long id) {
+        return new BookEvent(BookEvent.Type.DELETED, id, null, BookEvent.DELETED_VERSION, 0);
+    }
+}
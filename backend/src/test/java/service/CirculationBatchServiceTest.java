@@ -0,0 +1,170 @@
+package com.library.service;
+
+import com.library.dto.loan.CirculationBatchRequest;
+import com.library.dto.loan.CirculationBatchResponse;
+import com.library.dto.loan.CirculationOperation;
+import com.library.dto.loan.CirculationOperationResult;
+import com.library.dto.loan.LoanResponse;
+import com.library.repository.BookLoanRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CirculationBatchServiceTest {
+
+    private final BookLoanService bookLoanService = mock(BookLoanService.class);
+    private final BookLoanRepository bookLoanRepository = mock(BookLoanRepository.class);
+    private final RecordingTransactionManager transactionManager = new RecordingTransactionManager();
+    private final CirculationBatchService batchService = new CirculationBatchService(transactionManager);
+
+    CirculationBatchServiceTest() {
+        ReflectionTestUtils.setField(batchService, "bookLoanService", bookLoanService);
+        ReflectionTestUtils.setField(batchService, "bookLoanRepository", bookLoanRepository);
+        ReflectionTestUtils.setField(batchService, "maxOperations", 3);
+    }
+
+    @Test
+    void failureRollsBackEarlierOperationsAndSkipsLaterOnes() {
+        when(bookLoanService.returnBook(1L, null)).thenReturn(loan(1L));
+        when(bookLoanService.renewLoan(2L, 14, null)).thenThrow(new IllegalStateException("Loan 2 is overdue"));
+
+        CirculationBatchResponse response = batchService.execute(request(null,
+                new CirculationOperation(CirculationOperation.Type.RETURN, 1L),
+                new CirculationOperation(CirculationOperation.Type.RENEW, 2L),
+                new CirculationOperation(CirculationOperation.Type.PAY_FINE, 3L)));
+
+        assertThat(response.getMode()).isEqualTo(CirculationBatchRequest.Mode.ALL_OR_NOTHING);
+        assertThat(response.getResults()).extracting(CirculationOperationResult::getStatus).containsExactly(
+                CirculationOperationResult.Status.ROLLED_BACK,
+                CirculationOperationResult.Status.FAILED,
+                CirculationOperationResult.Status.SKIPPED);
+        assertThat(response.getResults().get(0).getLoan()).isNull();
+        assertThat(response.getResults().get(1).getError()).isEqualTo("Loan 2 is overdue");
+        assertThat(response.getSucceeded()).isZero();
+        assertThat(response.getFailed()).isEqualTo(1);
+        assertThat(transactionManager.commits).isZero();
+        assertThat(transactionManager.rollbacks).isEqualTo(1);
+        verify(bookLoanService, never()).payFine(anyLong(), any());
+    }
+
+    @Test
+    void failedCommitReportsEveryOperationAsRolledBack() {
+        when(bookLoanService.returnBook(1L, null)).thenReturn(loan(1L));
+        when(bookLoanService.payFine(2L, null)).thenReturn(loan(2L));
+        transactionManager.failCommit = true;
+
+        CirculationBatchResponse response = batchService.execute(request(CirculationBatchRequest.Mode.ALL_OR_NOTHING,
+                new CirculationOperation(CirculationOperation.Type.RETURN, 1L),
+                new CirculationOperation(CirculationOperation.Type.PAY_FINE, 2L)));
+
+        assertThat(response.getResults()).extracting(CirculationOperationResult::getStatus).containsOnly(
+                CirculationOperationResult.Status.ROLLED_BACK);
+        assertThat(response.getResults().get(0).getError()).startsWith("Batch could not be committed");
+        assertThat(response.getSucceeded()).isZero();
+    }
+
+    @Test
+    void successfulBatchCommitsOnceAndFlushesEachOperation() {
+        when(bookLoanService.returnBook(1L, null)).thenReturn(loan(1L));
+        when(bookLoanService.renewLoan(2L, 7, null)).thenReturn(loan(2L));
+        CirculationOperation renew = new CirculationOperation(CirculationOperation.Type.RENEW, 2L);
+        renew.setAdditionalDays(7);
+
+        CirculationBatchResponse response = batchService.execute(request(null,
+                new CirculationOperation(CirculationOperation.Type.RETURN, 1L), renew));
+
+        assertThat(response.getSucceeded()).isEqualTo(2);
+        assertThat(response.getResults()).extracting(result -> result.getLoan().getId()).containsExactly(1L, 2L);
+        assertThat(transactionManager.commits).isEqualTo(1);
+        assertThat(transactionManager.rollbacks).isZero();
+        verify(bookLoanRepository, times(2)).flush();
+    }
+
+    @Test
+    void perOperationModeOnlyLosesTheFailedOperation() {
+        when(bookLoanService.returnBook(1L, null)).thenReturn(loan(1L));
+        when(bookLoanService.renewLoan(anyLong(), anyInt(), any())).thenThrow(new IllegalStateException("No renewals left"));
+        when(bookLoanService.payFine(3L, null)).thenReturn(loan(3L));
+
+        CirculationBatchResponse response = batchService.execute(request(CirculationBatchRequest.Mode.PER_OPERATION,
+                new CirculationOperation(CirculationOperation.Type.RETURN, 1L),
+                new CirculationOperation(CirculationOperation.Type.RENEW, 2L),
+                new CirculationOperation(CirculationOperation.Type.PAY_FINE, 3L)));
+
+        assertThat(response.getResults()).extracting(CirculationOperationResult::getStatus).containsExactly(
+                CirculationOperationResult.Status.SUCCEEDED,
+                CirculationOperationResult.Status.FAILED,
+                CirculationOperationResult.Status.SUCCEEDED);
+        assertThat(transactionManager.commits).isEqualTo(2);
+        assertThat(transactionManager.rollbacks).isEqualTo(1);
+    }
+
+    @Test
+    void emptyAndOversizedBatchesAreRejected() {
+        assertThatThrownBy(() -> batchService.execute(new CirculationBatchRequest(null, Collections.emptyList())))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        CirculationOperation operation = new CirculationOperation(CirculationOperation.Type.RETURN, 1L);
+        assertThatThrownBy(() -> batchService.execute(request(null, operation, operation, operation, operation)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("At most 3 operations per batch");
+        assertThat(transactionManager.commits + transactionManager.rollbacks).isZero();
+    }
+
+    // Helper methods
+    private static CirculationBatchRequest request(CirculationBatchRequest.Mode mode, CirculationOperation... operations) {
+        return new CirculationBatchRequest(mode, List.of(operations));
+    }
+
+    private static LoanResponse loan(Long id) {
+        LoanResponse loan = new LoanResponse();
+        loan.setId(id);
+        return loan;
+    }
+
+    // Counts commits and rollbacks instead of talking to a database
+    static class RecordingTransactionManager extends AbstractPlatformTransactionManager {
+        int commits;
+        int rollbacks;
+        boolean failCommit;
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+            if (failCommit) {
+                throw new TransactionSystemException("Connection reset");
+            }
+            commits++;
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+            rollbacks++;
+        }
+    }
+}
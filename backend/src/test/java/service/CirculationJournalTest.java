@@ -0,0 +1,175 @@
+package com.library.service;
+
+import com.library.dto.loan.LoanActivity;
+import com.library.event.LoanEvent;
+import com.library.repository.BookLoanRepository;
+import com.library.repository.LoanHistoryRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CirculationJournalTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 9, 30);
+
+    @TempDir
+    Path directory;
+
+    private final BookLoanRepository bookLoanRepository = mock(BookLoanRepository.class);
+    private final LoanHistoryRepository loanHistoryRepository = mock(LoanHistoryRepository.class);
+    private final List<CirculationJournal> opened = new ArrayList<>();
+
+    @AfterEach
+    void closeJournals() throws IOException {
+        for (CirculationJournal journal : opened) {
+            journal.close();
+        }
+    }
+
+    @Test
+    void replayReturnsAppendedRecordsInOrderAcrossSegments() {
+        CirculationJournal journal = open();
+        for (long loanId = 1; loanId <= 10; loanId++) {
+            journal.append(LoanEvent.Type.CREATED, START.plusMinutes(loanId), loanId, 100 + loanId, 200 + loanId);
+        }
+
+        List<long[]> records = replay(journal, 0);
+        assertThat(records).hasSize(10);
+        for (int i = 0; i < 10; i++) {
+            long loanId = i + 1;
+            assertThat(records.get(i)).containsExactly(loanId, loanId, 100 + loanId, 200 + loanId,
+                    LoanEvent.Type.CREATED.getCode());
+        }
+        assertThat(replay(journal, 7)).extracting(record -> record[0]).containsExactly(7L, 8L, 9L, 10L);
+    }
+
+    @Test
+    void recordKeepsTypeAndTimestamp() {
+        CirculationJournal journal = open();
+        journal.append(LoanEvent.Type.RETURNED, START, 5, 6, 7);
+
+        List<LoanEvent.Type> types = new ArrayList<>();
+        List<LocalDateTime> times = new ArrayList<>();
+        journal.replay(0, record -> {
+            types.add(record.getType());
+            times.add(record.getOccurredAt());
+        });
+
+        assertThat(types).containsExactly(LoanEvent.Type.RETURNED);
+        assertThat(times).containsExactly(START);
+    }
+
+    @Test
+    void reopenedJournalContinuesTheSequence() throws IOException {
+        databaseHas(1, 2, 3, 4, 5);
+        CirculationJournal journal = open();
+        journal.close();
+        opened.remove(journal);
+
+        CirculationJournal reopened = open();
+        long next = reopened.append(LoanEvent.Type.RETURNED, START, 5, 105, 205);
+
+        assertThat(next).isEqualTo(6);
+        assertThat(replay(reopened, 0)).hasSize(6);
+    }
+
+    @Test
+    void corruptRecordEndsReplayAndIsOverwrittenOnRecovery() throws IOException {
+        databaseHas(1, 2, 3);
+        CirculationJournal journal = open();
+        journal.close();
+        opened.remove(journal);
+        // Flip one byte of the loan id of the second record
+        corrupt(firstSegment(), CirculationJournal.RECORD_SIZE + 16);
+
+        assertThat(replay(journal, 0)).extracting(record -> record[0]).containsExactly(1L);
+
+        // Recovery stops at the bad checksum, and reconciliation appends the loans lost after it
+        CirculationJournal reopened = open();
+        List<long[]> records = replay(reopened, 0);
+        assertThat(records).extracting(record -> record[0]).containsExactly(1L, 2L, 3L);
+        assertThat(records).extracting(record -> record[1]).containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    void journalOfAnotherDatabaseIsMovedAsideAndRebuilt() throws IOException {
+        databaseHas(1, 2);
+        CirculationJournal journal = open();
+        journal.close();
+        opened.remove(journal);
+
+        // Same loan ids, other users
+        when(bookLoanRepository.streamLoanActivity()).thenAnswer(invocation -> Stream.of(
+                new LoanActivity(1L, 900L, 201L, START), new LoanActivity(2L, 900L, 202L, START)));
+        CirculationJournal reopened = open();
+
+        assertThat(replay(reopened, 0)).extracting(record -> record[2]).containsExactly(900L, 900L);
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files.map(path -> path.getFileName().toString()))
+                    .anyMatch(name -> name.startsWith("discarded-"));
+        }
+    }
+
+    // Helper methods
+    private CirculationJournal open() {
+        CirculationJournal journal = new CirculationJournal(new ResponseByteCacheTest.NoOpTransactionManager());
+        ReflectionTestUtils.setField(journal, "bookLoanRepository", bookLoanRepository);
+        ReflectionTestUtils.setField(journal, "loanHistoryRepository", loanHistoryRepository);
+        ReflectionTestUtils.setField(journal, "directory", directory.toString());
+        ReflectionTestUtils.setField(journal, "recordsPerSegment", 4);
+        journal.open();
+        opened.add(journal);
+        return journal;
+    }
+
+    // Live loans 1..n of user 100 + id and book 200 + id; nothing archived
+    private void databaseHas(long... loanIds) {
+        when(bookLoanRepository.streamLoanActivity()).thenAnswer(invocation -> Arrays.stream(loanIds)
+                .mapToObj(id -> new LoanActivity(id, 100 + id, 200 + id, START.plusMinutes(id))));
+        when(loanHistoryRepository.streamLoanActivity()).thenAnswer(invocation -> Stream.empty());
+    }
+
+    // Sequence, loan, user, book and type code of each replayed record
+    private static List<long[]> replay(CirculationJournal journal, long fromSequence) {
+        List<long[]> records = new ArrayList<>();
+        journal.replay(fromSequence, record -> records.add(new long[] {
+                record.getSequence(), record.getLoanId(), record.getUserId(), record.getBookId(),
+                record.getType().getCode()}));
+        return records;
+    }
+
+    private Path firstSegment() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith("journal-"))
+                    .sorted()
+                    .findFirst()
+                    .orElseThrow();
+        }
+    }
+
+    private static void corrupt(Path segment, long position) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer one = ByteBuffer.allocate(1);
+            channel.read(one, position);
+            one.put(0, (byte) (one.get(0) ^ 0x01)).rewind();
+            channel.write(one, position);
+        }
+    }
+}
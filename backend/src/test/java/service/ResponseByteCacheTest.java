@@ -0,0 +1,232 @@
+package com.library.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.library.dto.book.BookResponse;
+import com.library.entity.Category;
+import com.library.event.BookEvent;
+import com.library.repository.BookLoanRepository;
+import com.library.repository.BookRepository;
+import com.library.repository.CategoryRepository;
+import com.library.repository.LoanHistoryRepository;
+import com.library.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * A cached GET that runs while a book change is being committed, against the real
+ * CategoryCatalog, EntityTagService and ResponseByteCache. The GETs are issued from
+ * AFTER_COMMIT listeners ordered just before and just after the read models.
+ */
+@SpringJUnitConfig(ResponseByteCacheTest.Config.class)
+class ResponseByteCacheTest {
+
+    private static final String KEY = "categories:summary";
+
+    @MockBean
+    private BookRepository bookRepository;
+
+    @MockBean
+    private CategoryRepository categoryRepository;
+
+    @MockBean
+    private UserRepository userRepository;
+
+    @MockBean
+    private BookLoanRepository bookLoanRepository;
+
+    @MockBean
+    private LoanHistoryRepository loanHistoryRepository;
+
+    @Autowired
+    private CategoryCatalog categoryCatalog;
+
+    @Autowired
+    private EntityTagService entityTagService;
+
+    @Autowired
+    private ResponseByteCache responseByteCache;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private InterleavedReads interleavedReads;
+
+    @Test
+    void bytesCachedDuringACommitAreNotServedAfterIt() {
+        when(categoryRepository.saveAndFlush(any(Category.class))).thenAnswer(invocation -> {
+            Category category = invocation.getArgument(0);
+            category.setId(1);
+            return category;
+        });
+        categoryCatalog.resolve("Fiction");
+        assertThat(get().body).isEqualTo("[]");
+
+        interleavedReads.enabled = true;
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                eventPublisher.publishEvent(new BookEvent(BookEvent.Type.CREATED, 1L, book(1L, "Fiction"), 0, 0)));
+        interleavedReads.enabled = false;
+
+        // Before the catalog applied the book, the GET cached the old list under the tag of that
+        // moment, and a GET with the same tag after the catalog still gets those bytes
+        assertThat(interleavedReads.beforeReadModels.body).isEqualTo("[]");
+        assertThat(interleavedReads.afterReadModels.tag).isEqualTo(interleavedReads.beforeReadModels.tag);
+
+        Read after = get();
+        assertThat(after.body).contains("\"bookCount\":1");
+        assertThat(after.tag).isNotEqualTo(interleavedReads.beforeReadModels.tag);
+    }
+
+    @Test
+    void tagMovesOnlyAfterTheReadModelsHaveApplied() {
+        interleavedReads.enabled = true;
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                eventPublisher.publishEvent(new BookEvent(BookEvent.Type.DELETED, 99L, null,
+                        BookEvent.DELETED_VERSION, 0)));
+        interleavedReads.enabled = false;
+
+        // Read models run with the tag of the BEFORE_COMMIT bump; the AFTER_COMMIT bump follows them
+        assertThat(interleavedReads.afterReadModels.tag).isEqualTo(interleavedReads.beforeReadModels.tag);
+        assertThat(get().tag).isNotEqualTo(interleavedReads.afterReadModels.tag);
+    }
+
+    private Read get() {
+        return read(entityTagService, responseByteCache, categoryCatalog);
+    }
+
+    // Tag first, then the data, as the controllers do
+    private static Read read(EntityTagService tags, ResponseByteCache cache, CategoryCatalog catalog) {
+        String tag = tags.listTag(EntityTagService.Table.BOOKS);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        try {
+            cache.write(KEY, tag, catalog::getCategories, new MockHttpServletRequest(), response);
+            return new Read(tag, response.getContentAsString());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static BookResponse book(Long id, String category) {
+        BookResponse book = new BookResponse();
+        book.setId(id);
+        book.setCategory(category);
+        return book;
+    }
+
+    private record Read(String tag, String body) {}
+
+    // Issues a GET on either side of the read-model listeners while enabled
+    static class InterleavedReads {
+
+        @Autowired
+        private EntityTagService entityTagService;
+
+        @Autowired
+        private ResponseByteCache responseByteCache;
+
+        @Autowired
+        private CategoryCatalog categoryCatalog;
+
+        private volatile boolean enabled;
+        private Read beforeReadModels;
+        private Read afterReadModels;
+
+        @Order(EntityTagService.READ_MODEL_ORDER - 1)
+        @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+        public void beforeReadModels(BookEvent event) {
+            if (enabled) {
+                beforeReadModels = read(entityTagService, responseByteCache, categoryCatalog);
+            }
+        }
+
+        @Order(EntityTagService.READ_MODEL_ORDER + 1)
+        @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+        public void afterReadModels(BookEvent event) {
+            if (enabled) {
+                afterReadModels = read(entityTagService, responseByteCache, categoryCatalog);
+            }
+        }
+    }
+
+    // Commits without a database, so the listeners see the full synchronization lifecycle
+    static class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+
+    @Configuration
+    @EnableTransactionManagement
+    static class Config {
+
+        @Bean
+        PlatformTransactionManager transactionManager() {
+            return new NoOpTransactionManager();
+        }
+
+        @Bean
+        ObjectMapper objectMapper() {
+            return new ObjectMapper();
+        }
+
+        @Bean
+        EntityTagService entityTagService() {
+            return new EntityTagService();
+        }
+
+        @Bean
+        CategoryCatalog categoryCatalog(PlatformTransactionManager transactionManager) {
+            return new CategoryCatalog(transactionManager);
+        }
+
+        @Bean
+        ResponseByteCache responseByteCache() {
+            return new ResponseByteCache();
+        }
+
+        @Bean
+        InterleavedReads interleavedReads() {
+            return new InterleavedReads();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.library.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CompressedBitmapTest {
+
+    @Test
+    void setOperationsMatchBitSetAcrossArrayAndBitmapGroups() {
+        Random random = new Random(11);
+        BitSet expectedA = new BitSet();
+        BitSet expectedB = new BitSet();
+        CompressedBitmap a = new CompressedBitmap();
+        CompressedBitmap b = new CompressedBitmap();
+        // Group 0 is dense in both, group 1 dense in one only, group 2 sparse in both,
+        // groups 3 and 4 belong to one side each
+        fill(a, expectedA, random, 0, 30_000);
+        fill(b, expectedB, random, 0, 20_000);
+        fill(a, expectedA, random, 1 << 16, 10_000);
+        fill(b, expectedB, random, 1 << 16, 300);
+        fill(a, expectedA, random, 2 << 16, 500);
+        fill(b, expectedB, random, 2 << 16, 700);
+        fill(a, expectedA, random, 3 << 16, 50);
+        fill(b, expectedB, random, 4 << 16, 50);
+
+        BitSet and = (BitSet) expectedA.clone();
+        and.and(expectedB);
+        BitSet or = (BitSet) expectedA.clone();
+        or.or(expectedB);
+        BitSet andNot = (BitSet) expectedA.clone();
+        andNot.andNot(expectedB);
+
+        assertMatches(CompressedBitmap.and(a, b), and);
+        assertMatches(CompressedBitmap.or(a, b), or);
+        assertMatches(CompressedBitmap.andNot(a, b), andNot);
+        assertMatches(CompressedBitmap.andNot(b, a), andNotOf(expectedB, expectedA));
+        assertThat(CompressedBitmap.andCardinality(a, b)).isEqualTo(and.cardinality());
+        assertThat(CompressedBitmap.andCardinality(b, a)).isEqualTo(and.cardinality());
+        // Operands are left untouched
+        assertMatches(a, expectedA);
+        assertMatches(b, expectedB);
+    }
+
+    @Test
+    void resultsDoNotShareStorageWithOperands() {
+        CompressedBitmap a = new CompressedBitmap();
+        CompressedBitmap b = new CompressedBitmap();
+        a.add(1);
+        a.add(70_000);
+
+        CompressedBitmap union = CompressedBitmap.or(a, b);
+        CompressedBitmap difference = CompressedBitmap.andNot(a, b);
+        union.add(2);
+        difference.remove(70_000);
+
+        assertThat(a.contains(2)).isFalse();
+        assertThat(a.contains(70_000)).isTrue();
+        assertThat(union.cardinality()).isEqualTo(3);
+    }
+
+    @Test
+    void removeShrinksDenseGroupsAndDropsEmptyOnes() {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        BitSet expected = new BitSet();
+        for (int value = 0; value < 10_000; value++) {
+            bitmap.add(value);
+            expected.set(value);
+        }
+        bitmap.add(200_000);
+        expected.set(200_000);
+
+        for (int value = 0; value < 10_000; value += 3) {
+            bitmap.remove(value);
+            expected.clear(value);
+        }
+        bitmap.remove(200_000);
+        expected.clear(200_000);
+        bitmap.remove(300_000);
+        assertMatches(bitmap, expected);
+
+        for (int value = 0; value < 10_000; value++) {
+            bitmap.remove(value);
+        }
+        assertThat(bitmap.isEmpty()).isTrue();
+        assertThat(bitmap.cardinality()).isZero();
+    }
+
+    @Test
+    void andOfDisjointGroupsIsEmpty() {
+        CompressedBitmap a = new CompressedBitmap();
+        CompressedBitmap b = new CompressedBitmap();
+        a.add(5);
+        b.add(6);
+
+        assertThat(CompressedBitmap.and(a, b).isEmpty()).isTrue();
+        assertThat(CompressedBitmap.andNot(a, a).isEmpty()).isTrue();
+    }
+
+    @Test
+    void forEachVisitsInAscendingOrderAndStopsEarly() {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        bitmap.add(1 << 20);
+        bitmap.add(3);
+        bitmap.add(70_000);
+        bitmap.add(1);
+
+        List<Integer> visited = new ArrayList<>();
+        bitmap.forEach(value -> {
+            visited.add(value);
+            return visited.size() < 3;
+        });
+
+        assertThat(visited).containsExactly(1, 3, 70_000);
+    }
+
+    @Test
+    void negativeValuesAreRejected() {
+        CompressedBitmap bitmap = new CompressedBitmap();
+
+        assertThatThrownBy(() -> bitmap.add(-1)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(bitmap.contains(-1)).isFalse();
+    }
+
+    private static void fill(CompressedBitmap bitmap, BitSet expected, Random random, int base, int count) {
+        for (int i = 0; i < count; i++) {
+            int value = base + random.nextInt(1 << 16);
+            bitmap.add(value);
+            expected.set(value);
+        }
+    }
+
+    private static BitSet andNotOf(BitSet a, BitSet b) {
+        BitSet result = (BitSet) a.clone();
+        result.andNot(b);
+        return result;
+    }
+
+    private static void assertMatches(CompressedBitmap bitmap, BitSet expected) {
+        assertThat(bitmap.cardinality()).isEqualTo(expected.cardinality());
+        BitSet actual = new BitSet();
+        bitmap.forEach(value -> {
+            actual.set(value);
+            return true;
+        });
+        assertThat(actual).isEqualTo(expected);
+        expected.stream().forEach(value -> assertThat(bitmap.contains(value)).isTrue());
+    }
+}
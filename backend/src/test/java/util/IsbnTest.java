@@ -0,0 +1,50 @@
+package com.library.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IsbnTest {
+
+    @Test
+    void isbn10AndIsbn13OfTheSameBookShareAKey() {
+        long key = Isbn.toKey("978-0-306-40615-7");
+
+        assertThat(key).isEqualTo(9780306406157L);
+        assertThat(Isbn.toKey("0-306-40615-2")).isEqualTo(key);
+        assertThat(Isbn.toKey("0306406152")).isEqualTo(key);
+        assertThat(Isbn.toKey("978 0 306 40615 7")).isEqualTo(key);
+    }
+
+    @Test
+    void isbn10CheckDigitXIsAccepted() {
+        assertThat(Isbn.toKey("080442957X")).isEqualTo(9780804429573L);
+        assertThat(Isbn.toKey("0-8044-2957-x")).isEqualTo(9780804429573L);
+    }
+
+    @Test
+    void isbn13With979PrefixIsAccepted() {
+        assertThat(Isbn.toKey("979-10-90636-07-1")).isEqualTo(9791090636071L);
+    }
+
+    @Test
+    void wrongCheckDigitsAreRejected() {
+        assertThat(Isbn.toKey("0306406153")).isEqualTo(Isbn.INVALID);
+        assertThat(Isbn.toKey("9780306406158")).isEqualTo(Isbn.INVALID);
+    }
+
+    @Test
+    void malformedTextIsRejected() {
+        assertThat(Isbn.toKey(null)).isEqualTo(Isbn.INVALID);
+        assertThat(Isbn.toKey("")).isEqualTo(Isbn.INVALID);
+        // X only stands for 10 in the last place of an ISBN-10
+        assertThat(Isbn.toKey("X306406152")).isEqualTo(Isbn.INVALID);
+        assertThat(Isbn.toKey("978030640X157")).isEqualTo(Isbn.INVALID);
+        // Checksum holds, but 977 is not a book prefix
+        assertThat(Isbn.toKey("9770306406158")).isEqualTo(Isbn.INVALID);
+        assertThat(Isbn.toKey("97803064061570")).isEqualTo(Isbn.INVALID);
+        assertThat(Isbn.toKey("030640615")).isEqualTo(Isbn.INVALID);
+        assertThat(Isbn.toKey("0-306-40615-2a")).isEqualTo(Isbn.INVALID);
+        assertThat(Isbn.isValid("0-306-40615-2")).isTrue();
+    }
+}
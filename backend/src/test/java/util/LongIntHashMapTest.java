@@ -0,0 +1,78 @@
+package com.library.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LongIntHashMapTest {
+
+    @Test
+    void removeKeepsProbeChainsReachable() {
+        LongIntHashMap map = new LongIntHashMap(4);
+        // Sequential ids collide in a small table, so removals shift entries back
+        for (long key = 1; key <= 64; key++) {
+            map.put(key, (int) key);
+        }
+        for (long key = 1; key <= 64; key += 2) {
+            assertThat(map.remove(key)).isEqualTo((int) key);
+        }
+
+        assertThat(map.size()).isEqualTo(32);
+        for (long key = 1; key <= 64; key++) {
+            assertThat(map.containsKey(key)).isEqualTo(key % 2 == 0);
+            assertThat(map.get(key)).isEqualTo(key % 2 == 0 ? (int) key : 0);
+        }
+    }
+
+    @Test
+    void zeroKeyIsStoredOutOfBand() {
+        LongIntHashMap map = new LongIntHashMap();
+        map.put(0L, 7);
+        map.put(16L, 3);
+
+        assertThat(map.containsKey(0L)).isTrue();
+        assertThat(map.get(0L)).isEqualTo(7);
+        assertThat(map.size()).isEqualTo(2);
+        assertThat(map.remove(0L)).isEqualTo(7);
+        assertThat(map.containsKey(0L)).isFalse();
+        assertThat(map.remove(0L)).isZero();
+        assertThat(map.size()).isEqualTo(1);
+    }
+
+    @Test
+    void addToRemovesEntriesThatDropToZero() {
+        LongIntHashMap map = new LongIntHashMap();
+        assertThat(map.addTo(5L, 2)).isEqualTo(2);
+        assertThat(map.addTo(5L, -2)).isZero();
+
+        assertThat(map.containsKey(5L)).isFalse();
+        assertThat(map.isEmpty()).isTrue();
+    }
+
+    @Test
+    void matchesHashMapUnderRandomPutsAndRemoves() {
+        LongIntHashMap map = new LongIntHashMap();
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            long key = random.nextInt(5_000) - 100;
+            if (random.nextInt(3) == 0) {
+                Integer previous = expected.remove(key);
+                assertThat(map.remove(key)).isEqualTo(previous == null ? 0 : previous);
+            } else {
+                int value = 1 + random.nextInt(1_000);
+                expected.put(key, value);
+                map.put(key, value);
+            }
+        }
+
+        assertThat(map.size()).isEqualTo(expected.size());
+        Map<Long, Integer> actual = new HashMap<>();
+        map.forEach(actual::put);
+        assertThat(actual).isEqualTo(expected);
+    }
+}
@@ -0,0 +1,64 @@
+package com.library.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LongLongHashMapTest {
+
+    @Test
+    void removeKeepsProbeChainsReachable() {
+        LongLongHashMap map = new LongLongHashMap(4);
+        for (long key = 9780000000000L; key < 9780000000064L; key++) {
+            map.put(key, key - 9780000000000L + 1);
+        }
+        for (long key = 9780000000000L; key < 9780000000064L; key += 2) {
+            assertThat(map.remove(key)).isEqualTo(key - 9780000000000L + 1);
+        }
+
+        assertThat(map.size()).isEqualTo(32);
+        for (long key = 9780000000000L; key < 9780000000064L; key++) {
+            boolean kept = (key - 9780000000000L) % 2 == 1;
+            assertThat(map.containsKey(key)).isEqualTo(kept);
+            assertThat(map.get(key)).isEqualTo(kept ? key - 9780000000000L + 1 : 0);
+        }
+    }
+
+    @Test
+    void removeOfMissingKeyReturnsZero() {
+        LongLongHashMap map = new LongLongHashMap();
+        map.put(0L, 5L);
+
+        assertThat(map.remove(42L)).isZero();
+        assertThat(map.remove(0L)).isEqualTo(5L);
+        assertThat(map.remove(0L)).isZero();
+        assertThat(map.isEmpty()).isTrue();
+    }
+
+    @Test
+    void matchesHashMapUnderRandomPutsAndRemoves() {
+        LongLongHashMap map = new LongLongHashMap();
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 200_000; i++) {
+            long key = random.nextInt(5_000) * 1_000_003L;
+            if (random.nextInt(3) == 0) {
+                Long previous = expected.remove(key);
+                assertThat(map.remove(key)).isEqualTo(previous == null ? 0L : previous);
+            } else {
+                long value = 1 + random.nextInt(1_000_000);
+                expected.put(key, value);
+                map.put(key, value);
+            }
+        }
+
+        assertThat(map.size()).isEqualTo(expected.size());
+        Map<Long, Long> actual = new HashMap<>();
+        map.forEach(actual::put);
+        assertThat(actual).isEqualTo(expected);
+    }
+}
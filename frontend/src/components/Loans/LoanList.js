@@ -1,4 +1,4 @@
-import React, { useState, useEffect } from 'react';
+import React, { useState, useEffect, useRef } from 'react';
 import { 
   Search, 
   Filter, 
@@ -13,6 +13,7 @@ import {
   RotateCcw
 } from 'lucide-react';
 import loanService from '../../services/loanService';
+import circulationEvents from '../../services/circulationEvents';
 
 const LoanList = ({ filterStatus = 'all', limit = null, refreshTrigger = 0, onLoanUpdate, onError }) => {
   const [loans, setLoans] = useState([]);
@@ -36,10 +37,56 @@ const LoanList = ({ filterStatus = 'all', limit = null, refreshTrigger = 0, onLo
     setStatusFilter(filterStatus);
   }, [filterStatus]);
 
+  // Ο listener καλεί πάντα την τρέχουσα loadLoans (με το τρέχον filterStatus)
+  const loadLoansRef = useRef(null);
+  loadLoansRef.current = () => loadLoans();
+  const filterStatusRef = useRef(filterStatus);
+  filterStatusRef.current = filterStatus;
+
+  // Ενημέρωση μόνο του δανεισμού που άλλαξε, χωρίς επαναφόρτωση της λίστας
+  useEffect(() => {
+    return circulationEvents.subscribe(async (change) => {
+      if (change.type === 'RESYNC') {
+        loadLoansRef.current();
+        return;
+      }
+      if (!change.type.startsWith('LOAN_')) {
+        return;
+      }
+      try {
+        const loan = await loanService.getLoanById(change.loanId);
+        // Ο δανεισμός μπαίνει ή μένει στη λίστα μόνο αν ταιριάζει με την τρέχουσα προβολή
+        const visible = matchesView(loan, filterStatusRef.current);
+        setLoans(prev => {
+          if (!visible) {
+            return prev.filter(l => l.id !== loan.id);
+          }
+          return prev.some(l => l.id === loan.id)
+            ? prev.map(l => (l.id === loan.id ? loan : l))
+            : [...prev, loan];
+        });
+      } catch (err) {
+        console.error('Error refreshing loan:', err);
+      }
+    });
+  }, []);
+
   useEffect(() => {
     applyFilters();
   }, [loans, searchTerm, statusFilter, dateFilter, sortBy, sortOrder]);
 
+  // Ίδια κριτήρια με τα endpoints που φορτώνουν κάθε προβολή
+  const matchesView = (loan, view) => {
+    switch (view) {
+      case 'active':
+        return !loan.returnDate && (loan.status || '').toUpperCase() === 'ACTIVE';
+      case 'overdue':
+        return loanService.isOverdue(loan);
+      default:
+        return true;
+    }
+  };
+
   const loadLoans = async () => {
     setLoading(true);
     
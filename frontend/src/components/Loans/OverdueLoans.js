@@ -13,6 +13,7 @@ import {
   AlertTriangle
 } from 'lucide-react';
 import loanService from '../../services/loanService';
+import circulationEvents from '../../services/circulationEvents';
 
 const OverdueLoans = ({ refreshTrigger = 0, onLoanUpdate, onError }) => {
   const [overdueLoans, setOverdueLoans] = useState([]);
@@ -25,6 +26,24 @@ const OverdueLoans = ({ refreshTrigger = 0, onLoanUpdate, onError }) => {
     loadOverdueLoans();
   }, [refreshTrigger]);
 
+  // Ζωντανές ενημερώσεις: οι επιστροφές και οι ανανεώσεις αφαιρούνται τοπικά
+  useEffect(() => {
+    return circulationEvents.subscribe((change) => {
+      switch (change.type) {
+        case 'LOAN_RETURNED':
+        case 'LOAN_RENEWED':
+          setOverdueLoans(prev => prev.filter(loan => loan.id !== change.loanId));
+          break;
+        case 'LOAN_OVERDUE':
+        case 'RESYNC':
+          loadOverdueLoans();
+          break;
+        default:
+          break;
+      }
+    });
+  }, []);
+
   const loadOverdueLoans = async () => {
     setLoading(true);
     
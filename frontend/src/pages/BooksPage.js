@@ -1,6 +1,7 @@
 // src/pages/BooksPage.js
 import React, { useState, useEffect } from 'react';
 import bookService from '../services/bookService';
+import circulationEvents from '../services/circulationEvents';
 
 const BooksPage = () => {
   const [books, setBooks] = useState([]);
@@ -36,10 +37,48 @@ const BooksPage = () => {
     loadCategories();
   }, []);
 
+  // Ζωντανές ενημερώσεις αντί για επαναφόρτωση ολόκληρου του καταλόγου
+  useEffect(() => {
+    return circulationEvents.subscribe(async (change) => {
+      switch (change.type) {
+        case 'BOOK_AVAILABILITY':
+          setBooks(prev => prev.map(book => book.id === change.bookId
+            ? {
+                ...book,
+                availableCopies: change.availableCopies,
+                totalCopies: change.totalCopies,
+                loanedCopies: change.totalCopies - change.availableCopies,
+                available: change.availableCopies > 0
+              }
+            : book));
+          break;
+        case 'BOOK_CREATED':
+        case 'BOOK_UPDATED':
+          try {
+            const book = await bookService.getBookById(change.bookId);
+            setBooks(prev => prev.some(b => b.id === book.id)
+              ? prev.map(b => (b.id === book.id ? book : b))
+              : [...prev, book]);
+          } catch (err) {
+            console.error('Error refreshing book:', err);
+          }
+          break;
+        case 'BOOK_DELETED':
+          setBooks(prev => prev.filter(book => book.id !== change.bookId));
+          break;
+        case 'RESYNC':
+          loadBooks();
+          break;
+        default:
+          break;
+      }
+    });
+  }, []);
+
   const loadBooks = async () => {
     try {
       setLoading(true);
-      const data = await bookService.getAllBooks();
+      const data = await bookService.syncBooks();
       setBooks(data);
       setError(null);
     } catch (err) {
@@ -81,7 +120,15 @@ const BooksPage = () => {
     }
   };
 
-  const handleEdit = (book) => {
+  const handleEdit = async (listBook) => {
+    // Οι λίστες δεν περιέχουν την περιγραφή, οπότε φορτώνουμε ολόκληρο το βιβλίο
+    let book;
+    try {
+      book = await bookService.getBookById(listBook.id);
+    } catch (err) {
+      setError('Σφάλμα κατά τη φόρτωση του βιβλίου: ' + (err.response?.data?.message || err.message));
+      return;
+    }
     setEditingBook(book);
     setFormData({
       title: book.title || '',
@@ -135,8 +135,8 @@ const MembersPage = () => {
     
     try {
       setLoading(true);
-      const results = await memberService.searchMembers(searchTerm);
-      setMembers(results);
+      const result = await memberService.lookupMembers(searchTerm, 0, 100);
+      setMembers(result.users);
     } catch (err) {
       setError('Σφάλμα κατά την αναζήτηση: ' + err.message);
     } finally {
@@ -1,6 +1,12 @@
 // src/services/bookService.js
 import api from './api';
 
+// Τοπικό αντίγραφο του καταλόγου για σταδιακό συγχρονισμό (βλ. syncBooks)
+const catalog = {
+  token: null,
+  books: new Map()
+};
+
 const bookService = {
   // Λήψη όλων των βιβλίων
   getAllBooks: async () => {
@@ -13,6 +19,35 @@ const bookService = {
     }
   },
 
+  // Λήψη αλλαγών καταλόγου από ένα token συγχρονισμού και μετά
+  getBookChanges: async (since, limit) => {
+    try {
+      const params = {};
+      if (since) params.since = since;
+      if (limit) params.limit = limit;
+      const response = await api.get('/books/changes', { params });
+      return response.data;
+    } catch (error) {
+      console.error('Error fetching book changes:', error);
+      throw error;
+    }
+  },
+
+  // Συγχρονισμός του τοπικού καταλόγου: μόνο οι αλλαγές μετά τον τελευταίο συγχρονισμό
+  syncBooks: async () => {
+    let changes;
+    do {
+      changes = await bookService.getBookChanges(catalog.token);
+      if (changes.reset) {
+        catalog.books.clear();
+      }
+      changes.books.forEach((book) => catalog.books.set(book.id, book));
+      changes.deleted.forEach((id) => catalog.books.delete(id));
+      catalog.token = changes.token;
+    } while (changes.hasMore);
+    return Array.from(catalog.books.values()).sort((a, b) => a.id - b.id);
+  },
+
   // Λήψη βιβλίου με συγκεκριμένο ID
   getBookById: async (id) => {
     try {
@@ -24,6 +59,29 @@ const bookService = {
     }
   },
 
+  // Λήψη πολλών βιβλίων με μία κλήση· η απάντηση ακολουθεί τη σειρά των ids ({ id, found, item })
+  getBooksByIds: async (ids) => {
+    try {
+      const response = await api.post('/books/batch', ids);
+      return response.data;
+    } catch (error) {
+      console.error('Error fetching books by id:', error);
+      throw error;
+    }
+  },
+
+  // Φιλτράρισμα με συνδυασμούς κατηγορίας, έτους και διαθεσιμότητας, μαζί με πλήθη ανά όψη.
+  // filter: { op: 'AND' | 'OR' | 'NOT', filters: [...] } ή { category, yearFrom, yearTo, available }
+  searchFacets: async (filter, page = 0, size = 20) => {
+    try {
+      const response = await api.post('/books/facets', { filter, page, size });
+      return response.data;
+    } catch (error) {
+      console.error('Error searching book facets:', error);
+      throw error;
+    }
+  },
+
   // Δημιουργία νέου βιβλίου
   createBook: async (bookData) => {
     try {
@@ -90,6 +148,17 @@ const bookService = {
     }
   },
 
+  // Κατηγορίες με id και πλήθος βιβλίων ({ id, name, bookCount })
+  getCategorySummaries: async () => {
+    try {
+      const response = await api.get('/books/categories/summary');
+      return response.data;
+    } catch (error) {
+      console.error('Error fetching category summaries:', error);
+      throw error;
+    }
+  },
+
   // Έλεγχος διαθεσιμότητας βιβλίου
   checkBookAvailability: async (id) => {
     try {
@@ -0,0 +1,126 @@
+// src/services/circulationEvents.js
+// Ζωντανές ενημερώσεις κυκλοφορίας (server-sent events) αντί για επαναλαμβανόμενη φόρτωση λιστών
+
+import api from './api';
+import authService from './authService';
+
+const API_BASE_URL = process.env.REACT_APP_API_URL || 'http://localhost:8080/api';
+
+// Η ροή είναι διαθέσιμη μόνο σε βιβλιοθηκονόμους και διαχειριστές
+const STREAM_ROLES = ['LIBRARIAN', 'ADMIN'];
+const RETRY_DELAY_MS = 5000;
+
+const EVENT_TYPES = [
+  'BOOK_AVAILABILITY',
+  'BOOK_CREATED',
+  'BOOK_UPDATED',
+  'BOOK_DELETED',
+  'LOAN_CREATED',
+  'LOAN_RETURNED',
+  'LOAN_RENEWED',
+  'LOAN_FINE_PAID',
+  'LOAN_OVERDUE',
+  'RESYNC'
+];
+
+const listeners = new Set();
+let source = null;
+let connecting = false;
+let reconnecting = false;
+let retryTimer = null;
+
+const notify = (change) => {
+  listeners.forEach(listener => {
+    try {
+      listener(change);
+    } catch (error) {
+      console.error('Circulation listener error:', error);
+    }
+  });
+};
+
+const canSubscribe = () => {
+  const user = authService.getCurrentUser();
+  return authService.isAuthenticated() && user && STREAM_ROLES.includes(user.role)
+    && typeof EventSource !== 'undefined';
+};
+
+const scheduleRetry = () => {
+  reconnecting = true;
+  if (!retryTimer && listeners.size > 0) {
+    retryTimer = setTimeout(() => {
+      retryTimer = null;
+      connect();
+    }, RETRY_DELAY_MS);
+  }
+};
+
+const connect = async () => {
+  if (source || connecting || !canSubscribe()) {
+    return;
+  }
+
+  // Το EventSource δεν στέλνει headers· χρησιμοποιείται εισιτήριο μίας χρήσης αντί για το token
+  let ticket;
+  connecting = true;
+  try {
+    const response = await api.post('/stream/ticket');
+    ticket = response.data.ticket;
+  } catch (error) {
+    console.error('Error fetching stream ticket:', error);
+    // Χωρίς δικαίωμα πρόσβασης δεν έχει νόημα να ξαναδοκιμάσουμε
+    const status = error.response && error.response.status;
+    if (status !== 401 && status !== 403) {
+      scheduleRetry();
+    }
+    return;
+  } finally {
+    connecting = false;
+  }
+  if (listeners.size === 0) {
+    return;
+  }
+
+  source = new EventSource(`${API_BASE_URL}/stream/circulation?ticket=${encodeURIComponent(ticket)}`);
+
+  EVENT_TYPES.forEach(type => {
+    source.addEventListener(type, event => notify(JSON.parse(event.data)));
+  });
+
+  source.onopen = () => {
+    // Μετά από επανασύνδεση μπορεί να χάθηκαν γεγονότα
+    if (reconnecting) {
+      reconnecting = false;
+      notify({ type: 'RESYNC' });
+    }
+  };
+
+  // Το εισιτήριο δεν ξαναχρησιμοποιείται, οπότε η επανασύνδεση γίνεται με νέο εισιτήριο
+  source.onerror = () => {
+    source.close();
+    source = null;
+    scheduleRetry();
+  };
+};
+
+const circulationEvents = {
+  // Εγγραφή σε αλλαγές - επιστρέφει συνάρτηση απεγγραφής
+  subscribe: (listener) => {
+    listeners.add(listener);
+    connect();
+    return () => {
+      listeners.delete(listener);
+      if (listeners.size === 0) {
+        if (source) {
+          source.close();
+          source = null;
+        }
+        clearTimeout(retryTimer);
+        retryTimer = null;
+        reconnecting = false;
+      }
+    };
+  }
+};
+
+export default circulationEvents;
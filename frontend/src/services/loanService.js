@@ -111,6 +111,36 @@ class LoanService {
     return this.handleResponse(response);
   }
 
+  async getLoanById(loanId) {
+    const response = await fetch(`${API_BASE_URL}/loans/${loanId}`, {
+      method: 'GET',
+      headers: this.getAuthHeaders()
+    });
+    return this.handleResponse(response);
+  }
+
+  // Πολλά δάνεια με μία κλήση· η απάντηση ακολουθεί τη σειρά των ids ({ id, found, item })
+  async getLoansByIds(loanIds) {
+    const response = await fetch(`${API_BASE_URL}/loans/batch`, {
+      method: 'POST',
+      headers: this.getAuthHeaders(),
+      body: JSON.stringify(loanIds)
+    });
+    return this.handleResponse(response);
+  }
+
+  // Επιστροφές, ανανεώσεις, πληρωμές προστίμων και νέα δάνεια με μία κλήση.
+  // operations: [{ type: 'RETURN' | 'RENEW' | 'PAY_FINE' | 'CREATE_LOAN', loanId, additionalDays, loan }]
+  // mode: 'ALL_OR_NOTHING' (όλα ή τίποτα) ή 'PER_OPERATION' (κάθε ενέργεια χωριστά)
+  async runCirculationBatch(operations, mode = 'ALL_OR_NOTHING') {
+    const response = await fetch(`${API_BASE_URL}/batch`, {
+      method: 'POST',
+      headers: this.getAuthHeaders(),
+      body: JSON.stringify({ mode, operations })
+    });
+    return this.handleResponse(response);
+  }
+
   async getActiveLoans() {
     try {
       const response = await fetch(`${API_BASE_URL}/loans/active`, {
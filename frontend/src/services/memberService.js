@@ -24,6 +24,41 @@ const memberService = {
     }
   },
 
+  // Λήψη συνόψεων δανεισμού (όλων ή συγκεκριμένων μελών)
+  getMemberSummaries: async (ids) => {
+    try {
+      const params = ids && ids.length ? { ids: ids.join(',') } : {};
+      const response = await api.get('/users/summaries', { params });
+      return response.data;
+    } catch (error) {
+      console.error('Error fetching member summaries:', error);
+      throw error;
+    }
+  },
+
+  // Λήψη πολλών μελών με μία κλήση· η απάντηση ακολουθεί τη σειρά των ids ({ id, found, item })
+  getMembersByIds: async (ids) => {
+    try {
+      const response = await api.post('/users/batch', ids);
+      return response.data;
+    } catch (error) {
+      console.error('Error fetching members by id:', error);
+      throw error;
+    }
+  },
+
+  // Πλήρης εικόνα μέλους με μία κλήση (στοιχεία, ενεργά και εκπρόθεσμα δάνεια, πρόστιμα, ιστορικό).
+  // Όσα τμήματα δεν φορτώθηκαν εγκαίρως είναι null και αναφέρονται στο unavailable.
+  getMemberOverview: async (id, page = 0, size = 10) => {
+    try {
+      const response = await api.get(`/users/${id}/overview`, { params: { page, size } });
+      return response.data;
+    } catch (error) {
+      console.error('Error fetching member overview:', error);
+      throw error;
+    }
+  },
+
   // Δημιουργία νέου μέλους
   createMember: async (memberData) => {
     try {
@@ -68,6 +103,17 @@ const memberService = {
     }
   },
 
+  // Ταξινομημένη αναζήτηση μελών ανά όνομα, username ή email, με σελιδοποίηση
+  lookupMembers: async (query, page = 0, size = 20) => {
+    try {
+      const response = await api.get('/users/lookup', { params: { query, page, size } });
+      return response.data;
+    } catch (error) {
+      console.error('Error looking up members:', error);
+      throw error;
+    }
+  },
+
   // Λήψη ενεργών μελών
   getActiveMembers: async () => {
     try {